@@ -0,0 +1,179 @@
+package com.riccardocinti.mcp_client_assistant.benchmark;
+
+import com.riccardocinti.mcp_client_assistant.config.ConversationProperties;
+import com.riccardocinti.mcp_client_assistant.config.HealthProperties;
+import com.riccardocinti.mcp_client_assistant.config.HistoryCompactionProperties;
+import com.riccardocinti.mcp_client_assistant.config.LlmSchedulerProperties;
+import com.riccardocinti.mcp_client_assistant.config.McpPoolProperties;
+import com.riccardocinti.mcp_client_assistant.config.McpStartupProperties;
+import com.riccardocinti.mcp_client_assistant.config.ModelPoolProperties;
+import com.riccardocinti.mcp_client_assistant.config.ResponseCacheProperties;
+import com.riccardocinti.mcp_client_assistant.config.SingleFlightProperties;
+import com.riccardocinti.mcp_client_assistant.config.SpeculationProperties;
+import com.riccardocinti.mcp_client_assistant.config.ToolCacheProperties;
+import com.riccardocinti.mcp_client_assistant.config.ToolRoutingProperties;
+import com.riccardocinti.mcp_client_assistant.config.TracingProperties;
+import com.riccardocinti.mcp_client_assistant.service.LlmUsageRecorder;
+import com.riccardocinti.mcp_client_assistant.service.McpConnection;
+import com.riccardocinti.mcp_client_assistant.service.McpService;
+import com.riccardocinti.mcp_client_assistant.service.OllamaService;
+import com.riccardocinti.mcp_client_assistant.service.RoutedStreamScheduler;
+import com.riccardocinti.mcp_client_assistant.service.cache.ChatSingleFlight;
+import com.riccardocinti.mcp_client_assistant.service.cache.PromptKeys;
+import com.riccardocinti.mcp_client_assistant.service.cache.ResponseCache;
+import com.riccardocinti.mcp_client_assistant.service.cache.ToolResultCache;
+import com.riccardocinti.mcp_client_assistant.service.catalog.ToolCatalog;
+import com.riccardocinti.mcp_client_assistant.service.conversation.ConversationChatMemory;
+import com.riccardocinti.mcp_client_assistant.service.conversation.HistoryCompactor;
+import com.riccardocinti.mcp_client_assistant.service.conversation.HistorySummarizer;
+import com.riccardocinti.mcp_client_assistant.service.conversation.InMemoryConversationStore;
+import com.riccardocinti.mcp_client_assistant.service.health.HealthMonitor;
+import com.riccardocinti.mcp_client_assistant.service.models.ModelPool;
+import com.riccardocinti.mcp_client_assistant.service.models.ModelRouter;
+import com.riccardocinti.mcp_client_assistant.service.pool.McpServerPool;
+import com.riccardocinti.mcp_client_assistant.service.routing.SpeculativeGeneration;
+import com.riccardocinti.mcp_client_assistant.service.routing.ToolIntentRouter;
+import com.riccardocinti.mcp_client_assistant.service.routing.ToolSelector;
+import com.riccardocinti.mcp_client_assistant.service.scheduling.LlmScheduler;
+import com.riccardocinti.mcp_client_assistant.service.startup.McpServerStartup;
+import com.riccardocinti.mcp_client_assistant.service.tools.ToolCallMetrics;
+import com.riccardocinti.mcp_client_assistant.service.tracing.RequestTracer;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
+import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.mcp.client.autoconfigure.properties.McpClientCommonProperties;
+import org.springframework.ai.mcp.client.autoconfigure.properties.McpStdioClientProperties;
+import org.springframework.ai.model.tool.ToolCallingManager;
+import org.springframework.ai.ollama.OllamaChatModel;
+import org.springframework.ai.ollama.api.OllamaApi;
+import org.springframework.ai.ollama.api.OllamaOptions;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.client.RestClient;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The chat service wired by hand the way the application context wires it, with
+ * the model replaced by {@link StubChatModel} and the MCP servers by one
+ * {@link FakeMcpConnection}. Caching is off so every call does the full work.
+ */
+final class AssistantFixture {
+
+    final InMemoryConversationStore conversationStore;
+
+    final ConversationChatMemory chatMemory;
+
+    final McpService mcpService;
+
+    final ToolIntentRouter toolIntentRouter;
+
+    final ToolSelector toolSelector;
+
+    final OllamaService ollamaService;
+
+    /**
+     * @param historyTurns turns kept per conversation, the store's window
+     * @param toolCount    tools exposed by the fake MCP server, none if zero
+     */
+    AssistantFixture(int historyTurns, int toolCount) {
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        List<McpConnection> connections = toolCount > 0
+                ? List.of(new FakeMcpConnection("tools", toolCount))
+                : List.of();
+
+        ConversationProperties conversationProperties = new ConversationProperties(
+                "memory", 10_000, Math.max(2, 2 * historyTurns), DataSize.ofMegabytes(256),
+                Duration.ofMinutes(30), Duration.ofSeconds(60));
+        this.conversationStore = new InMemoryConversationStore(conversationProperties);
+
+        ToolCatalog toolCatalog = new ToolCatalog(connections, List.of(
+                new ToolCallMetrics(connections, meterRegistry),
+                new ToolResultCache(new ToolCacheProperties(true, 10_000,
+                        new ToolCacheProperties.Policy(false, Duration.ofMinutes(5), DataSize.ofKilobytes(256)),
+                        Map.of()), new McpClientCommonProperties(), meterRegistry)),
+                meterRegistry);
+        toolCatalog.initialize();
+        McpServerPool mcpServerPool = new McpServerPool(
+                new McpPoolProperties(Map.of(), Duration.ofSeconds(15), Duration.ofSeconds(10)),
+                new McpStdioClientProperties(), new McpClientCommonProperties(), connections);
+        this.mcpService = new McpService(connections, toolCatalog, mcpServerPool);
+
+        ChatClient chatClient = ChatClient.builder(new StubChatModel())
+                .defaultSystem("You are a helpful assistant.")
+                .build();
+        OllamaApi ollamaApi = OllamaApi.builder().build();
+        OllamaChatModel ollamaChatModel = OllamaChatModel.builder()
+                .ollamaApi(ollamaApi)
+                .defaultOptions(OllamaOptions.builder().model("qwen2.5:7b").temperature(0.0).build())
+                .build();
+
+        // No LLM fallback: ambiguous messages would otherwise measure the stub model
+        ToolRoutingProperties routingProperties = new ToolRoutingProperties(0.45, 0.15, false, false, 5);
+        // Enough slots that threads contend on the conversation, not on admission control
+        LlmScheduler llmScheduler = new LlmScheduler(
+                new LlmSchedulerProperties(64, 1024, Duration.ofMinutes(2)), meterRegistry);
+        ModelPoolProperties modelPoolProperties = new ModelPoolProperties(Map.of(), Map.of(), 2, 3,
+                Duration.ofSeconds(30));
+        ModelRouter modelRouter = new ModelRouter(modelPoolProperties, ollamaChatModel, meterRegistry);
+        // One endpoint, the default one; the health monitor is never started, so nothing is probed
+        BeanFactory noBuilders = new StaticListableBeanFactory();
+        ModelPool modelPool = new ModelPool(modelPoolProperties, ollamaChatModel, ollamaApi,
+                () -> "http://localhost:11434", ToolCallingManager.builder().build(), ObservationRegistry.NOOP,
+                noBuilders.getBeanProvider(RestClient.Builder.class),
+                noBuilders.getBeanProvider(WebClient.Builder.class), meterRegistry);
+        // Tracing on as in production, without payload capture
+        RequestTracer tracer = new RequestTracer(new TracingProperties(true, 1000, 0.0, 2000), toolCatalog,
+                meterRegistry);
+        this.toolIntentRouter = new ToolIntentRouter(mcpService, chatClient, routingProperties, llmScheduler,
+                modelRouter, tracer, meterRegistry);
+        this.toolSelector = new ToolSelector(mcpService, routingProperties, meterRegistry);
+
+        // Compaction off: the history benchmarks measure windows of a fixed number of turns
+        HistoryCompactionProperties compactionProperties = new HistoryCompactionProperties(
+                false, 3000, 0.5, 4, 1000, 200);
+        this.chatMemory = new ConversationChatMemory(conversationStore, new HistoryCompactor(conversationStore,
+                new HistorySummarizer(chatClient, llmScheduler, modelRouter, conversationStore, compactionProperties,
+                        meterRegistry),
+                compactionProperties, conversationProperties, meterRegistry));
+
+        McpServerStartup mcpServerStartup = new McpServerStartup(connections, new McpStartupProperties(List.of(),
+                List.of(), Duration.ofSeconds(30), Duration.ofSeconds(15), Duration.ofMinutes(5)),
+                event -> {
+                }, meterRegistry);
+        this.ollamaService = new OllamaService(
+                chatClient,
+                OllamaOptions.builder().build(),
+                ollamaChatModel,
+                toolIntentRouter,
+                new HealthMonitor(modelPool, modelRouter, connections,
+                        new HealthProperties(Duration.ofSeconds(15), Duration.ofSeconds(5))),
+                chatMemory,
+                new LlmUsageRecorder(meterRegistry),
+                new ResponseCache(new ResponseCacheProperties(false, 1000, Duration.ofMinutes(10), List.of()),
+                        meterRegistry),
+                new PromptKeys(ollamaChatModel),
+                new ChatSingleFlight(new SingleFlightProperties(true, Duration.ofMinutes(7)), meterRegistry),
+                toolSelector,
+                llmScheduler,
+                mcpServerStartup,
+                modelRouter,
+                tracer,
+                new SpeculativeGeneration(new SpeculationProperties(false, 0), llmScheduler, meterRegistry),
+                new RoutedStreamScheduler(llmScheduler, mcpServerStartup));
+    }
+
+    /**
+     * Fills a conversation up to the store's window with alternating user and assistant turns.
+     */
+    void fillConversation(String conversationId, int turns) {
+        for (int turn = 0; turn < turns; turn++) {
+            ollamaService.chat("Question number " + turn + " about the project plan", conversationId);
+        }
+    }
+}
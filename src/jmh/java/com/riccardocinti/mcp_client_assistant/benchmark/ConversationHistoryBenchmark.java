@@ -0,0 +1,55 @@
+package com.riccardocinti.mcp_client_assistant.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.ai.chat.messages.Message;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One conversation turn against histories of growing length. The store keeps
+ * exactly {@code turns} turns, so every iteration reads a full window, sends it
+ * with the new message and appends the answer, trimming the oldest turn.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ConversationHistoryBenchmark {
+
+    private static final String CONVERSATION_ID = "history";
+
+    @Param({"1", "10", "100", "1000"})
+    public int turns;
+
+    private AssistantFixture fixture;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        fixture = new AssistantFixture(turns, 0);
+        fixture.fillConversation(CONVERSATION_ID, turns);
+    }
+
+    @Benchmark
+    public String chatTurn() {
+        return fixture.ollamaService.chat("And what comes after that?", CONVERSATION_ID);
+    }
+
+    @Benchmark
+    public List<Message> loadHistory() {
+        return fixture.chatMemory.get(CONVERSATION_ID);
+    }
+}
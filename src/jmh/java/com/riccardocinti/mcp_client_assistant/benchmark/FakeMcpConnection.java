@@ -0,0 +1,97 @@
+package com.riccardocinti.mcp_client_assistant.benchmark;
+
+import com.riccardocinti.mcp_client_assistant.service.McpConnection;
+import io.modelcontextprotocol.spec.McpSchema;
+import org.springframework.ai.mcp.McpToolUtils;
+import org.springframework.ai.tool.ToolCallback;
+import org.springframework.ai.tool.definition.ToolDefinition;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * In-process MCP connection exposing a generated set of tools. Tool calls return
+ * a fixed result without leaving the JVM.
+ */
+final class FakeMcpConnection implements McpConnection {
+
+    private static final String[] VERBS = {"get", "list", "search", "create", "update", "delete", "read", "fetch"};
+
+    private static final String[] NOUNS = {"weather", "file", "issue", "repository", "calendar", "email",
+            "invoice", "ticket", "document", "user", "build", "deployment"};
+
+    private static final String INPUT_SCHEMA = """
+            {"type":"object","properties":{"query":{"type":"string","description":"What to look for"},\
+            "limit":{"type":"integer","description":"Maximum number of results"}},"required":["query"]}""";
+
+    private final String clientName;
+
+    private final McpSchema.ListToolsResult tools;
+
+    FakeMcpConnection(String connectionName, int toolCount) {
+        this.clientName = "bench - " + connectionName;
+        List<McpSchema.Tool> generated = new ArrayList<>(toolCount);
+        for (int i = 0; i < toolCount; i++) {
+            String verb = VERBS[i % VERBS.length];
+            String noun = NOUNS[(i / VERBS.length) % NOUNS.length];
+            generated.add(new McpSchema.Tool(verb + "_" + noun + "_" + i,
+                    "Use this to " + verb + " a " + noun + " by its name or a free text query. Variant " + i + ".",
+                    INPUT_SCHEMA));
+        }
+        this.tools = new McpSchema.ListToolsResult(List.copyOf(generated), null);
+    }
+
+    @Override
+    public String clientName() {
+        return clientName;
+    }
+
+    @Override
+    public McpSchema.Implementation serverInfo() {
+        return new McpSchema.Implementation("fake-server", "1.0.0");
+    }
+
+    @Override
+    public boolean isInitialized() {
+        return true;
+    }
+
+    @Override
+    public void initialize() {
+    }
+
+    @Override
+    public void ping() {
+    }
+
+    @Override
+    public McpSchema.ListToolsResult listTools() {
+        return tools;
+    }
+
+    @Override
+    public ToolCallback toolCallback(McpSchema.Tool tool) {
+        return new FakeToolCallback(ToolDefinition.builder()
+                .name(McpToolUtils.prefixedToolName(clientName, tool.name()))
+                .description(tool.description())
+                .inputSchema(INPUT_SCHEMA)
+                .build());
+    }
+
+    @Override
+    public void close() {
+    }
+
+    private record FakeToolCallback(ToolDefinition definition) implements ToolCallback {
+
+        @Override
+        public ToolDefinition getToolDefinition() {
+            return definition;
+        }
+
+        @Override
+        public String call(String toolInput) {
+            return "{\"results\":[{\"name\":\"first\"},{\"name\":\"second\"}]}";
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.riccardocinti.mcp_client_assistant.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.riccardocinti.mcp_client_assistant.model.ChatResponse;
+import com.riccardocinti.mcp_client_assistant.model.ToolInfo;
+import com.riccardocinti.mcp_client_assistant.model.ToolsResponse;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JSON writing and reading of the REST response bodies, with the object mapper
+ * configured the way Spring Boot configures it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JsonSerializationBenchmark {
+
+    @Param({"10", "100", "500"})
+    public int tools;
+
+    @Param({"200", "4000"})
+    public int responseChars;
+
+    private ObjectMapper objectMapper;
+
+    private ChatResponse chatResponse;
+
+    private ToolsResponse toolsResponse;
+
+    private byte[] chatResponseJson;
+
+    private byte[] toolsResponseJson;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+        char[] text = new char[responseChars];
+        Arrays.fill(text, 'a');
+        chatResponse = new ChatResponse(new String(text), null, true, false);
+
+        FakeMcpConnection connection = new FakeMcpConnection("tools", tools);
+        List<ToolInfo> toolInfos = connection.listTools().tools().stream()
+                .map(tool -> new ToolInfo(tool.name(), tool.description()))
+                .toList();
+        toolsResponse = new ToolsResponse(toolInfos, toolInfos.size(), 1);
+
+        chatResponseJson = objectMapper.writeValueAsBytes(chatResponse);
+        toolsResponseJson = objectMapper.writeValueAsBytes(toolsResponse);
+    }
+
+    @Benchmark
+    public byte[] writeChatResponse() throws IOException {
+        return objectMapper.writeValueAsBytes(chatResponse);
+    }
+
+    @Benchmark
+    public ChatResponse readChatResponse() throws IOException {
+        return objectMapper.readValue(chatResponseJson, ChatResponse.class);
+    }
+
+    @Benchmark
+    public byte[] writeToolsResponse() throws IOException {
+        return objectMapper.writeValueAsBytes(toolsResponse);
+    }
+
+    @Benchmark
+    public ToolsResponse readToolsResponse() throws IOException {
+        return objectMapper.readValue(toolsResponseJson, ToolsResponse.class);
+    }
+}
@@ -0,0 +1,67 @@
+package com.riccardocinti.mcp_client_assistant.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.ai.chat.messages.Message;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Several threads working on the same conversation, e.g. a user with two tabs
+ * open or a client retrying while the first request is still running.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SharedConversationBenchmark {
+
+    private static final String CONVERSATION_ID = "shared";
+
+    @Param({"20", "200"})
+    public int turns;
+
+    private AssistantFixture fixture;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        fixture = new AssistantFixture(turns, 0);
+        fixture.fillConversation(CONVERSATION_ID, turns);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public String concurrentTurns() {
+        return fixture.ollamaService.chat("What changed since the last message?", CONVERSATION_ID);
+    }
+
+    @Benchmark
+    @Group("readWhileWriting")
+    @GroupThreads(1)
+    public String writer() {
+        return fixture.ollamaService.chat("What changed since the last message?", CONVERSATION_ID);
+    }
+
+    @Benchmark
+    @Group("readWhileWriting")
+    @GroupThreads(3)
+    public List<Message> reader() {
+        return fixture.chatMemory.get(CONVERSATION_ID);
+    }
+}
@@ -0,0 +1,42 @@
+package com.riccardocinti.mcp_client_assistant.benchmark;
+
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.metadata.ChatResponseMetadata;
+import org.springframework.ai.chat.metadata.DefaultUsage;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.prompt.Prompt;
+import reactor.core.publisher.Flux;
+
+import java.util.List;
+
+/**
+ * Chat model that answers instantly with a fixed text, so a benchmark measures
+ * only what the service does around the model call.
+ */
+final class StubChatModel implements ChatModel {
+
+    static final String ANSWER = """
+            Sure. Here is a short answer of roughly the length a local model gives to a simple \
+            question, long enough that copying it into history and responses is not free.""";
+
+    @Override
+    public ChatResponse call(Prompt prompt) {
+        return response(ANSWER, prompt.getInstructions().size());
+    }
+
+    @Override
+    public Flux<ChatResponse> stream(Prompt prompt) {
+        int promptMessages = prompt.getInstructions().size();
+        return Flux.fromArray(ANSWER.split("(?<= )"))
+                .map(token -> response(token, promptMessages));
+    }
+
+    private static ChatResponse response(String text, int promptMessages) {
+        ChatResponseMetadata metadata = ChatResponseMetadata.builder()
+                .usage(new DefaultUsage(promptMessages, 1))
+                .build();
+        return new ChatResponse(List.of(new Generation(new AssistantMessage(text))), metadata);
+    }
+}
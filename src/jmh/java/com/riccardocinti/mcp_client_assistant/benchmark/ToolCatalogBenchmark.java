@@ -0,0 +1,80 @@
+package com.riccardocinti.mcp_client_assistant.benchmark;
+
+import com.riccardocinti.mcp_client_assistant.model.ChatResult;
+import com.riccardocinti.mcp_client_assistant.model.RoutingDecision;
+import com.riccardocinti.mcp_client_assistant.service.routing.ToolIndex;
+import com.riccardocinti.mcp_client_assistant.service.routing.ToolSelector;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.ai.tool.ToolCallback;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-request cost of the tool catalog: routing a message, selecting the tools to
+ * attach and a whole tool-enabled chat with the selected callbacks wrapped, plus
+ * the index rebuild that follows a catalog change.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ToolCatalogBenchmark {
+
+    private static final String TOOL_MESSAGE = "search the open issue tickets in the repository";
+
+    private static final String PLAIN_MESSAGE = "tell me a joke about cats";
+
+    @Param({"10", "50", "100", "500"})
+    public int tools;
+
+    private AssistantFixture fixture;
+
+    private ToolCallback[] callbacks;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        fixture = new AssistantFixture(1, tools);
+        callbacks = fixture.mcpService.getToolCallbacks();
+        // Builds the routing and selection indexes for the catalog version
+        fixture.toolIntentRouter.route(TOOL_MESSAGE);
+        fixture.toolSelector.select(TOOL_MESSAGE);
+    }
+
+    @Benchmark
+    public RoutingDecision routeToolMessage() {
+        return fixture.toolIntentRouter.route(TOOL_MESSAGE);
+    }
+
+    @Benchmark
+    public RoutingDecision routePlainMessage() {
+        return fixture.toolIntentRouter.route(PLAIN_MESSAGE);
+    }
+
+    @Benchmark
+    public ToolSelector.ToolSelection selectTools() {
+        return fixture.toolSelector.select(TOOL_MESSAGE);
+    }
+
+    @Benchmark
+    public ChatResult chatWithTools() {
+        return fixture.ollamaService.chatSimple("", TOOL_MESSAGE, false);
+    }
+
+    @Benchmark
+    public ToolIndex rebuildIndex() {
+        return ToolIndex.withSchemas(callbacks);
+    }
+}
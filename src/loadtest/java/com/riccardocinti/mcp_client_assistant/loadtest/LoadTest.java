@@ -0,0 +1,206 @@
+package com.riccardocinti.mcp_client_assistant.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.riccardocinti.mcp_client_assistant.McpClientApplication;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.env.SimpleCommandLinePropertySource;
+import org.springframework.core.env.StandardEnvironment;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.util.StringUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+
+/**
+ * End-to-end load test of the HTTP API. Starts a {@link StubOllamaServer}, boots
+ * the application with its MCP connections pointed at {@link StubMcpServer}
+ * processes, then runs each scenario at a fixed open-loop arrival rate and
+ * reports throughput and latency percentiles.
+ * <p>
+ * {@code --loadtest.*} arguments configure the test ({@link LoadTestProperties}),
+ * all other arguments are passed on to the application, e.g.
+ * {@code --assistant.llm-scheduler.max-concurrent=4}.
+ */
+public final class LoadTest {
+
+    private static final Duration READY_TIMEOUT = Duration.ofMinutes(2);
+
+    private static final String SYSTEM_PROMPT = "You write release notes. Answer in one short paragraph.";
+
+    private LoadTest() {
+    }
+
+    public static void main(String[] args) {
+        int status = 0;
+        try {
+            run(args);
+        } catch (Exception e) {
+            e.printStackTrace();
+            status = 1;
+        }
+        // Stub MCP servers and leftover request threads must not keep the JVM alive
+        System.exit(status);
+    }
+
+    private static void run(String[] args) throws Exception {
+        StandardEnvironment environment = new StandardEnvironment();
+        environment.getPropertySources().addFirst(new SimpleCommandLinePropertySource(args));
+        LoadTestProperties properties = Binder.get(environment).bindOrCreate("loadtest", LoadTestProperties.class);
+
+        List<ScenarioResult> results = new ArrayList<>();
+        try (StubOllamaServer ollama = new StubOllamaServer(properties.ollama())) {
+            ollama.start();
+            ConfigurableApplicationContext application = SpringApplication.run(McpClientApplication.class,
+                    applicationArgs(args, ollama.port(), properties));
+            try {
+                int port = application.getEnvironment().getRequiredProperty("local.server.port", Integer.class);
+                URI baseUri = URI.create("http://localhost:" + port);
+                HttpClient httpClient = HttpClient.newBuilder()
+                        .version(HttpClient.Version.HTTP_1_1)
+                        .executor(Executors.newVirtualThreadPerTaskExecutor())
+                        .connectTimeout(Duration.ofSeconds(10))
+                        .build();
+                awaitReady(httpClient, baseUri);
+
+                OpenLoopDriver driver = new OpenLoopDriver(httpClient, baseUri, properties.requestTimeout());
+                for (String name : properties.scenarios()) {
+                    OpenLoopDriver.Scenario scenario = scenario(name, properties);
+                    if (!properties.warmup().isZero()) {
+                        System.out.printf("Warming up %s for %s%n", name, properties.warmup());
+                        driver.run(scenario, properties.rate(), properties.warmup());
+                    }
+                    System.out.printf("Running %s at %.1f req/s for %s%n", name, properties.rate(),
+                            properties.duration());
+                    results.add(driver.run(scenario, properties.rate(), properties.duration()));
+                }
+            } finally {
+                SpringApplication.exit(application);
+            }
+        }
+
+        report(results);
+        if (StringUtils.hasText(properties.resultFile())) {
+            write(properties, results, new File(properties.resultFile()));
+        }
+    }
+
+    private static String[] applicationArgs(String[] args, int ollamaPort, LoadTestProperties properties) {
+        Map<String, String> defaults = new LinkedHashMap<>();
+        defaults.put("server.port", "0");
+        defaults.put("spring.ai.ollama.base-url", "http://localhost:" + ollamaPort);
+        // The stub model cannot classify messages, route on lexical scores alone
+        defaults.put("assistant.routing.llm-fallback", "false");
+        for (String logger : List.of("root", "org.springframework.ai", "org.springframework.ai.mcp",
+                "org.springframework.ai.ollama", "org.springframework.web")) {
+            defaults.put("logging.level." + logger, "WARN");
+        }
+        String java = ProcessHandle.current().info().command().orElse("java");
+        List<String> serverArgs = List.of("-D" + StubMcpServer.LATENCY_PROPERTY + "=" + properties.mcp().latency().toMillis() + "ms",
+                "-cp", System.getProperty("java.class.path"), StubMcpServer.class.getName());
+        for (String connection : List.of("github", "builder")) {
+            String prefix = "spring.ai.mcp.client.stdio.connections." + connection;
+            defaults.put(prefix + ".command", java);
+            for (int i = 0; i < serverArgs.size(); i++) {
+                defaults.put(prefix + ".args[" + i + "]", serverArgs.get(i));
+            }
+        }
+
+        List<String> applicationArgs = new ArrayList<>(Arrays.asList(args));
+        defaults.forEach((key, value) -> {
+            // Arguments given on the command line win over the defaults
+            if (applicationArgs.stream().noneMatch(arg -> arg.startsWith("--" + key + "="))) {
+                applicationArgs.add("--" + key + "=" + value);
+            }
+        });
+        return applicationArgs.toArray(String[]::new);
+    }
+
+    private static OpenLoopDriver.Scenario scenario(String name, LoadTestProperties properties) {
+        return switch (name) {
+            case "chat" -> new OpenLoopDriver.Scenario(name, "/api/chat",
+                    index -> Map.of("message", message(index, properties.toolRatio())));
+            case "conversation" -> new OpenLoopDriver.Scenario(name, "/api/chat/conversation",
+                    index -> Map.of("message", message(index, properties.toolRatio()),
+                            "conversationId", "loadtest-" + index % properties.conversations()));
+            case "system" -> new OpenLoopDriver.Scenario(name, "/api/chat/system",
+                    index -> Map.of("systemPrompt", SYSTEM_PROMPT, "message", message(index, properties.toolRatio())));
+            default -> throw new IllegalArgumentException(
+                    "Unknown scenario " + name + ", expected chat, conversation or system");
+        };
+    }
+
+    /**
+     * Tool and plain messages spread evenly at the given ratio. Every message is
+     * unique so the response cache and single-flight never short-cut a request.
+     */
+    private static String message(int index, double toolRatio) {
+        boolean tools = Math.floor((index + 1) * toolRatio) > Math.floor(index * toolRatio);
+        return tools
+                ? "search the open issues in the repository about request " + index
+                : "tell me something nice about request " + index;
+    }
+
+    private static void awaitReady(HttpClient httpClient, URI baseUri) throws InterruptedException {
+        HttpRequest readiness = HttpRequest.newBuilder(baseUri.resolve("/actuator/health/readiness")).GET().build();
+        long deadline = System.nanoTime() + READY_TIMEOUT.toNanos();
+        while (System.nanoTime() < deadline) {
+            try {
+                if (httpClient.send(readiness, HttpResponse.BodyHandlers.discarding()).statusCode() == 200) {
+                    return;
+                }
+            } catch (IOException e) {
+                // Not listening yet
+            }
+            Thread.sleep(500);
+        }
+        throw new IllegalStateException("Application not ready after " + READY_TIMEOUT);
+    }
+
+    private static void report(List<ScenarioResult> results) {
+        System.out.printf("%n%-14s %8s %8s %8s %8s %8s %10s %10s %10s %10s %10s%n", "scenario", "rate", "requests",
+                "ok", "429", "failed", "ok/s", "p50 ms", "p99 ms", "p999 ms", "max ms");
+        for (ScenarioResult result : results) {
+            ScenarioResult.Latency ok = result.succeededLatency();
+            System.out.printf("%-14s %8.1f %8d %8d %8d %8d %10.2f %10.1f %10.1f %10.1f %10.1f%n",
+                    result.scenario(), result.offeredRate(), result.requests(), result.succeeded(),
+                    result.rejected(), result.failed(), result.throughput(), ok.p50Millis(),
+                    ok.p99Millis(), ok.p999Millis(), ok.maxMillis());
+        }
+        // Latencies above are of successful requests only, the others are reported on their own
+        for (ScenarioResult result : results) {
+            report(result.scenario(), "429", result.rejected(), result.rejectedLatency());
+            report(result.scenario(), "failed", result.failed(), result.failedLatency());
+        }
+    }
+
+    private static void report(String scenario, String outcome, long count, ScenarioResult.Latency latency) {
+        if (count > 0) {
+            System.out.printf("%-14s %d %s responses: p50 %.1f ms, p99 %.1f ms, max %.1f ms%n",
+                    scenario, count, outcome, latency.p50Millis(), latency.p99Millis(), latency.maxMillis());
+        }
+    }
+
+    private static void write(LoadTestProperties properties, List<ScenarioResult> results, File file)
+            throws IOException {
+        ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json()
+                .featuresToDisable(SerializationFeature.WRITE_DURATIONS_AS_TIMESTAMPS)
+                .build();
+        objectMapper.writerWithDefaultPrettyPrinter()
+                .writeValue(file, Map.of("properties", properties, "scenarios", results));
+        System.out.printf("Results written to %s%n", file);
+    }
+}
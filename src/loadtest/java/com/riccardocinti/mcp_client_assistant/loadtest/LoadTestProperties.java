@@ -0,0 +1,54 @@
+package com.riccardocinti.mcp_client_assistant.loadtest;
+
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Load test options, passed as {@code --loadtest.*} arguments. Every other
+ * argument is handed to the application under test.
+ *
+ * @param scenarios      scenarios to run one after the other: chat, conversation, system
+ * @param rate           requests started per second, independent of how fast responses come back
+ * @param toolRatio      share of messages that route to tools
+ * @param conversations  distinct conversation ids the conversation scenario spreads its requests over
+ * @param resultFile     where the results are written as JSON, not written if empty
+ */
+public record LoadTestProperties(
+        @DefaultValue({"chat", "conversation", "system"}) List<String> scenarios,
+        @DefaultValue("2") double rate,
+        @DefaultValue("60s") Duration duration,
+        @DefaultValue("10s") Duration warmup,
+        @DefaultValue("0.3") double toolRatio,
+        @DefaultValue("20") int conversations,
+        @DefaultValue("5m") Duration requestTimeout,
+        String resultFile,
+        @DefaultValue Ollama ollama,
+        @DefaultValue Mcp mcp
+) {
+
+    /**
+     * @param firstToken      time before the first token, i.e. prompt evaluation
+     * @param tokensPerSecond generation speed after the first token
+     * @param responseTokens  tokens in every text response
+     * @param parallel        requests generated at once, like OLLAMA_NUM_PARALLEL; the rest queue
+     * @param toolCalls       whether requests that carry tools get a tool call back before the answer
+     */
+    public record Ollama(
+            @DefaultValue("300ms") Duration firstToken,
+            @DefaultValue("40") double tokensPerSecond,
+            @DefaultValue("60") int responseTokens,
+            @DefaultValue("2") int parallel,
+            @DefaultValue("true") boolean toolCalls
+    ) {
+    }
+
+    /**
+     * @param latency time every stub MCP tool call takes
+     */
+    public record Mcp(
+            @DefaultValue("50ms") Duration latency
+    ) {
+    }
+}
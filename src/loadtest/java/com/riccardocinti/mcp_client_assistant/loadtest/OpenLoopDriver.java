@@ -0,0 +1,131 @@
+package com.riccardocinti.mcp_client_assistant.loadtest;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.IntFunction;
+
+/**
+ * Open-loop load generator: requests start on a fixed schedule whether or not
+ * earlier ones have finished, the way independent users arrive. Each request
+ * runs on its own virtual thread, so a slow server makes requests pile up
+ * instead of slowing down the arrivals and hiding the queueing delay.
+ */
+@Slf4j
+final class OpenLoopDriver {
+
+    private static final long HIGHEST_LATENCY_MICROS = TimeUnit.MINUTES.toMicros(30);
+
+    private final HttpClient httpClient;
+
+    private final URI baseUri;
+
+    private final Duration requestTimeout;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    OpenLoopDriver(HttpClient httpClient, URI baseUri, Duration requestTimeout) {
+        this.httpClient = httpClient;
+        this.baseUri = baseUri;
+        this.requestTimeout = requestTimeout;
+    }
+
+    /**
+     * One scenario: the endpoint and the request body for the n-th request.
+     */
+    record Scenario(String name, String path, IntFunction<Map<String, Object>> body) {
+    }
+
+    /**
+     * Starts {@code rate} requests per second for {@code duration} and waits for all of them to finish.
+     */
+    ScenarioResult run(Scenario scenario, double rate, Duration duration) {
+        long intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / rate);
+        long requests = duration.toNanos() / intervalNanos;
+        Histogram succeeded = new ConcurrentHistogram(HIGHEST_LATENCY_MICROS, 3);
+        Histogram rejected = new ConcurrentHistogram(HIGHEST_LATENCY_MICROS, 3);
+        Histogram failed = new ConcurrentHistogram(HIGHEST_LATENCY_MICROS, 3);
+
+        long start = System.nanoTime();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < requests; i++) {
+                long due = start + i * intervalNanos;
+                for (long wait = due - System.nanoTime(); wait > 0; wait = due - System.nanoTime()) {
+                    LockSupport.parkNanos(wait);
+                }
+                HttpRequest request = request(scenario, i);
+                executor.execute(() -> {
+                    int status = send(request);
+                    long micros = Math.min(
+                            TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - due), HIGHEST_LATENCY_MICROS);
+                    if (status >= 200 && status < 300) {
+                        succeeded.recordValue(micros);
+                    } else if (status == 429) {
+                        rejected.recordValue(micros);
+                    } else {
+                        failed.recordValue(micros);
+                    }
+                });
+            }
+        }
+        double elapsedSeconds = (System.nanoTime() - start) / 1e9;
+
+        return new ScenarioResult(scenario.name(), rate, requests,
+                succeeded.getTotalCount(), rejected.getTotalCount(), failed.getTotalCount(),
+                succeeded.getTotalCount() / elapsedSeconds,
+                latency(succeeded), latency(rejected), latency(failed));
+    }
+
+    private static ScenarioResult.Latency latency(Histogram histogram) {
+        return new ScenarioResult.Latency(
+                millis(histogram.getValueAtPercentile(50)),
+                millis(histogram.getValueAtPercentile(99)),
+                millis(histogram.getValueAtPercentile(99.9)),
+                millis(histogram.getMaxValue()));
+    }
+
+    private HttpRequest request(Scenario scenario, int index) {
+        try {
+            return HttpRequest.newBuilder(baseUri.resolve(scenario.path()))
+                    .timeout(requestTimeout)
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofByteArray(
+                            objectMapper.writeValueAsBytes(scenario.body().apply(index))))
+                    .build();
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize request body", e);
+        }
+    }
+
+    /**
+     * @return the response status, or -1 if no response arrived
+     */
+    private int send(HttpRequest request) {
+        try {
+            return httpClient.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return -1;
+        } catch (Exception e) {
+            log.debug("Request to {} failed: {}", request.uri(), e.toString());
+            return -1;
+        }
+    }
+
+    private static double millis(long micros) {
+        return micros / 1000.0;
+    }
+}
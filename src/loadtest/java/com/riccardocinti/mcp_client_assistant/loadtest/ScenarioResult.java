@@ -0,0 +1,37 @@
+package com.riccardocinti.mcp_client_assistant.loadtest;
+
+/**
+ * Outcome of one scenario. Latencies are measured from the moment a request was
+ * due to be sent, so time spent waiting behind a slow load generator counts too.
+ * They are kept per outcome: a fast 429 or a connection refused must not make
+ * the successful requests look quicker than they were.
+ *
+ * @param offeredRate requests per second the scenario tried to start
+ * @param throughput  successful responses per second
+ * @param rejected    requests turned away with 429 by admission control
+ * @param failed      other error responses, timeouts and connection failures
+ */
+public record ScenarioResult(
+        String scenario,
+        double offeredRate,
+        long requests,
+        long succeeded,
+        long rejected,
+        long failed,
+        double throughput,
+        Latency succeededLatency,
+        Latency rejectedLatency,
+        Latency failedLatency
+) {
+
+    /**
+     * Latency percentiles of the requests with one outcome, all zero if there were none.
+     */
+    public record Latency(
+            double p50Millis,
+            double p99Millis,
+            double p999Millis,
+            double maxMillis
+    ) {
+    }
+}
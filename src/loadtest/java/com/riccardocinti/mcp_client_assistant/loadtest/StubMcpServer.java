@@ -0,0 +1,62 @@
+package com.riccardocinti.mcp_client_assistant.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.modelcontextprotocol.server.McpServer;
+import io.modelcontextprotocol.server.McpServerFeatures;
+import io.modelcontextprotocol.server.transport.StdioServerTransportProvider;
+import io.modelcontextprotocol.spec.McpSchema;
+import org.springframework.boot.convert.DurationStyle;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Stdio MCP server with a few fixed tools that answer after a configurable
+ * latency ({@code -Dstub.mcp.latency}, default 50ms). Started by the load test as
+ * the command of every configured MCP connection.
+ * <p>
+ * Stdout carries the protocol, so logging must go to stderr.
+ */
+public final class StubMcpServer {
+
+    static final String LATENCY_PROPERTY = "stub.mcp.latency";
+
+    private static final String QUERY_SCHEMA = """
+            {"type":"object","properties":{"query":{"type":"string","description":"Free text query"}},\
+            "required":["query"]}""";
+
+    private StubMcpServer() {
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        Duration latency = DurationStyle.detectAndParse(System.getProperty(LATENCY_PROPERTY, "50ms"));
+
+        McpServer.sync(new StdioServerTransportProvider(new ObjectMapper()))
+                .serverInfo("stub-mcp-server", "1.0.0")
+                .capabilities(McpSchema.ServerCapabilities.builder().tools(true).build())
+                .tools(
+                        tool("search_issues", "Search the issues of a repository by free text", latency),
+                        tool("get_file_contents", "Get the contents of a file in a repository", latency),
+                        tool("list_builds", "List the latest builds of a project and their status", latency))
+                .build();
+
+        // Not left running if the application dies without closing its MCP clients
+        ProcessHandle.current().parent().ifPresent(parent -> parent.onExit().thenRun(() -> System.exit(0)));
+        new CountDownLatch(1).await();
+    }
+
+    private static McpServerFeatures.SyncToolSpecification tool(String name, String description, Duration latency) {
+        return new McpServerFeatures.SyncToolSpecification(
+                new McpSchema.Tool(name, description, QUERY_SCHEMA),
+                (exchange, arguments) -> {
+                    try {
+                        Thread.sleep(latency);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return new McpSchema.CallToolResult(
+                            "{\"tool\":\"" + name + "\",\"results\":[{\"id\":1,\"title\":\"First\"},"
+                                    + "{\"id\":2,\"title\":\"Second\"}]}", false);
+                });
+    }
+}
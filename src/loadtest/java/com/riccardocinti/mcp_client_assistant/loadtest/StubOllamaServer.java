@@ -0,0 +1,157 @@
+package com.riccardocinti.mcp_client_assistant.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Stand-in for the Ollama HTTP API ({@code /api/chat} and {@code /api/tags}).
+ * <p>
+ * Chat requests take the configured time to first token plus one token interval
+ * per response token, and at most {@code parallel} are generated at once while the
+ * rest wait, like Ollama itself. A request that carries tools and ends with a user
+ * message gets a call to its first tool back; the request with the tool result
+ * then gets the text answer. Streaming requests receive the whole response as a
+ * single final chunk.
+ */
+@Slf4j
+final class StubOllamaServer implements AutoCloseable {
+
+    private static final String MODEL = "llama3.1:8b";
+
+    private final LoadTestProperties.Ollama properties;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final Semaphore slots;
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    private final String responseText;
+
+    private HttpServer server;
+
+    StubOllamaServer(LoadTestProperties.Ollama properties) {
+        this.properties = properties;
+        this.slots = new Semaphore(properties.parallel(), true);
+        this.responseText = "token ".repeat(properties.responseTokens()).strip();
+    }
+
+    void start() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.setExecutor(executor);
+        server.createContext("/api/chat", this::handleChat);
+        server.createContext("/api/tags", this::handleTags);
+        server.start();
+        log.warn("Stub Ollama listening on port {}", port());
+    }
+
+    int port() {
+        return server.getAddress().getPort();
+    }
+
+    private void handleChat(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            JsonNode request = objectMapper.readTree(exchange.getRequestBody());
+            JsonNode messages = request.path("messages");
+            JsonNode tools = request.path("tools");
+            String lastRole = messages.isEmpty() ? "" : messages.get(messages.size() - 1).path("role").asText();
+            boolean toolCall = properties.toolCalls() && tools.isArray() && !tools.isEmpty() && "user".equals(lastRole);
+            int tokens = toolCall ? 1 : properties.responseTokens();
+
+            slots.acquireUninterruptibly();
+            try {
+                Thread.sleep(generationTime(tokens));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                exchange.sendResponseHeaders(503, -1);
+                return;
+            } finally {
+                slots.release();
+            }
+
+            ObjectNode message = objectMapper.createObjectNode().put("role", "assistant");
+            if (toolCall) {
+                String toolName = tools.get(0).path("function").path("name").asText();
+                message.put("content", "");
+                ArrayNode toolCalls = message.putArray("tool_calls");
+                toolCalls.addObject().putObject("function")
+                        .put("name", toolName)
+                        .putObject("arguments").put("query", "load test");
+            } else {
+                message.put("content", responseText);
+            }
+            write(exchange, response(message, messages.size(), tokens), request.path("stream").asBoolean(false));
+        }
+    }
+
+    private void handleTags(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            ObjectNode body = objectMapper.createObjectNode();
+            body.putArray("models").addObject()
+                    .put("name", MODEL)
+                    .put("model", MODEL)
+                    .put("modified_at", Instant.now().toString())
+                    .put("size", 4_920_753_328L)
+                    .put("digest", "stub");
+            write(exchange, body, false);
+        }
+    }
+
+    private ObjectNode response(ObjectNode message, int promptMessages, int tokens) {
+        long promptEvalNanos = properties.firstToken().toNanos();
+        long evalNanos = tokenInterval().multipliedBy(tokens).toNanos();
+        ObjectNode body = objectMapper.createObjectNode()
+                .put("model", MODEL)
+                .put("created_at", Instant.now().toString());
+        body.set("message", message);
+        return body.put("done_reason", "stop")
+                .put("done", true)
+                .put("total_duration", promptEvalNanos + evalNanos)
+                .put("load_duration", 0)
+                .put("prompt_eval_count", promptMessages * 20)
+                .put("prompt_eval_duration", promptEvalNanos)
+                .put("eval_count", tokens)
+                .put("eval_duration", evalNanos);
+    }
+
+    private Duration generationTime(int tokens) {
+        return properties.firstToken().plus(tokenInterval().multipliedBy(tokens));
+    }
+
+    private Duration tokenInterval() {
+        return Duration.ofNanos((long) (1_000_000_000L / properties.tokensPerSecond()));
+    }
+
+    private void write(HttpExchange exchange, ObjectNode body, boolean stream) throws IOException {
+        byte[] bytes = (objectMapper.writeValueAsString(body) + (stream ? "\n" : "")).getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", stream ? "application/x-ndjson" : "application/json");
+        exchange.sendResponseHeaders(200, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    @Override
+    public void close() {
+        if (server != null) {
+            server.stop(0);
+        }
+        executor.shutdownNow();
+    }
+}
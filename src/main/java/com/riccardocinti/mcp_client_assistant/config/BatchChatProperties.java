@@ -0,0 +1,19 @@
+package com.riccardocinti.mcp_client_assistant.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Limits of the batch chat endpoint.
+ *
+ * @param parallelism    items of one batch generated at the same time when the request does not say
+ * @param maxParallelism upper bound for the parallelism a request may ask for
+ * @param maxItems       largest batch accepted
+ */
+@ConfigurationProperties(prefix = "assistant.batch")
+public record BatchChatProperties(
+        @DefaultValue("2") int parallelism,
+        @DefaultValue("8") int maxParallelism,
+        @DefaultValue("500") int maxItems
+) {
+}
@@ -0,0 +1,26 @@
+package com.riccardocinti.mcp_client_assistant.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+/**
+ * Append-only log behind the {@code log} conversation store.
+ *
+ * @param directory          where the segment files are kept, one log per node
+ * @param segmentSize        size each segment file is created with
+ * @param compactBelow       oldest segments whose share of live messages is below this are rewritten and deleted
+ * @param compactionInterval how often segments are checked for compaction
+ * @param forceWrites        flush every append to the device instead of leaving it to the page cache
+ */
+@ConfigurationProperties(prefix = "assistant.conversation.log")
+public record ConversationLogProperties(
+        @DefaultValue("data/conversations") String directory,
+        @DefaultValue("64MB") DataSize segmentSize,
+        @DefaultValue("0.5") double compactBelow,
+        @DefaultValue("5m") Duration compactionInterval,
+        @DefaultValue("false") boolean forceWrites
+) {
+}
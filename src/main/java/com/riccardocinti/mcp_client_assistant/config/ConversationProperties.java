@@ -0,0 +1,28 @@
+package com.riccardocinti.mcp_client_assistant.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+/**
+ * Limits of the conversation store.
+ *
+ * @param store         store implementation to use
+ * @param maxEntries    maximum number of conversations kept
+ * @param maxMessages   maximum number of messages kept per conversation, oldest are dropped first
+ * @param maxMemory     global budget for all stored messages
+ * @param idleTtl       conversations untouched for this long are evicted
+ * @param sweepInterval how often idle conversations are looked for
+ */
+@ConfigurationProperties(prefix = "assistant.conversation")
+public record ConversationProperties(
+        @DefaultValue("memory") String store,
+        @DefaultValue("10000") int maxEntries,
+        @DefaultValue("40") int maxMessages,
+        @DefaultValue("64MB") DataSize maxMemory,
+        @DefaultValue("30m") Duration idleTtl,
+        @DefaultValue("60s") Duration sweepInterval
+) {
+}
@@ -0,0 +1,19 @@
+package com.riccardocinti.mcp_client_assistant.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Background health probing of Ollama and the MCP servers.
+ *
+ * @param interval delay between two probe rounds
+ * @param timeout  maximum time a single probe may take before it counts as failed
+ */
+@ConfigurationProperties(prefix = "assistant.health")
+public record HealthProperties(
+        @DefaultValue("15s") Duration interval,
+        @DefaultValue("5s") Duration timeout
+) {
+}
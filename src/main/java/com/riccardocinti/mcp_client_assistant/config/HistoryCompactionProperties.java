@@ -0,0 +1,24 @@
+package com.riccardocinti.mcp_client_assistant.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Token budget of the conversation history sent with each turn.
+ *
+ * @param tokenBudget        estimated tokens of history sent with a turn; older turns are left out above it
+ * @param compactTo          share of the budget the history is folded down to once it is exceeded
+ * @param keepRecentMessages newest messages that are never folded into the summary
+ * @param maxMessageTokens   longer messages are truncated in the middle before they are stored
+ * @param summaryMaxWords    length the rolling summary is asked to stay within
+ */
+@ConfigurationProperties(prefix = "assistant.conversation.compaction")
+public record HistoryCompactionProperties(
+        @DefaultValue("true") boolean enabled,
+        @DefaultValue("3000") int tokenBudget,
+        @DefaultValue("0.5") double compactTo,
+        @DefaultValue("4") int keepRecentMessages,
+        @DefaultValue("1000") int maxMessageTokens,
+        @DefaultValue("200") int summaryMaxWords
+) {
+}
@@ -0,0 +1,21 @@
+package com.riccardocinti.mcp_client_assistant.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Admission control in front of Ollama.
+ *
+ * @param maxConcurrent requests allowed to talk to Ollama at the same time, match OLLAMA_NUM_PARALLEL
+ * @param maxQueue      requests allowed to wait for a slot, further requests are rejected with 429
+ * @param maxWait       longest a request waits for a slot before it is rejected
+ */
+@ConfigurationProperties(prefix = "assistant.llm-scheduler")
+public record LlmSchedulerProperties(
+        @DefaultValue("2") int maxConcurrent,
+        @DefaultValue("32") int maxQueue,
+        @DefaultValue("120s") Duration maxWait
+) {
+}
@@ -1,6 +1,7 @@
 package com.riccardocinti.mcp_client_assistant.config;
 
 import com.riccardocinti.mcp_client_assistant.service.McpService;
+import com.riccardocinti.mcp_client_assistant.service.models.ModelPool;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.ai.chat.client.ChatClient;
@@ -27,13 +28,15 @@ public class McpChatConfig {
 
     private final OllamaChatModel ollamaChatModel;
     private final McpService mcpService;
+    private final ModelPool modelPool;
 
     @Bean
     @Primary
     public ChatClient mcpChatClient() {
         log.info("Creating ChatClient with MCP tools support");
 
-        ChatClient chatClient = ChatClient.builder(ollamaChatModel)
+        // Requests go through the model pool, which picks the Ollama endpoint per request
+        ChatClient chatClient = ChatClient.builder(modelPool.chatModel())
                 .defaultSystem(SYSTEM_PROMPT)
                 .build();
 
@@ -0,0 +1,61 @@
+package com.riccardocinti.mcp_client_assistant.config;
+
+import com.riccardocinti.mcp_client_assistant.service.McpConnection;
+import com.riccardocinti.mcp_client_assistant.service.catalog.McpToolsChangedEvent;
+import io.modelcontextprotocol.client.McpAsyncClient;
+import io.modelcontextprotocol.client.McpSyncClient;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.mcp.client.autoconfigure.properties.McpClientCommonProperties;
+import org.springframework.ai.mcp.customizer.McpAsyncClientCustomizer;
+import org.springframework.ai.mcp.customizer.McpSyncClientCustomizer;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Configuration;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/**
+ * Exposes the MCP clients Spring AI created as {@link McpConnection}s.
+ * <p>
+ * {@code spring.ai.mcp.client.type: SYNC} (the default) uses blocking clients;
+ * {@code ASYNC} uses the reactive clients and their async tool callbacks, so waiting
+ * on an MCP server no longer holds a thread inside the client.
+ */
+@Configuration
+@Slf4j
+public class McpConnectionConfig {
+
+    /**
+     * Turns tools/list_changed notifications into {@link McpToolsChangedEvent}s for the tool catalog.
+     */
+    @Bean
+    public McpSyncClientCustomizer toolsChangeNotifier(ApplicationEventPublisher eventPublisher) {
+        return (connectionName, spec) -> spec.toolsChangeConsumer(tools ->
+                eventPublisher.publishEvent(new McpToolsChangedEvent(connectionName, tools.size())));
+    }
+
+    @Bean
+    public McpAsyncClientCustomizer asyncToolsChangeNotifier(ApplicationEventPublisher eventPublisher) {
+        return (connectionName, spec) -> spec.toolsChangeConsumer(tools -> Mono.fromRunnable(() ->
+                eventPublisher.publishEvent(new McpToolsChangedEvent(connectionName, tools.size()))));
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "spring.ai.mcp.client", name = "type", havingValue = "SYNC", matchIfMissing = true)
+    public List<McpConnection> mcpConnections(List<McpSyncClient> mcpSyncClients) {
+        log.info("Using sync MCP clients");
+        return mcpSyncClients.stream().map(McpConnection::of).toList();
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "spring.ai.mcp.client", name = "type", havingValue = "ASYNC")
+    public List<McpConnection> mcpAsyncConnections(List<McpAsyncClient> mcpAsyncClients,
+                                                   McpClientCommonProperties properties) {
+        log.info("Using async MCP clients");
+        return mcpAsyncClients.stream()
+                .map(client -> McpConnection.of(client, properties.getRequestTimeout()))
+                .toList();
+    }
+}
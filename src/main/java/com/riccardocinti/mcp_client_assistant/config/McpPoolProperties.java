@@ -0,0 +1,26 @@
+package com.riccardocinti.mcp_client_assistant.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * Pools of stdio MCP server processes.
+ *
+ * @param instances      processes per stdio connection, keyed by connection name; connections not listed keep one
+ * @param healthInterval how often every instance is pinged
+ * @param restartBackoff minimum time between two restart attempts of the same instance
+ */
+@ConfigurationProperties(prefix = "assistant.mcp-pool")
+public record McpPoolProperties(
+        @DefaultValue Map<String, Integer> instances,
+        @DefaultValue("15s") Duration healthInterval,
+        @DefaultValue("10s") Duration restartBackoff
+) {
+
+    public int instancesFor(String connection) {
+        return Math.max(1, instances.getOrDefault(connection, 1));
+    }
+}
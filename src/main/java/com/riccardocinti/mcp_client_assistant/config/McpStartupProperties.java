@@ -0,0 +1,53 @@
+package com.riccardocinti.mcp_client_assistant.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Startup of the MCP servers. Requires {@code spring.ai.mcp.client.initialized: false},
+ * otherwise Spring AI initializes every client one after the other while the context starts.
+ *
+ * @param required         connections that must be up before readiness reports UP; empty means all of them
+ *                         except the lazy ones, which only start on demand and may not be listed here
+ * @param lazy             connections initialized on the first tool-enabled request instead of at startup
+ * @param lazyStartTimeout how long that first request waits for the lazy connections
+ * @param retryBackoff     wait before a connection whose initialization failed is retried, doubled after
+ *                         every further failure
+ * @param maxRetryBackoff  upper bound of that wait
+ */
+@ConfigurationProperties(prefix = "assistant.mcp-startup")
+public record McpStartupProperties(
+        @DefaultValue List<String> required,
+        @DefaultValue List<String> lazy,
+        @DefaultValue("30s") Duration lazyStartTimeout,
+        @DefaultValue("15s") Duration retryBackoff,
+        @DefaultValue("5m") Duration maxRetryBackoff
+) {
+
+    public McpStartupProperties {
+        List<String> both = required.stream().filter(lazy::contains).toList();
+        if (!both.isEmpty()) {
+            throw new IllegalArgumentException("MCP connections " + both
+                    + " are both required and lazy, readiness would wait for a request that needs tools");
+        }
+    }
+
+    public boolean isRequired(String connection) {
+        return required.isEmpty() ? !isLazy(connection) : required.contains(connection);
+    }
+
+    public boolean isLazy(String connection) {
+        return lazy.contains(connection);
+    }
+
+    /**
+     * Wait before retrying a connection that failed to initialize {@code failures} times in a row.
+     */
+    public Duration retryBackoff(int failures) {
+        Duration backoff = retryBackoff.multipliedBy(1L << Math.min(Math.max(failures - 1, 0), 16));
+        return backoff.compareTo(maxRetryBackoff) > 0 ? maxRetryBackoff : backoff;
+    }
+}
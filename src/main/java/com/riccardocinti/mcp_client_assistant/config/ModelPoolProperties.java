@@ -0,0 +1,38 @@
+package com.riccardocinti.mcp_client_assistant.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Ollama endpoints behind the chat client and the model each kind of request runs on.
+ *
+ * @param endpoints          Ollama servers keyed by name; when empty every request goes to
+ *                           {@code spring.ai.ollama.base-url}
+ * @param routes             model per task ({@code classification}, {@code chat}, {@code tools},
+ *                           {@code summary}); tasks not listed use the default chat model
+ * @param maxAttempts        endpoints a failed request is tried on before the failure is returned
+ * @param ejectAfterFailures consecutive failures after which an endpoint is taken out of rotation
+ * @param ejectionTime       how long an ejected endpoint stays out of rotation
+ */
+@ConfigurationProperties(prefix = "assistant.models")
+public record ModelPoolProperties(
+        @DefaultValue Map<String, Endpoint> endpoints,
+        @DefaultValue Map<String, String> routes,
+        @DefaultValue("2") int maxAttempts,
+        @DefaultValue("3") int ejectAfterFailures,
+        @DefaultValue("30s") Duration ejectionTime
+) {
+
+    /**
+     * @param models models pulled on this endpoint, empty if it serves every model
+     */
+    public record Endpoint(
+            String baseUrl,
+            @DefaultValue List<String> models
+    ) {
+    }
+}
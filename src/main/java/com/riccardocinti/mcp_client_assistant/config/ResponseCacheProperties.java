@@ -0,0 +1,25 @@
+package com.riccardocinti.mcp_client_assistant.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Response cache for the single-shot chat endpoints.
+ *
+ * @param enabled        the cache is opt-in
+ * @param maxEntries     maximum number of cached responses
+ * @param ttl            how long a response stays valid after it was generated
+ * @param readOnlyTools  patterns (searched within the tool name) of tools without side effects;
+ *                       a response that called any other tool is never cached
+ */
+@ConfigurationProperties(prefix = "assistant.response-cache")
+public record ResponseCacheProperties(
+        @DefaultValue("false") boolean enabled,
+        @DefaultValue("1000") int maxEntries,
+        @DefaultValue("10m") Duration ttl,
+        @DefaultValue("(^|_)(get|list|search|read|fetch|find)_") List<String> readOnlyTools
+) {
+}
@@ -0,0 +1,18 @@
+package com.riccardocinti.mcp_client_assistant.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * @param enabled coalesce identical in-flight single-shot chat requests into one generation
+ * @param maxWait longest a request waits for the identical one it joined, covering the leader's
+ *                wait for an LLM slot and its generation
+ */
+@ConfigurationProperties(prefix = "assistant.single-flight")
+public record SingleFlightProperties(
+        @DefaultValue("true") boolean enabled,
+        @DefaultValue("420s") Duration maxWait
+) {
+}
@@ -0,0 +1,18 @@
+package com.riccardocinti.mcp_client_assistant.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Speculative generation while the LLM tool classifier decides.
+ *
+ * @param enabled      start the tool-free answer alongside the classifier on single-shot chats
+ * @param minFreeSlots LLM slots that must stay free after the speculative one is taken; with nobody
+ *                     waiting and fewer free slots than that, the request does not speculate
+ */
+@ConfigurationProperties(prefix = "assistant.routing.speculation")
+public record SpeculationProperties(
+        @DefaultValue("false") boolean enabled,
+        @DefaultValue("0") int minFreeSlots
+) {
+}
@@ -0,0 +1,50 @@
+package com.riccardocinti.mcp_client_assistant.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * Memoization of MCP tool results.
+ *
+ * @param enabled    whether tool callbacks are wrapped at all
+ * @param maxEntries maximum number of cached results across all tools
+ * @param defaults   policy for tools without their own entry, by default nothing is cached
+ * @param tools      per-tool policies, keyed by the MCP tool name with or without the client prefix
+ */
+@ConfigurationProperties(prefix = "assistant.tool-cache")
+public record ToolCacheProperties(
+        @DefaultValue("true") boolean enabled,
+        @DefaultValue("10000") int maxEntries,
+        @DefaultValue Policy defaults,
+        @DefaultValue Map<String, Policy> tools
+) {
+
+    /**
+     * @param cacheable     only tools without side effects should be cacheable
+     * @param ttl           how long a result is reused
+     * @param maxResultSize larger results are returned but not cached
+     */
+    public record Policy(
+            @DefaultValue("false") boolean cacheable,
+            @DefaultValue("5m") Duration ttl,
+            @DefaultValue("256KB") DataSize maxResultSize
+    ) {
+    }
+
+    public Policy policyFor(String toolName) {
+        Policy exact = tools.get(toolName);
+        if (exact != null) {
+            return exact;
+        }
+        // Callback names carry the MCP client prefix, allow configuring the plain tool name
+        return tools.entrySet().stream()
+                .filter(entry -> toolName.endsWith("_" + entry.getKey()))
+                .map(Map.Entry::getValue)
+                .findFirst()
+                .orElse(defaults);
+    }
+}
@@ -0,0 +1,16 @@
+package com.riccardocinti.mcp_client_assistant.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * @param refreshInterval how often the tool catalog is re-listed from the MCP servers,
+ *                        in addition to refreshes triggered by tools/list_changed notifications
+ */
+@ConfigurationProperties(prefix = "assistant.tool-catalog")
+public record ToolCatalogProperties(
+        @DefaultValue("5m") Duration refreshInterval
+) {
+}
@@ -0,0 +1,28 @@
+package com.riccardocinti.mcp_client_assistant.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * Execution of the tool calls requested by the model.
+ *
+ * @param parallel              run the tool calls of one model turn concurrently
+ * @param timeout               per-call limit, a call still running after it is reported to the model as timed out
+ * @param defaultMaxConcurrency concurrent calls allowed per MCP server without its own limit
+ * @param maxConcurrency        per-server limits, keyed by MCP connection name
+ */
+@ConfigurationProperties(prefix = "assistant.tool-execution")
+public record ToolExecutionProperties(
+        @DefaultValue("true") boolean parallel,
+        @DefaultValue("30s") Duration timeout,
+        @DefaultValue("4") int defaultMaxConcurrency,
+        @DefaultValue Map<String, Integer> maxConcurrency
+) {
+
+    public int maxConcurrencyFor(String server) {
+        return maxConcurrency.getOrDefault(server, defaultMaxConcurrency);
+    }
+}
@@ -0,0 +1,58 @@
+package com.riccardocinti.mcp_client_assistant.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * Size limits on MCP tool results before they reach the model.
+ *
+ * @param enabled        whether tool callbacks are wrapped at all
+ * @param defaults       limits for tools without their own entry
+ * @param tools          per-tool limits, keyed by the MCP tool name with or without the client prefix
+ * @param spillDirectory where oversized originals are kept, a fresh temporary directory if empty
+ * @param spillTtl       how long an original stays retrievable
+ * @param maxSpillSize   disk budget for originals, the oldest are deleted first above it
+ * @param sweepInterval  how often expired originals are deleted
+ */
+@ConfigurationProperties(prefix = "assistant.tool-results")
+public record ToolResultLimitProperties(
+        @DefaultValue("true") boolean enabled,
+        @DefaultValue Limits defaults,
+        @DefaultValue Map<String, Limits> tools,
+        @DefaultValue("") String spillDirectory,
+        @DefaultValue("1h") Duration spillTtl,
+        @DefaultValue("512MB") DataSize maxSpillSize,
+        @DefaultValue("5m") Duration sweepInterval
+) {
+
+    /**
+     * @param maxSize         larger results are shortened
+     * @param maxTokens       results estimated above this many tokens are shortened
+     * @param maxArrayItems   JSON arrays in a shortened result keep this many items
+     * @param maxStringLength JSON strings in a shortened result keep this many characters
+     */
+    public record Limits(
+            @DefaultValue("32KB") DataSize maxSize,
+            @DefaultValue("4000") int maxTokens,
+            @DefaultValue("10") int maxArrayItems,
+            @DefaultValue("2000") int maxStringLength
+    ) {
+    }
+
+    public Limits limitsFor(String toolName) {
+        Limits exact = tools.get(toolName);
+        if (exact != null) {
+            return exact;
+        }
+        // Callback names carry the MCP client prefix, allow configuring the plain tool name
+        return tools.entrySet().stream()
+                .filter(entry -> toolName.endsWith("_" + entry.getKey()))
+                .map(Map.Entry::getValue)
+                .findFirst()
+                .orElse(defaults);
+    }
+}
@@ -0,0 +1,24 @@
+package com.riccardocinti.mcp_client_assistant.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Thresholds for the local tool-intent router.
+ *
+ * @param toolsThreshold   lexical score at or above which tools are used without asking the LLM
+ * @param noToolsThreshold lexical score at or below which tools are skipped without asking the LLM
+ * @param llmFallback      ask the LLM classifier when the score falls between the two thresholds
+ * @param shadowLlm        also run the LLM classifier in the background for every message and
+ *                         count how often it agrees with the lexical decision
+ * @param topK             number of best matching tools attached to a tool-enabled request, 0 attaches all
+ */
+@ConfigurationProperties(prefix = "assistant.routing")
+public record ToolRoutingProperties(
+        @DefaultValue("0.45") double toolsThreshold,
+        @DefaultValue("0.15") double noToolsThreshold,
+        @DefaultValue("true") boolean llmFallback,
+        @DefaultValue("false") boolean shadowLlm,
+        @DefaultValue("5") int topK
+) {
+}
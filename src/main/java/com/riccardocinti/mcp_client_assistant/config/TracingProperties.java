@@ -0,0 +1,21 @@
+package com.riccardocinti.mcp_client_assistant.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Per-request traces kept in memory for {@code /api/traces}.
+ *
+ * @param enabled           whether chat requests are traced at all
+ * @param capacity          completed traces kept; the oldest is overwritten once the buffer is full
+ * @param payloadSampleRate share of traces, 0..1, that also keep prompts, responses and tool arguments
+ * @param maxPayloadLength  captured payloads are cut to this many characters
+ */
+@ConfigurationProperties(prefix = "assistant.tracing")
+public record TracingProperties(
+        @DefaultValue("true") boolean enabled,
+        @DefaultValue("1000") int capacity,
+        @DefaultValue("0.01") double payloadSampleRate,
+        @DefaultValue("2000") int maxPayloadLength
+) {
+}
@@ -1,13 +1,37 @@
 package com.riccardocinti.mcp_client_assistant.controller;
 
+import com.riccardocinti.mcp_client_assistant.config.BatchChatProperties;
 import com.riccardocinti.mcp_client_assistant.model.*;
 import com.riccardocinti.mcp_client_assistant.service.McpService;
 import com.riccardocinti.mcp_client_assistant.service.AIService;
+import com.riccardocinti.mcp_client_assistant.service.cache.ToolResultCache;
+import com.riccardocinti.mcp_client_assistant.service.conversation.HistoryCompactor;
+import com.riccardocinti.mcp_client_assistant.service.health.HealthMonitor;
+import com.riccardocinti.mcp_client_assistant.service.models.ModelPool;
+import com.riccardocinti.mcp_client_assistant.service.models.ModelRouter;
+import com.riccardocinti.mcp_client_assistant.service.routing.SpeculativeGeneration;
+import com.riccardocinti.mcp_client_assistant.service.routing.ToolIntentRouter;
+import com.riccardocinti.mcp_client_assistant.service.scheduling.LlmOverloadedException;
+import com.riccardocinti.mcp_client_assistant.service.tools.ToolResultSpill;
+import com.riccardocinti.mcp_client_assistant.service.tracing.RequestTracer;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
 
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.UUID;
 
@@ -19,19 +43,33 @@ public class ChatController {
 
     private final AIService AIService;
     private final McpService mcpService;
+    private final ToolIntentRouter toolIntentRouter;
+    private final HealthMonitor healthMonitor;
+    private final ToolResultCache toolResultCache;
+    private final BatchChatProperties batchProperties;
+    private final HistoryCompactor historyCompactor;
+    private final ModelRouter modelRouter;
+    private final ModelPool modelPool;
+    private final RequestTracer requestTracer;
+    private final SpeculativeGeneration speculativeGeneration;
+    private final ToolResultSpill toolResultSpill;
 
     @PostMapping("/chat")
-    public ResponseEntity<ChatResponse> chat(@RequestBody ChatRequest request) {
+    public ResponseEntity<ChatResponse> chat(@RequestBody ChatRequest request,
+                                             @RequestHeader(value = HttpHeaders.CACHE_CONTROL, required = false)
+                                             String cacheControl) {
         log.info("Received chat request: {}", request.message());
 
         try {
-            String response = AIService.chatSimple("", request.message());
-            return ResponseEntity.ok(new ChatResponse(response, null, true));
+            ChatResult result = AIService.chatSimple("", request.message(), useCache(cacheControl));
+            return ResponseEntity.ok(new ChatResponse(result.response(), null, true, result.cached()));
+        } catch (LlmOverloadedException e) {
+            throw e;
         } catch (Exception e) {
             log.error("Error processing chat request", e);
             return ResponseEntity.internalServerError()
                     .body(new ChatResponse("Sorry, I encountered an error processing your request.",
-                            e.getMessage(), false));
+                            e.getMessage(), false, false));
         }
     }
 
@@ -51,6 +89,8 @@ public class ChatController {
                     true,
                     null
             ));
+        } catch (LlmOverloadedException e) {
+            throw e;
         } catch (Exception e) {
             log.error("Error in conversation chat", e);
             return ResponseEntity.internalServerError()
@@ -64,22 +104,73 @@ public class ChatController {
     }
 
     @PostMapping("/chat/system")
-    public ResponseEntity<ChatResponse> chatWithSystem(@RequestBody SystemChatRequest request) {
+    public ResponseEntity<ChatResponse> chatWithSystem(@RequestBody SystemChatRequest request,
+                                                       @RequestHeader(value = HttpHeaders.CACHE_CONTROL,
+                                                               required = false) String cacheControl) {
         log.info("Chat with system prompt");
 
         try {
-            String response = AIService.chatWithSystemPrompt(
+            ChatResult result = AIService.chatWithSystemPrompt(
                     request.systemPrompt(),
-                    request.message()
+                    request.message(),
+                    useCache(cacheControl)
             );
-            return ResponseEntity.ok(new ChatResponse(response, null, true));
+            return ResponseEntity.ok(new ChatResponse(result.response(), null, true, result.cached()));
+        } catch (LlmOverloadedException e) {
+            throw e;
         } catch (Exception e) {
             log.error("Error in system chat", e);
             return ResponseEntity.internalServerError()
-                    .body(new ChatResponse("Error processing request", e.getMessage(), false));
+                    .body(new ChatResponse("Error processing request", e.getMessage(), false, false));
         }
     }
 
+    @PostMapping(value = "/chat/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<ChatStreamEvent>> chatStream(@RequestBody ChatRequest request) {
+        log.info("Received streaming chat request: {}", request.message());
+        return toServerSentEvents(AIService.chatSimpleStream("", request.message()), null);
+    }
+
+    @PostMapping(value = "/chat/conversation/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<ChatStreamEvent>> chatWithConversationStream(@RequestBody ConversationRequest request) {
+        String conversationId = request.conversationId() != null
+                ? request.conversationId()
+                : UUID.randomUUID().toString();
+
+        log.info("Processing streaming conversation chat for ID: {}", conversationId);
+        return toServerSentEvents(AIService.chatStream(request.message(), conversationId), conversationId);
+    }
+
+    @PostMapping(value = "/chat/system/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<ChatStreamEvent>> chatWithSystemStream(@RequestBody SystemChatRequest request) {
+        log.info("Streaming chat with system prompt");
+        return toServerSentEvents(
+                AIService.chatWithSystemPromptStream(request.systemPrompt(), request.message()), null);
+    }
+
+    /**
+     * Runs many system-prompt chats in one call and streams one NDJSON line per item
+     * as it completes.
+     */
+    @PostMapping(value = "/chat/batch", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<BatchChatItemResult> chatBatch(@RequestBody BatchChatRequest request,
+                                               @RequestHeader(value = HttpHeaders.CACHE_CONTROL, required = false)
+                                               String cacheControl) {
+        if (request.items() == null || request.items().isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Batch has no items");
+        }
+        if (request.items().size() > batchProperties.maxItems()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Batch has " + request.items().size() + " items, at most " + batchProperties.maxItems()
+                            + " are accepted");
+        }
+        int parallelism = request.parallelism() != null ? request.parallelism() : batchProperties.parallelism();
+        parallelism = Math.clamp(parallelism, 1, batchProperties.maxParallelism());
+
+        log.info("Received chat batch of {} items", request.items().size());
+        return AIService.chatBatch(request.items(), parallelism, useCache(cacheControl));
+    }
+
     @DeleteMapping("/chat/conversation/{conversationId}")
     public ResponseEntity<Map<String, Object>> clearConversation(@PathVariable String conversationId) {
         log.info("Clearing conversation: {}", conversationId);
@@ -91,8 +182,14 @@ public class ChatController {
         ));
     }
 
+    @GetMapping("/chat/conversation/{conversationId}/usage")
+    public ResponseEntity<ConversationUsage> getConversationUsage(@PathVariable String conversationId) {
+        return ResponseEntity.ok(historyCompactor.usage(conversationId));
+    }
+
     @GetMapping("/tools")
     public ResponseEntity<ToolsResponse> getAvailableTools() {
+        long version = mcpService.getToolCatalogVersion();
         var tools = mcpService.getToolCallbacks();
         var toolInfos = java.util.Arrays.stream(tools)
                 .map(tool -> {
@@ -101,7 +198,33 @@ public class ChatController {
                 })
                 .toList();
 
-        return ResponseEntity.ok(new ToolsResponse(toolInfos, toolInfos.size()));
+        return ResponseEntity.ok(new ToolsResponse(toolInfos, toolInfos.size(), version));
+    }
+
+    @GetMapping("/tools/cache/stats")
+    public ResponseEntity<List<ToolCacheStats>> getToolCacheStats() {
+        return ResponseEntity.ok(toolResultCache.getStats());
+    }
+
+    @GetMapping("/tool-results/{id}")
+    public ResponseEntity<Resource> getToolResult(@PathVariable String id) {
+        return toolResultSpill.find(id)
+                .map(file -> ResponseEntity.ok()
+                        .contentType(file.getFileName().toString().endsWith(".json")
+                                ? MediaType.APPLICATION_JSON
+                                : new MediaType(MediaType.TEXT_PLAIN, StandardCharsets.UTF_8))
+                        .body((Resource) new FileSystemResource(file)))
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    @GetMapping("/routing/stats")
+    public ResponseEntity<RoutingStats> getRoutingStats() {
+        return ResponseEntity.ok(toolIntentRouter.getStats());
+    }
+
+    @GetMapping("/routing/speculation")
+    public ResponseEntity<SpeculationStats> getSpeculationStats() {
+        return ResponseEntity.ok(speculativeGeneration.getStats());
     }
 
     @GetMapping("/mcp/status")
@@ -112,23 +235,53 @@ public class ChatController {
         return ResponseEntity.ok(new McpStatusResponse(
                 serverStatus,
                 details,
+                mcpService.getPooledInstances(),
                 serverStatus.values().stream().filter(Boolean::booleanValue).count(),
                 serverStatus.size()
         ));
     }
 
+    @GetMapping("/models/status")
+    public ResponseEntity<ModelPoolStatus> getModelStatus() {
+        return ResponseEntity.ok(new ModelPoolStatus(
+                modelRouter.getRoutes(),
+                modelRouter.getDecisions(),
+                modelPool.getStatus()
+        ));
+    }
+
+    /**
+     * Latest completed request traces, newest first.
+     */
+    @GetMapping("/traces")
+    public ResponseEntity<List<RequestTrace>> getTraces(
+            @RequestParam(required = false) String conversationId,
+            @RequestParam(required = false) Long minDurationMs,
+            @RequestParam(defaultValue = "20") int limit) {
+        return ResponseEntity.ok(requestTracer.find(conversationId,
+                minDurationMs != null ? Duration.ofMillis(minDurationMs) : null, limit));
+    }
+
+    @GetMapping("/traces/{traceId}")
+    public ResponseEntity<RequestTrace> getTrace(@PathVariable String traceId) {
+        return ResponseEntity.of(requestTracer.get(traceId));
+    }
+
     @GetMapping("/health")
     public ResponseEntity<HealthResponse> health() {
-        boolean ollamaAvailable = AIService.isLLMAvailable();
-        var mcpStatus = mcpService.getServerStatus();
-        boolean allMcpHealthy = mcpStatus.values().stream().allMatch(Boolean::booleanValue);
+        var snapshot = healthMonitor.getSnapshot();
+        boolean ollamaAvailable = snapshot.ollama().up();
+        var mcpStatus = new LinkedHashMap<String, Boolean>();
+        snapshot.mcpServers().forEach((name, server) -> mcpStatus.put(name, server.up()));
+        boolean allMcpHealthy = snapshot.allMcpServersUp();
 
         var health = new HealthResponse(
                 ollamaAvailable && allMcpHealthy ? "UP" : "DEGRADED",
                 ollamaAvailable,
                 allMcpHealthy,
                 mcpStatus,
-                AIService.getLLMInfo()
+                AIService.getLLMInfo(),
+                snapshot.completedAt()
         );
 
         return ResponseEntity.ok(health);
@@ -146,4 +299,44 @@ public class ChatController {
                 )
         ));
     }
+
+    /**
+     * Admission control rejected the request: answer fast with 429 and tell the
+     * client when a slot is likely to be free instead of letting it time out.
+     */
+    @ExceptionHandler(LlmOverloadedException.class)
+    public ResponseEntity<Map<String, Object>> overloaded(LlmOverloadedException e) {
+        long retryAfterSeconds = Math.max(1, (e.getRetryAfter().toMillis() + 999) / 1000);
+        log.warn("Rejected chat request: {}", e.getMessage());
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds))
+                .body(Map.of(
+                        "success", false,
+                        "error", e.getMessage(),
+                        "retryAfterSeconds", retryAfterSeconds
+                ));
+    }
+
+    /**
+     * {@code Cache-Control: no-cache} or {@code no-store} on the request skips the response cache.
+     */
+    private static boolean useCache(String cacheControl) {
+        if (cacheControl == null) {
+            return true;
+        }
+        String directives = cacheControl.toLowerCase(Locale.ROOT);
+        return !directives.contains("no-cache") && !directives.contains("no-store");
+    }
+
+    private Flux<ServerSentEvent<ChatStreamEvent>> toServerSentEvents(Flux<ChatStreamEvent> events,
+                                                                      String conversationId) {
+        return events
+                .onErrorResume(e -> {
+                    log.error("Error in streaming chat", e);
+                    return Flux.just(ChatStreamEvent.error(e.getMessage()).withConversationId(conversationId));
+                })
+                .map(event -> ServerSentEvent.builder(event)
+                        .event(event.type())
+                        .build());
+    }
 }
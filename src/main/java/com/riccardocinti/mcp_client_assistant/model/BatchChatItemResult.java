@@ -0,0 +1,22 @@
+package com.riccardocinti.mcp_client_assistant.model;
+
+/**
+ * One line of the batch chat NDJSON response. Lines arrive in completion order,
+ * {@code index} points back at the item in the request.
+ */
+public record BatchChatItemResult(
+        int index,
+        String status,
+        String response,
+        String error,
+        boolean cached,
+        long durationMillis
+) {
+
+    public static final String OK = "ok";
+    public static final String ERROR = "error";
+    /**
+     * The LLM queue was full; the item can be resubmitted later.
+     */
+    public static final String REJECTED = "rejected";
+}
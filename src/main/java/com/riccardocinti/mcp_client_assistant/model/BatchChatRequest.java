@@ -0,0 +1,11 @@
+package com.riccardocinti.mcp_client_assistant.model;
+
+import java.util.List;
+
+/**
+ * @param parallelism items generated at the same time, null for the configured default
+ */
+public record BatchChatRequest(
+        List<SystemChatRequest> items,
+        Integer parallelism
+) {}
@@ -3,5 +3,6 @@ package com.riccardocinti.mcp_client_assistant.model;
 public record ChatResponse(
         String response,
         String error,
-        boolean success
+        boolean success,
+        boolean cached
 ) {}
@@ -0,0 +1,10 @@
+package com.riccardocinti.mcp_client_assistant.model;
+
+/**
+ * Response of a single-shot chat and whether it was served from the response cache.
+ */
+public record ChatResult(
+        String response,
+        boolean cached
+) {
+}
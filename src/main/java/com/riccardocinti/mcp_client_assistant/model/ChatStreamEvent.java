@@ -0,0 +1,47 @@
+package com.riccardocinti.mcp_client_assistant.model;
+
+/**
+ * Single event emitted on the streaming chat endpoints.
+ * The {@code type} doubles as the Server-Sent Event name.
+ */
+public record ChatStreamEvent(
+        String type,
+        String content,
+        String conversationId
+) {
+
+    public static final String ROUTING = "routing";
+    public static final String TOKEN = "token";
+    public static final String TOOL_CALL = "tool-call";
+    public static final String TOOL_RESULT = "tool-result";
+    public static final String DONE = "done";
+    public static final String ERROR = "error";
+
+    public static ChatStreamEvent routing(boolean useTools) {
+        return new ChatStreamEvent(ROUTING, useTools ? "tools" : "no-tools", null);
+    }
+
+    public static ChatStreamEvent token(String token) {
+        return new ChatStreamEvent(TOKEN, token, null);
+    }
+
+    public static ChatStreamEvent toolCall(String toolName) {
+        return new ChatStreamEvent(TOOL_CALL, toolName, null);
+    }
+
+    public static ChatStreamEvent toolResult(String toolName) {
+        return new ChatStreamEvent(TOOL_RESULT, toolName, null);
+    }
+
+    public static ChatStreamEvent done(String response) {
+        return new ChatStreamEvent(DONE, response, null);
+    }
+
+    public static ChatStreamEvent error(String message) {
+        return new ChatStreamEvent(ERROR, message, null);
+    }
+
+    public ChatStreamEvent withConversationId(String conversationId) {
+        return new ChatStreamEvent(type, content, conversationId);
+    }
+}
@@ -0,0 +1,24 @@
+package com.riccardocinti.mcp_client_assistant.model;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * @param degraded parts that failed without taking the component down, e.g. one endpoint of several
+ */
+public record ComponentHealth(
+        boolean up,
+        String detail,
+        Instant checkedAt,
+        long latencyMs,
+        List<String> degraded
+) {
+
+    public ComponentHealth(boolean up, String detail, Instant checkedAt, long latencyMs) {
+        this(up, detail, checkedAt, latencyMs, List.of());
+    }
+
+    public static ComponentHealth unknown() {
+        return new ComponentHealth(false, "not checked yet", null, 0);
+    }
+}
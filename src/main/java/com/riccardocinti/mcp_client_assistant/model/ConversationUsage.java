@@ -0,0 +1,20 @@
+package com.riccardocinti.mcp_client_assistant.model;
+
+/**
+ * Estimated token usage of one conversation's history.
+ *
+ * @param storedTokens history tokens currently stored
+ * @param promptTokens history tokens sent with the next turn, at most {@code tokenBudget}
+ * @param summarized   whether older turns have been folded into a summary
+ * @param compacting   whether a summary is being generated right now
+ */
+public record ConversationUsage(
+        String conversationId,
+        int messages,
+        int storedTokens,
+        int promptTokens,
+        int tokenBudget,
+        boolean summarized,
+        boolean compacting
+) {
+}
@@ -1,5 +1,6 @@
 package com.riccardocinti.mcp_client_assistant.model;
 
+import java.time.Instant;
 import java.util.Map;
 
 public record HealthResponse(
@@ -7,5 +8,6 @@ public record HealthResponse(
         boolean ollamaAvailable,
         boolean mcpServersHealthy,
         Map<String, Boolean> mcpServerStatus,
-        OllamaInfo ollamaInfo
+        OllamaInfo ollamaInfo,
+        Instant checkedAt
 ) {}
@@ -0,0 +1,20 @@
+package com.riccardocinti.mcp_client_assistant.model;
+
+import java.time.Instant;
+
+/**
+ * One process of a pooled stdio MCP server.
+ *
+ * @param outstanding tool calls currently in flight on this instance
+ * @param utilization average number of calls in flight since the instance started, 1.0 means always busy
+ */
+public record McpInstanceStatus(
+        int index,
+        boolean healthy,
+        int outstanding,
+        long calls,
+        long failures,
+        int restarts,
+        double utilization,
+        Instant startedAt
+) {}
@@ -2,11 +2,13 @@ package com.riccardocinti.mcp_client_assistant.model;
 
 import com.riccardocinti.mcp_client_assistant.service.McpService;
 
+import java.util.List;
 import java.util.Map;
 
 public record McpStatusResponse(
         Map<String, Boolean> serverStatus,
         Map<String, McpService.ServerInfo> serverDetails,
+        Map<String, List<McpInstanceStatus>> instances,
         long connectedCount,
         long totalCount
 ) {}
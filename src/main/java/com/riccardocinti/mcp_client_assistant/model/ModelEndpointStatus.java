@@ -0,0 +1,29 @@
+package com.riccardocinti.mcp_client_assistant.model;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One Ollama endpoint of the model pool.
+ *
+ * @param models          models it serves, empty if it serves every model
+ * @param available       false while the endpoint is ejected after repeated failures
+ * @param ejectedUntil    when an ejected endpoint goes back into rotation, null if it is not ejected
+ * @param outstanding     requests currently in flight on this endpoint
+ * @param retried         failed requests that were tried again on another endpoint
+ * @param requestsByModel requests sent to this endpoint per model
+ */
+public record ModelEndpointStatus(
+        String name,
+        String baseUrl,
+        List<String> models,
+        boolean available,
+        Instant ejectedUntil,
+        int outstanding,
+        long requests,
+        long failures,
+        long retried,
+        int ejections,
+        Map<String, Long> requestsByModel
+) {}
@@ -0,0 +1,14 @@
+package com.riccardocinti.mcp_client_assistant.model;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @param routes    model per task
+ * @param decisions requests routed per task since startup
+ */
+public record ModelPoolStatus(
+        Map<String, String> routes,
+        Map<String, Long> decisions,
+        List<ModelEndpointStatus> endpoints
+) {}
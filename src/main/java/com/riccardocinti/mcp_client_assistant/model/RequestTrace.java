@@ -0,0 +1,21 @@
+package com.riccardocinti.mcp_client_assistant.model;
+
+import java.time.Instant;
+
+/**
+ * Span tree of one completed chat request.
+ *
+ * @param path            chat path, e.g. "simple" or "conversation"
+ * @param conversationId  null for single-shot requests
+ * @param payloadsSampled whether prompts, responses and tool arguments were captured
+ */
+public record RequestTrace(
+        String traceId,
+        String path,
+        String conversationId,
+        Instant startedAt,
+        double durationMillis,
+        String outcome,
+        boolean payloadsSampled,
+        TraceSpan root
+) {}
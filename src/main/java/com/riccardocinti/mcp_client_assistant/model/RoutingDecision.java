@@ -0,0 +1,24 @@
+package com.riccardocinti.mcp_client_assistant.model;
+
+/**
+ * Outcome of the tool-intent routing for one message.
+ *
+ * @param useTools   whether the request should be sent with tools attached
+ * @param score      normalised lexical match score of the best tool, in [0, 1]
+ * @param confidence confidence of the lexical router in its own verdict, in [0, 1]
+ * @param source     which stage produced the decision
+ * @param topTool    name of the best matching tool, or null when nothing matched
+ */
+public record RoutingDecision(
+        boolean useTools,
+        double score,
+        double confidence,
+        Source source,
+        String topTool
+) {
+
+    public enum Source {
+        LEXICAL,
+        LLM
+    }
+}
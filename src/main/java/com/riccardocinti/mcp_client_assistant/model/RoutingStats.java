@@ -0,0 +1,11 @@
+package com.riccardocinti.mcp_client_assistant.model;
+
+public record RoutingStats(
+        long decisions,
+        long lexicalTools,
+        long lexicalNoTools,
+        long llmFallbacks,
+        long shadowCompared,
+        long shadowAgreed,
+        double shadowAgreementRate
+) {}
@@ -0,0 +1,19 @@
+package com.riccardocinti.mcp_client_assistant.model;
+
+/**
+ * @param started      tool-free generations started alongside the LLM classifier
+ * @param committed    of those, answers used because the classifier ruled tools out
+ * @param discarded    of those, generations cancelled because tools were needed
+ * @param skipped      classifier calls without speculation because no spare LLM slot was free
+ * @param hitRate      committed share of the started generations
+ * @param wastedTokens tokens generated by discarded speculations
+ */
+public record SpeculationStats(
+        boolean enabled,
+        long started,
+        long committed,
+        long discarded,
+        long skipped,
+        double hitRate,
+        long wastedTokens
+) {}
@@ -0,0 +1,10 @@
+package com.riccardocinti.mcp_client_assistant.model;
+
+public record ToolCacheStats(
+        String tool,
+        long hits,
+        long misses,
+        long coalesced,
+        double hitRate,
+        long savedMillis
+) {}
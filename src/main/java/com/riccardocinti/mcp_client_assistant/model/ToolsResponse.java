@@ -2,5 +2,6 @@ package com.riccardocinti.mcp_client_assistant.model;
 
 public record ToolsResponse(
         java.util.List<ToolInfo> tools,
-        int count
-) {}
\ No newline at end of file
+        int count,
+        long catalogVersion
+) {}
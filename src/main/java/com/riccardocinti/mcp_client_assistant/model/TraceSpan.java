@@ -0,0 +1,21 @@
+package com.riccardocinti.mcp_client_assistant.model;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One timed step of a traced request.
+ *
+ * @param startMillis    offset from the start of the trace
+ * @param durationMillis null if the step had not finished when the trace completed
+ * @param attributes     step details such as model, token counts or tool server; payloads only on sampled traces
+ * @param children       steps performed within this one, in start order
+ */
+public record TraceSpan(
+        String name,
+        double startMillis,
+        Double durationMillis,
+        String outcome,
+        Map<String, Object> attributes,
+        List<TraceSpan> children
+) {}
@@ -1,6 +1,13 @@
 package com.riccardocinti.mcp_client_assistant.service;
 
+import com.riccardocinti.mcp_client_assistant.model.BatchChatItemResult;
+import com.riccardocinti.mcp_client_assistant.model.ChatResult;
+import com.riccardocinti.mcp_client_assistant.model.ChatStreamEvent;
 import com.riccardocinti.mcp_client_assistant.model.OllamaInfo;
+import com.riccardocinti.mcp_client_assistant.model.SystemChatRequest;
+import reactor.core.publisher.Flux;
+
+import java.util.List;
 
 public interface AIService {
 
@@ -12,8 +19,20 @@ public interface AIService {
 
     String chatWithSystemPrompt(String systemPrompt, String message);
 
+    ChatResult chatWithSystemPrompt(String systemPrompt, String message, boolean useCache);
+
     String chat(String userMessage, String conversationId);
 
     String chatSimple(String systemPrompt, String message);
 
+    ChatResult chatSimple(String systemPrompt, String message, boolean useCache);
+
+    Flux<ChatStreamEvent> chatWithSystemPromptStream(String systemPrompt, String message);
+
+    Flux<ChatStreamEvent> chatStream(String userMessage, String conversationId);
+
+    Flux<ChatStreamEvent> chatSimpleStream(String systemPrompt, String message);
+
+    Flux<BatchChatItemResult> chatBatch(List<SystemChatRequest> items, int parallelism, boolean useCache);
+
 }
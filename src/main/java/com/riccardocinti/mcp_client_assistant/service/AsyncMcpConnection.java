@@ -0,0 +1,51 @@
+package com.riccardocinti.mcp_client_assistant.service;
+
+import io.modelcontextprotocol.client.McpAsyncClient;
+import io.modelcontextprotocol.spec.McpSchema;
+import org.springframework.ai.mcp.AsyncMcpToolCallback;
+import org.springframework.ai.tool.ToolCallback;
+
+import java.time.Duration;
+
+record AsyncMcpConnection(McpAsyncClient client, Duration requestTimeout) implements McpConnection {
+
+    @Override
+    public String clientName() {
+        return client.getClientInfo().name();
+    }
+
+    @Override
+    public McpSchema.Implementation serverInfo() {
+        return client.getServerInfo();
+    }
+
+    @Override
+    public boolean isInitialized() {
+        return client.isInitialized();
+    }
+
+    @Override
+    public void initialize() {
+        client.initialize().block(requestTimeout);
+    }
+
+    @Override
+    public void ping() {
+        client.ping().block(requestTimeout);
+    }
+
+    @Override
+    public McpSchema.ListToolsResult listTools() {
+        return client.listTools().block(requestTimeout);
+    }
+
+    @Override
+    public ToolCallback toolCallback(McpSchema.Tool tool) {
+        return new AsyncMcpToolCallback(client, tool);
+    }
+
+    @Override
+    public void close() {
+        client.closeGracefully().block(requestTimeout);
+    }
+}
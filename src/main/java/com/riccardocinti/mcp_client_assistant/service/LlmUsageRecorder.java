@@ -0,0 +1,149 @@
+package com.riccardocinti.mcp_client_assistant.service;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.chat.metadata.ChatResponseMetadata;
+import org.springframework.ai.chat.metadata.Usage;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records the timings Ollama reports with every completion, and the end-to-end
+ * latency of the chat requests around them.
+ * <p>
+ * Prompt-eval time is tagged with the size of the conversation history, so the
+ * effect of prompt-cache reuse on long conversations shows up directly: with a
+ * stable prefix only the new turn has to be evaluated and the time stays flat.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class LlmUsageRecorder {
+
+    private static final String PROMPT_EVAL_DURATION = "prompt-eval-duration";
+    private static final String EVAL_DURATION = "eval-duration";
+    private static final String LOAD_DURATION = "load-duration";
+
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * @param path         which chat path produced the response, e.g. "simple" or "conversation"
+     * @param historySize  number of history messages sent before the new user message
+     */
+    public void record(String path, ChatResponse response, int historySize) {
+        if (response == null || response.getMetadata() == null) {
+            return;
+        }
+        ChatResponseMetadata metadata = response.getMetadata();
+        String historyBucket = historyBucket(historySize);
+
+        Duration promptEval = metadata.get(PROMPT_EVAL_DURATION);
+        Duration eval = metadata.get(EVAL_DURATION);
+        Duration load = metadata.get(LOAD_DURATION);
+
+        recordDuration("assistant.llm.prompt.eval", "Time Ollama spent evaluating the prompt",
+                promptEval, path, historyBucket);
+        recordDuration("assistant.llm.generation", "Time Ollama spent generating the response",
+                eval, path, historyBucket);
+        recordDuration("assistant.llm.load", "Time Ollama spent loading the model",
+                load, path, historyBucket);
+
+        Usage usage = metadata.getUsage();
+        Integer promptTokens = usage != null ? usage.getPromptTokens() : null;
+        Integer completionTokens = usage != null ? usage.getCompletionTokens() : null;
+        if (promptTokens != null) {
+            DistributionSummary.builder("assistant.llm.prompt.evaluated.tokens")
+                    .description("Prompt tokens Ollama had to evaluate, cached prefix tokens excluded")
+                    .baseUnit("tokens")
+                    .tag("path", path)
+                    .tag("history", historyBucket)
+                    .register(meterRegistry)
+                    .record(promptTokens);
+        }
+        if (completionTokens != null) {
+            DistributionSummary.builder("assistant.llm.completion.tokens")
+                    .description("Tokens Ollama generated for the response")
+                    .baseUnit("tokens")
+                    .tag("path", path)
+                    .register(meterRegistry)
+                    .record(completionTokens);
+            if (eval != null && !eval.isZero()) {
+                DistributionSummary.builder("assistant.llm.generation.rate")
+                        .description("Generation speed reported by Ollama")
+                        .baseUnit("tokens/s")
+                        .tag("path", path)
+                        .register(meterRegistry)
+                        .record(completionTokens / (eval.toNanos() / 1e9));
+            }
+        }
+
+        log.info("LLM turn [{}] history={} promptTokens={} promptEval={}ms generation={}ms load={}ms",
+                path, historySize, promptTokens, millis(promptEval), millis(eval), millis(load));
+    }
+
+    /**
+     * Latency of the model call for one chat turn, tool calls included.
+     *
+     * @param outcome "success", "error" or, for streams, "cancelled"
+     */
+    public void recordChat(String path, boolean useTools, String outcome, long nanos) {
+        Timer.builder("assistant.chat")
+                .description("Time taken by the model call of a chat turn")
+                .tag("path", path)
+                .tag("tools", String.valueOf(useTools))
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Time until the first token of a streamed response was sent to the client.
+     */
+    public void recordFirstToken(String path, boolean useTools, long nanos) {
+        Timer.builder("assistant.chat.first.token")
+                .description("Time until the first streamed token")
+                .tag("path", path)
+                .tag("tools", String.valueOf(useTools))
+                .register(meterRegistry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    private void recordDuration(String name, String description, Duration duration, String path,
+                                String historyBucket) {
+        if (duration == null) {
+            return;
+        }
+        Timer.builder(name)
+                .description(description)
+                .tag("path", path)
+                .tag("history", historyBucket)
+                .register(meterRegistry)
+                .record(duration);
+    }
+
+    /**
+     * Buckets keep the tag cardinality bounded.
+     */
+    private static String historyBucket(int historySize) {
+        if (historySize == 0) {
+            return "0";
+        }
+        if (historySize <= 10) {
+            return "1-10";
+        }
+        if (historySize <= 40) {
+            return "11-40";
+        }
+        return "41+";
+    }
+
+    private static Long millis(Duration duration) {
+        return duration == null ? null : duration.toMillis();
+    }
+}
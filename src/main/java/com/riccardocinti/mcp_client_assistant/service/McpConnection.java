@@ -0,0 +1,83 @@
+package com.riccardocinti.mcp_client_assistant.service;
+
+import io.modelcontextprotocol.client.McpAsyncClient;
+import io.modelcontextprotocol.client.McpSyncClient;
+import io.modelcontextprotocol.spec.McpSchema;
+import org.springframework.ai.mcp.McpToolUtils;
+import org.springframework.ai.tool.ToolCallback;
+
+import java.time.Duration;
+
+/**
+ * One connection to an MCP server, independent of whether Spring AI created a
+ * sync or an async client for it ({@code spring.ai.mcp.client.type}).
+ * <p>
+ * The methods block; with an async client they block the calling thread only
+ * for the single operation, bounded by the MCP request timeout.
+ */
+public interface McpConnection {
+
+    static McpConnection of(McpSyncClient client) {
+        return new SyncMcpConnection(client);
+    }
+
+    static McpConnection of(McpAsyncClient client, Duration requestTimeout) {
+        return new AsyncMcpConnection(client, requestTimeout);
+    }
+
+    /**
+     * Client name, "&lt;client name&gt; - &lt;connection name&gt;". Tool names are prefixed with it.
+     */
+    String clientName();
+
+    /**
+     * Server implementation info, null until the connection is initialized.
+     */
+    McpSchema.Implementation serverInfo();
+
+    boolean isInitialized();
+
+    /**
+     * Performs the initialization handshake, blocking until the server has answered.
+     */
+    void initialize();
+
+    void ping();
+
+    McpSchema.ListToolsResult listTools();
+
+    /**
+     * Spring AI tool callback that invokes the tool through this connection.
+     */
+    ToolCallback toolCallback(McpSchema.Tool tool);
+
+    /**
+     * Closes the session and stops the server process of a stdio connection.
+     */
+    void close();
+
+    /**
+     * Connection name as configured under {@code spring.ai.mcp.client.*.connections}.
+     */
+    default String connectionName() {
+        String clientName = clientName();
+        int separator = clientName.lastIndexOf(" - ");
+        return separator < 0 ? clientName : clientName.substring(separator + 3);
+    }
+
+    /**
+     * Name reported by the server, falling back to the client name before initialization.
+     */
+    default String serverName() {
+        McpSchema.Implementation serverInfo = serverInfo();
+        return serverInfo != null ? serverInfo.name() : clientName();
+    }
+
+    /**
+     * Prefix Spring AI puts in front of the names of this connection's tools.
+     */
+    default String toolNamePrefix() {
+        String sample = McpToolUtils.prefixedToolName(clientName(), "x");
+        return sample.substring(0, sample.length() - 1);
+    }
+}
@@ -1,17 +1,18 @@
 package com.riccardocinti.mcp_client_assistant.service;
 
-import io.modelcontextprotocol.client.McpSyncClient;
+import com.riccardocinti.mcp_client_assistant.model.McpInstanceStatus;
+import com.riccardocinti.mcp_client_assistant.service.catalog.ToolCatalog;
+import com.riccardocinti.mcp_client_assistant.service.pool.McpServerPool;
 import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.ai.mcp.SyncMcpToolCallbackProvider;
 import org.springframework.ai.tool.ToolCallback;
 import org.springframework.ai.tool.ToolCallbackProvider;
 import org.springframework.stereotype.Service;
 
-import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.stream.Collectors;
 
 @Service
@@ -20,22 +21,26 @@ import java.util.stream.Collectors;
 public class McpService {
 
     /**
-     * List of MCP sync clients auto-configured by Spring AI.
-     * Each client represents a connection to an MCP server.
+     * Connections to the MCP servers, backed by the sync or async clients
+     * auto-configured by Spring AI.
      */
-    private final List<McpSyncClient> mcpSyncClients;
+    private final List<McpConnection> mcpConnections;
 
     /**
-     * Tool callback provider that wraps all MCP tools.
-     * This is auto-configured by Spring AI and provides tools from all MCP servers.
+     * In-memory catalog of the tools, so callers never list tools over MCP themselves.
      */
-    private final SyncMcpToolCallbackProvider syncMcpToolCallbackProvider;
+    private final ToolCatalog toolCatalog;
+
+    /**
+     * Extra processes of the stdio servers configured with more than one instance.
+     */
+    private final McpServerPool mcpServerPool;
 
     @PostConstruct
     public void initialize() {
         log.info("=== MCP Service Initialization ===");
+        // Tools are listed by the catalog as each server finishes starting
         logAvailableServers();
-        logAvailableTools();
     }
 
     /**
@@ -45,16 +50,35 @@ public class McpService {
      * @return Array of tool callbacks
      */
     public ToolCallback[] getToolCallbacks() {
-        return syncMcpToolCallbackProvider.getToolCallbacks();
+        return toolCatalog.getSnapshot().callbacks().toArray(ToolCallback[]::new);
     }
 
     /**
-     * Gets the tool callback provider for use with AI models.
+     * Version of the tool catalog, increases whenever the available tools change.
+     *
+     * @return Catalog version
+     */
+    public long getToolCatalogVersion() {
+        return toolCatalog.getVersion();
+    }
+
+    /**
+     * Finds the MCP connection that provides a tool.
+     *
+     * @param toolName prefixed tool name as exposed to the model
+     * @return connection name as configured under spring.ai.mcp.client, if the tool is an MCP tool
+     */
+    public Optional<String> getConnectionName(String toolName) {
+        return toolCatalog.getSnapshot().serverOf(toolName);
+    }
+
+    /**
+     * Gets the tool callback provider for use with AI models, backed by the current catalog.
      *
      * @return Tool callback provider
      */
     public ToolCallbackProvider getToolCallbackProvider() {
-        return syncMcpToolCallbackProvider;
+        return ToolCallbackProvider.from(getToolCallbacks());
     }
 
     /**
@@ -63,10 +87,10 @@ public class McpService {
      * @return Map of server names to connection status
      */
     public Map<String, Boolean> getServerStatus() {
-        return mcpSyncClients.stream()
+        return mcpConnections.stream()
                 .collect(Collectors.toMap(
-                        client -> client.getServerInfo().name(),
-                        McpSyncClient::isInitialized
+                        McpConnection::serverName,
+                        McpConnection::isInitialized
                 ));
     }
 
@@ -76,7 +100,7 @@ public class McpService {
      * @return Human-readable summary
      */
     public String getToolsSummary() {
-        var tools = syncMcpToolCallbackProvider.getToolCallbacks();
+        var tools = getToolCallbacks();
         var summary = new StringBuilder("MCP Tools Summary:\n");
         summary.append(String.format("Total tools available: %d\n", tools.length));
 
@@ -96,52 +120,39 @@ public class McpService {
      * @return Map of server names to their details
      */
     public Map<String, ServerInfo> getServerDetails() {
-        return mcpSyncClients.stream()
+        var catalog = toolCatalog.getSnapshot();
+        return mcpConnections.stream()
                 .collect(Collectors.toMap(
-                        client -> client.getServerInfo().name(),
-                        client -> new ServerInfo(
-                                client.getServerInfo().name(),
-                                client.getServerInfo().version(),
-                                client.isInitialized(),
-                                countToolsForClient(client)
+                        McpConnection::serverName,
+                        connection -> new ServerInfo(
+                                connection.serverName(),
+                                connection.serverInfo() != null ? connection.serverInfo().version() : null,
+                                connection.isInitialized(),
+                                catalog.toolCount(connection.connectionName())
                         )
                 ));
     }
 
-    private int countToolsForClient(McpSyncClient client) {
-        try {
-            // The client should have methods to list tools
-            // This is a simplified approach - actual implementation depends on the API
-            return client.listTools().tools().size();
-        } catch (Exception e) {
-            log.error("Failed to count tools for client: {}", client.getServerInfo().name(), e);
-            return 0;
-        }
+    /**
+     * Gets the instances of the MCP servers that run as a pool of processes.
+     *
+     * @return Map of connection names to per-instance status, empty when nothing is pooled
+     */
+    public Map<String, List<McpInstanceStatus>> getPooledInstances() {
+        return mcpServerPool.getStatus();
     }
 
     private void logAvailableServers() {
-        if (mcpSyncClients.isEmpty()) {
+        if (mcpConnections.isEmpty()) {
             log.warn("No MCP servers configured or available");
         } else {
-            log.info("MCP servers available: {}",
-                    mcpSyncClients.stream()
-                            .map(client -> client.getServerInfo().name())
+            log.info("MCP servers configured: {}",
+                    mcpConnections.stream()
+                            .map(McpConnection::connectionName)
                             .collect(Collectors.joining(", ")));
         }
     }
 
-    private void logAvailableTools() {
-        var tools = syncMcpToolCallbackProvider.getToolCallbacks();
-        log.info("Total MCP tools available: {}", tools.length);
-
-        if (log.isDebugEnabled()) {
-            Arrays.stream(tools).forEach(tool -> {
-                var definition = tool.getToolDefinition();
-                log.debug("  - {}: {}", definition.name(), definition.description());
-            });
-        }
-    }
-
     /**
      * Record for server information.
      */
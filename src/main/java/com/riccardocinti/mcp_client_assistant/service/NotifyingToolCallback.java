@@ -0,0 +1,51 @@
+package com.riccardocinti.mcp_client_assistant.service;
+
+import com.riccardocinti.mcp_client_assistant.model.ChatStreamEvent;
+import org.springframework.ai.chat.model.ToolContext;
+import org.springframework.ai.tool.ToolCallback;
+import org.springframework.ai.tool.definition.ToolDefinition;
+import org.springframework.ai.tool.metadata.ToolMetadata;
+
+import java.util.function.Consumer;
+
+/**
+ * Tool callback wrapper that reports the start and end of each tool invocation,
+ * so streaming clients can see tool-call phases while the model is working.
+ */
+class NotifyingToolCallback implements ToolCallback {
+
+    private final ToolCallback delegate;
+
+    private final Consumer<ChatStreamEvent> listener;
+
+    NotifyingToolCallback(ToolCallback delegate, Consumer<ChatStreamEvent> listener) {
+        this.delegate = delegate;
+        this.listener = listener;
+    }
+
+    @Override
+    public ToolDefinition getToolDefinition() {
+        return delegate.getToolDefinition();
+    }
+
+    @Override
+    public ToolMetadata getToolMetadata() {
+        return delegate.getToolMetadata();
+    }
+
+    @Override
+    public String call(String toolInput) {
+        return call(toolInput, null);
+    }
+
+    @Override
+    public String call(String toolInput, ToolContext toolContext) {
+        String toolName = delegate.getToolDefinition().name();
+        listener.accept(ChatStreamEvent.toolCall(toolName));
+        try {
+            return delegate.call(toolInput, toolContext);
+        } finally {
+            listener.accept(ChatStreamEvent.toolResult(toolName));
+        }
+    }
+}
@@ -1,88 +1,331 @@
 package com.riccardocinti.mcp_client_assistant.service;
 
+import com.riccardocinti.mcp_client_assistant.model.BatchChatItemResult;
+import com.riccardocinti.mcp_client_assistant.model.ChatResult;
+import com.riccardocinti.mcp_client_assistant.model.ChatStreamEvent;
 import com.riccardocinti.mcp_client_assistant.model.OllamaInfo;
+import com.riccardocinti.mcp_client_assistant.model.SystemChatRequest;
+import com.riccardocinti.mcp_client_assistant.service.cache.ChatSingleFlight;
+import com.riccardocinti.mcp_client_assistant.service.cache.PromptKey;
+import com.riccardocinti.mcp_client_assistant.service.cache.PromptKeys;
+import com.riccardocinti.mcp_client_assistant.service.cache.ResponseCache;
+import com.riccardocinti.mcp_client_assistant.service.health.HealthMonitor;
+import com.riccardocinti.mcp_client_assistant.service.models.ModelRouter;
+import com.riccardocinti.mcp_client_assistant.service.models.ModelTask;
+import com.riccardocinti.mcp_client_assistant.service.routing.SpeculativeGeneration;
+import com.riccardocinti.mcp_client_assistant.service.routing.ToolIntentRouter;
+import com.riccardocinti.mcp_client_assistant.service.routing.ToolSelector;
+import com.riccardocinti.mcp_client_assistant.service.scheduling.FairnessKeys;
+import com.riccardocinti.mcp_client_assistant.service.scheduling.LlmOverloadedException;
+import com.riccardocinti.mcp_client_assistant.service.scheduling.LlmPriority;
+import com.riccardocinti.mcp_client_assistant.service.scheduling.LlmScheduler;
+import com.riccardocinti.mcp_client_assistant.service.startup.McpServerStartup;
+import com.riccardocinti.mcp_client_assistant.service.tracing.RequestTracer;
+import com.riccardocinti.mcp_client_assistant.service.tracing.Span;
 import io.micrometer.common.util.StringUtils;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.chat.memory.ChatMemory;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.ai.chat.model.ChatResponse;
 import org.springframework.ai.ollama.OllamaChatModel;
 import org.springframework.ai.ollama.api.OllamaOptions;
+import org.springframework.ai.tool.ToolCallback;
 import org.springframework.stereotype.Service;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+import reactor.core.scheduler.Schedulers;
 
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class OllamaService implements AIService {
 
-    private static final String TOOL_DETECTION_PROMPT = """
-            Analyse the user message and determine if it is needed to call one of the available tools or not.
-            Always return JUST true or false in lowercase.
-            """;
-
     private final ChatClient mcpChatClient;
 
     private final OllamaOptions mcpRuntimeOptions;
 
     private final OllamaChatModel ollamaChatModel;
 
-    private final Map<String, List<String>> conversationHistoryStrings = new ConcurrentHashMap<>();
+    private final ToolIntentRouter toolIntentRouter;
+
+    private final HealthMonitor healthMonitor;
+
+    private final ChatMemory chatMemory;
+
+    private final LlmUsageRecorder llmUsageRecorder;
+
+    private final ResponseCache responseCache;
+
+    private final PromptKeys promptKeys;
+
+    private final ChatSingleFlight singleFlight;
+
+    private final ToolSelector toolSelector;
+
+    private final LlmScheduler llmScheduler;
+
+    private final McpServerStartup mcpServerStartup;
+
+    private final ModelRouter modelRouter;
+
+    private final RequestTracer tracer;
+
+    private final SpeculativeGeneration speculativeGeneration;
+
+    private final RoutedStreamScheduler routedStreamScheduler;
 
     public String chatSimple(String systemPrompt, String userMessage) {
+        return chatSimple(systemPrompt, userMessage, true).response();
+    }
+
+    public ChatResult chatSimple(String systemPrompt, String userMessage, boolean useCache) {
+        return chatSimple(systemPrompt, userMessage, useCache, LlmPriority.INTERACTIVE, FairnessKeys.current(null),
+                null);
+    }
+
+    /**
+     * @param needsTools routing shared by the caller, or null to route here and speculate while the classifier runs
+     */
+    private ChatResult chatSimple(String systemPrompt, String userMessage, boolean useCache, LlmPriority priority,
+                                  String fairnessKey, Predicate<String> needsTools) {
         log.info("Smart chat processing: {}", userMessage);
 
-        boolean useTools = shouldUseTools(userMessage);
-        log.debug("Tools needed: {}", useTools);
+        Span trace = tracer.begin("simple", null);
+        try (var scope = tracer.activate(trace)) {
+            return chatSimple(systemPrompt, userMessage, useCache, priority, fairnessKey, needsTools, trace);
+        } catch (RuntimeException e) {
+            trace.error(e);
+            throw e;
+        } finally {
+            trace.end();
+        }
+    }
 
-        if (useTools) {
-            return chatWithTools(systemPrompt, userMessage);
-        } else {
-            return chatWithoutTools(systemPrompt, userMessage);
+    private ChatResult chatSimple(String systemPrompt, String userMessage, boolean useCache, LlmPriority priority,
+                                  String fairnessKey, Predicate<String> needsTools, Span trace) {
+        PromptKey key = promptKeys.of(systemPrompt, userMessage);
+        boolean cacheable = responseCache.isEnabled() && useCache;
+        if (responseCache.isEnabled() && !useCache) {
+            responseCache.recordBypass();
         }
+        if (cacheable) {
+            // Looked up before routing, a hit skips the classifier as well as the generation
+            Optional<String> cached = responseCache.get(key);
+            if (cached.isPresent()) {
+                log.info("Serving response from cache");
+                trace.tag("cached", true);
+                return new ChatResult(cached.get(), true);
+            }
+        }
+
+        return singleFlight.call(key, () -> {
+            long start = System.nanoTime();
+            Set<String> toolsCalled = ConcurrentHashMap.newKeySet();
+            String response;
+            Consumer<ChatStreamEvent> toolListener = event -> {
+                if (ChatStreamEvent.TOOL_CALL.equals(event.type())) {
+                    toolsCalled.add(event.content());
+                }
+            };
+            Optional<SpeculativeGeneration.Speculation> speculation = Optional.empty();
+            AtomicReference<LlmScheduler.Permit> slot = new AtomicReference<>();
+            try {
+                boolean useTools;
+                if (needsTools != null) {
+                    // A shared decision may be another item's to make, so it is awaited without holding a slot
+                    useTools = needsTools.test(userMessage);
+                } else {
+                    // The slot is taken early only if routing falls back to the LLM classifier, which runs under it
+                    Routed routed = routeSpeculatively(systemPrompt, userMessage,
+                            () -> slot.set(acquire(priority, fairnessKey, trace)), trace);
+                    speculation = routed.speculation();
+                    useTools = routed.useTools();
+                }
+                if (speculation.isPresent()) {
+                    response = null;
+                } else {
+                    holdSlotForGeneration(slot, useTools, priority, fairnessKey, trace);
+                    response = respond(systemPrompt, List.of(), userMessage, useTools, "simple", trace,
+                            toolListener);
+                }
+            } finally {
+                release(slot);
+            }
+            // The speculation runs on its own slot, so the request's slot is already back for others
+            if (speculation.isPresent()) {
+                response = awaitSpeculation(speculation.get(), systemPrompt, userMessage, priority, fairnessKey,
+                        trace, toolListener);
+            }
+
+            if (cacheable) {
+                responseCache.put(key, response, toolsCalled, System.nanoTime() - start);
+            }
+            return new ChatResult(response, false);
+        });
+    }
+
+    public Flux<ChatStreamEvent> chatSimpleStream(String systemPrompt, String userMessage) {
+        log.info("Smart streaming chat processing: {}", userMessage);
+
+        // Rejected before the SSE response is committed, so the client gets a plain 429
+        llmScheduler.checkAdmission(LlmPriority.INTERACTIVE);
+        String fairnessKey = FairnessKeys.current(null);
+        Span trace = tracer.begin("simple", null);
+        Span queue = trace.child("queue");
+
+        return traced(trace, queue, singleFlight.stream(promptKeys.of(systemPrompt, userMessage),
+                () -> routedStreamScheduler.schedule(fairnessKey, trace, queue, () -> {
+                    Routed routed;
+                    try (var scope = tracer.activate(trace)) {
+                        routed = routeSpeculatively(systemPrompt, userMessage, () -> {
+                        }, trace);
+                    }
+                    // A kept speculation never uses tools and streams on its own slot
+                    return routed.speculation()
+                            .map(speculation -> new RoutedStreamScheduler.RoutedStream(false,
+                                    speculation::commit, true))
+                            .orElseGet(() -> new RoutedStreamScheduler.RoutedStream(routed.useTools(),
+                                    () -> streamResponse(systemPrompt, List.of(), userMessage, routed.useTools(),
+                                            "simple", trace, response -> {
+                                            })));
+                })));
+    }
+
+    /**
+     * Runs the items as single-shot chats at batch priority, at most {@code parallelism}
+     * at a time, and emits each result as soon as it is ready. Identical items share one
+     * generation and every distinct message is routed only once per batch. A failed item
+     * is reported in its result and does not stop the batch.
+     */
+    public Flux<BatchChatItemResult> chatBatch(List<SystemChatRequest> items, int parallelism, boolean useCache) {
+        log.info("Processing chat batch of {} items with parallelism {}", items.size(), parallelism);
+
+        String fairnessKey = FairnessKeys.current(null);
+        Predicate<String> needsTools = sharedRouting(fairnessKey);
+        long start = System.nanoTime();
+
+        return Flux.range(0, items.size())
+                .flatMap(index -> Mono.fromCallable(() -> {
+                            SystemChatRequest item = items.get(index);
+                            long itemStart = System.nanoTime();
+                            try {
+                                ChatResult result = chatSimple(item.systemPrompt(), item.message(), useCache,
+                                        LlmPriority.BATCH, fairnessKey, needsTools);
+                                return new BatchChatItemResult(index, BatchChatItemResult.OK, result.response(),
+                                        null, result.cached(), elapsedMillis(itemStart));
+                            } catch (LlmOverloadedException e) {
+                                return new BatchChatItemResult(index, BatchChatItemResult.REJECTED, null,
+                                        e.getMessage(), false, elapsedMillis(itemStart));
+                            } catch (Exception e) {
+                                log.warn("Batch item {} failed", index, e);
+                                return new BatchChatItemResult(index, BatchChatItemResult.ERROR, null,
+                                        e.getMessage(), false, elapsedMillis(itemStart));
+                            }
+                        })
+                        .subscribeOn(Schedulers.boundedElastic()), parallelism)
+                .doOnComplete(() -> log.info("Chat batch of {} items finished in {}ms",
+                        items.size(), elapsedMillis(start)));
     }
 
     public String chat(String userMessage, String conversationId) {
         log.info("Processing chat message for conversation: {}", conversationId);
 
-        List<String> history = conversationHistoryStrings.computeIfAbsent(
-                conversationId,
-                k -> new ArrayList<>()
-        );
-
-        try {
-            StringBuilder fullContext = new StringBuilder();
-            for (String msg : history) {
-                fullContext.append(msg).append("\n");
-            }
-            fullContext.append("User: ").append(userMessage);
+        Span trace = tracer.begin("conversation", conversationId);
+        try (var scope = tracer.activate(trace)) {
+            return chat(userMessage, conversationId, trace);
+        } catch (RuntimeException e) {
+            trace.error(e);
+            throw e;
+        } finally {
+            trace.end();
+        }
+    }
 
-            String response = chatSimple("", fullContext.toString());
+    private String chat(String userMessage, String conversationId, Span trace) {
+        List<Message> history = loadHistory(conversationId, trace);
+        String fairnessKey = FairnessKeys.current(conversationId);
 
-            history.add("User: " + userMessage);
-            history.add("Assistant: " + response);
+        AtomicReference<LlmScheduler.Permit> slot = new AtomicReference<>();
+        try {
+            // Route on the new message only, earlier turns must not drag tools in. The slot
+            // is taken early only if routing falls back to the LLM classifier
+            boolean useTools = toolIntentRouter.route(userMessage,
+                    () -> slot.set(acquire(LlmPriority.INTERACTIVE, fairnessKey, trace))).useTools();
+            holdSlotForGeneration(slot, useTools, LlmPriority.INTERACTIVE, fairnessKey, trace);
+            String response = respond("", history, userMessage, useTools, "conversation", trace, event -> {
+            });
 
-            if (history.size() > 40) { // 40 entries = 20 exchanges
-                history.subList(0, history.size() - 40).clear();
-            }
+            appendToHistory(conversationId, userMessage, response, trace);
 
             log.debug("Ollama response: {}", response);
             return response;
 
+        } catch (LlmOverloadedException e) {
+            throw e;
         } catch (Exception e) {
             log.error("Error calling Ollama", e);
             throw new RuntimeException("Failed to get response from Ollama", e);
+        } finally {
+            release(slot);
         }
     }
 
+    public Flux<ChatStreamEvent> chatStream(String userMessage, String conversationId) {
+        log.info("Processing streaming chat message for conversation: {}", conversationId);
+
+        llmScheduler.checkAdmission(LlmPriority.INTERACTIVE);
+        String fairnessKey = FairnessKeys.current(conversationId);
+        Span trace = tracer.begin("conversation", conversationId);
+        Span queue = trace.child("queue");
+
+        return traced(trace, queue, routedStreamScheduler.schedule(fairnessKey, trace, queue, () -> {
+                    List<Message> history;
+                    boolean useTools;
+                    try (var scope = tracer.activate(trace)) {
+                        history = loadHistory(conversationId, trace);
+                        useTools = toolIntentRouter.route(userMessage).useTools();
+                    }
+                    return new RoutedStreamScheduler.RoutedStream(useTools, () -> streamResponse("", history,
+                            userMessage, useTools, "conversation", trace,
+                            response -> appendToHistory(conversationId, userMessage, response, trace)));
+                })
+                .map(event -> event.withConversationId(conversationId)));
+    }
+
+    public Flux<ChatStreamEvent> chatWithSystemPromptStream(String systemPrompt, String userMessage) {
+        log.info("Processing streaming chat with system prompt");
+        return chatSimpleStream(systemPrompt, userMessage);
+    }
+
     public String chatWithSystemPrompt(String systemPrompt, String userMessage) {
+        return chatWithSystemPrompt(systemPrompt, userMessage, true).response();
+    }
+
+    public ChatResult chatWithSystemPrompt(String systemPrompt, String userMessage, boolean useCache) {
         log.info("Processing chat with system prompt");
 
         try {
-            return chatSimple(systemPrompt, userMessage);
+            return chatSimple(systemPrompt, userMessage, useCache);
+        } catch (LlmOverloadedException e) {
+            throw e;
         } catch (Exception e) {
             log.error("Error in chat with system prompt", e);
             throw new RuntimeException("Failed to get response from Ollama", e);
@@ -90,20 +333,12 @@ public class OllamaService implements AIService {
     }
 
     public boolean isLLMAvailable() {
-        try {
-            mcpChatClient.prompt()
-                    .user("ping")
-                    .call()
-                    .content();
-            return true;
-        } catch (Exception e) {
-            log.warn("Ollama is not available", e);
-            return false;
-        }
+        // Answered from the background probe, never from a live generation
+        return healthMonitor.getSnapshot().ollama().up();
     }
 
     public void clearConversation(String conversationId) {
-        conversationHistoryStrings.remove(conversationId);
+        chatMemory.clear(conversationId);
         log.info("Cleared conversation history for: {}", conversationId);
     }
 
@@ -116,48 +351,316 @@ public class OllamaService implements AIService {
         );
     }
 
-    private String chatWithTools(String systemPrompt, String userMessage) {
-        log.info("Processing chat WITH tools");
+    /**
+     * Routing decisions memoised for the lifetime of one batch. Concurrent items with
+     * the same message wait for the first one's decision instead of routing again.
+     * Callers hold no slot while they wait: the first item takes its own batch slot,
+     * and only if the decision falls back to the LLM classifier. A failed decision is
+     * not kept, so a later item with the same message routes again.
+     */
+    private Predicate<String> sharedRouting(String fairnessKey) {
+        Map<String, CompletableFuture<Boolean>> decisions = new ConcurrentHashMap<>();
+        return message -> {
+            CompletableFuture<Boolean> decision = new CompletableFuture<>();
+            CompletableFuture<Boolean> existing = decisions.putIfAbsent(message, decision);
+            if (existing != null) {
+                try {
+                    return existing.join();
+                } catch (CompletionException e) {
+                    throw e.getCause() instanceof RuntimeException cause ? cause : e;
+                }
+            }
+            AtomicReference<LlmScheduler.Permit> classifierPermit = new AtomicReference<>();
+            try {
+                decision.complete(toolIntentRouter.route(message,
+                        () -> classifierPermit.set(llmScheduler.acquire(LlmPriority.BATCH, fairnessKey))).useTools());
+            } catch (RuntimeException e) {
+                decisions.remove(message, decision);
+                decision.completeExceptionally(e);
+                throw e;
+            } finally {
+                Optional.ofNullable(classifierPermit.get()).ifPresent(LlmScheduler.Permit::close);
+            }
+            return decision.join();
+        };
+    }
 
+    /**
+     * Routes a single-shot message. If the decision waits for the LLM classifier, the
+     * tool-free answer is generated meanwhile; it is returned if tools are not needed
+     * and discarded otherwise.
+     *
+     * @param beforeClassifier run first if the decision has to wait for the LLM classifier
+     */
+    private Routed routeSpeculatively(String systemPrompt, String userMessage, Runnable beforeClassifier,
+                                      Span trace) {
+        AtomicReference<SpeculativeGeneration.Speculation> started = new AtomicReference<>();
+        Runnable speculate = () -> {
+            beforeClassifier.run();
+            if (speculativeGeneration.isEnabled()) {
+                speculativeGeneration.start(trace, span -> streamResponse(systemPrompt, List.of(), userMessage,
+                                false, "simple", span, response -> {
+                                }))
+                        .ifPresent(started::set);
+            }
+        };
+        boolean useTools;
         try {
+            useTools = toolIntentRouter.route(userMessage, speculate).useTools();
+        } catch (RuntimeException e) {
+            Optional.ofNullable(started.get()).ifPresent(SpeculativeGeneration.Speculation::discard);
+            throw e;
+        }
+        Optional<SpeculativeGeneration.Speculation> speculation = Optional.ofNullable(started.get());
+        if (useTools) {
+            speculation.ifPresent(SpeculativeGeneration.Speculation::discard);
+            return new Routed(true, Optional.empty());
+        }
+        return new Routed(false, speculation);
+    }
+
+    /**
+     * @param speculation the tool-free answer already being generated, if any
+     */
+    private record Routed(boolean useTools, Optional<SpeculativeGeneration.Speculation> speculation) {
+    }
+
+    private static long elapsedMillis(long startNanos) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+    }
 
-            var prompt = mcpChatClient.prompt().user(userMessage);
-            if (StringUtils.isNotBlank(systemPrompt)) {
-                prompt = prompt.system(systemPrompt);
+    /**
+     * The speculative answer, or a fresh tool-free answer on a new slot if the speculation failed.
+     */
+    private String awaitSpeculation(SpeculativeGeneration.Speculation speculation, String systemPrompt,
+                                    String userMessage, LlmPriority priority, String fairnessKey, Span trace,
+                                    Consumer<ChatStreamEvent> toolListener) {
+        try {
+            String response = speculation.await();
+            if (response != null) {
+                return response;
             }
-            return prompt.options(mcpRuntimeOptions).call().content();
+            log.warn("Speculative answer ended without a response, generating it again");
+        } catch (RuntimeException e) {
+            log.warn("Speculative answer failed, generating it again: {}", e.getMessage());
+        }
+        try (var permit = acquire(priority, fairnessKey, trace)) {
+            return respond(systemPrompt, List.of(), userMessage, false, "simple", trace, toolListener);
+        }
+    }
 
-        } catch (Exception e) {
-            log.error("Error in chat with tools", e);
-            throw new RuntimeException("Failed to get response from Ollama", e);
+    /**
+     * Waits for an LLM slot, recorded as the trace's queue time.
+     */
+    private LlmScheduler.Permit acquire(LlmPriority priority, String fairnessKey, Span trace) {
+        Span queue = trace.child("queue").tag("priority", priority.name().toLowerCase());
+        try {
+            return llmScheduler.acquire(priority, fairnessKey);
+        } catch (RuntimeException e) {
+            queue.error(e);
+            throw e;
+        } finally {
+            queue.end();
         }
     }
 
-    private String chatWithoutTools(String systemPrompt, String userMessage) {
-        log.info("Processing chat WITHOUT tools");
+    /**
+     * Makes sure the request holds its LLM slot before generating. Lazy MCP servers are
+     * started first when tools are needed, so their startup never idles LLM capacity; a
+     * slot already taken for the classifier is given back while they start.
+     */
+    private void holdSlotForGeneration(AtomicReference<LlmScheduler.Permit> slot, boolean useTools,
+                                       LlmPriority priority, String fairnessKey, Span trace) {
+        if (useTools && mcpServerStartup.lazyServersPending()) {
+            release(slot);
+            mcpServerStartup.startLazyServers();
+        }
+        if (slot.get() == null) {
+            slot.set(acquire(priority, fairnessKey, trace));
+        }
+    }
 
-        try {
+    private static void release(AtomicReference<LlmScheduler.Permit> slot) {
+        Optional.ofNullable(slot.getAndSet(null)).ifPresent(LlmScheduler.Permit::close);
+    }
 
-            var prompt = mcpChatClient.prompt().user(userMessage);
-            if (StringUtils.isNotBlank(systemPrompt)) {
-                prompt = prompt.system(systemPrompt);
-            }
-            return prompt.call().content();
+    /**
+     * Ends the trace of a streamed request once the stream terminates, however it terminates.
+     * The queue span is ended too, in case the stream never got a slot.
+     */
+    private static <T> Flux<T> traced(Span trace, Span queue, Flux<T> stream) {
+        return stream
+                .doOnError(trace::error)
+                .doFinally(signal -> {
+                    String outcome = switch (signal) {
+                        case CANCEL -> "cancelled";
+                        case ON_ERROR -> "error";
+                        default -> "ok";
+                    };
+                    queue.end(outcome);
+                    trace.end(outcome);
+                });
+    }
+
+    private List<Message> loadHistory(String conversationId, Span trace) {
+        try (Span span = trace.child("history.load")) {
+            List<Message> history = chatMemory.get(conversationId);
+            span.tag("messages", history.size());
+            return history;
+        }
+    }
+
+    private String respond(String systemPrompt, List<Message> history, String userMessage, boolean useTools,
+                           String path, Span trace, Consumer<ChatStreamEvent> toolListener) {
+        log.info("Processing chat {} tools", useTools ? "WITH" : "WITHOUT");
+
+        long start = System.nanoTime();
+        Span span = llmSpan(trace, history, userMessage);
+        try {
+            OllamaOptions options = useTools
+                    ? observedToolOptions(userMessage, toolListener, span)
+                    : modelRouter.options(ModelTask.CHAT);
+            span.tag("model", options.getModel());
+            ChatResponse response = prompt(systemPrompt, history, userMessage).options(options).call().chatResponse();
+            llmUsageRecorder.record(path, response, history.size());
+            llmUsageRecorder.recordChat(path, useTools, "success", System.nanoTime() - start);
+            String text = textOf(response);
+            recordResponse(span, response, text);
+            return text;
 
         } catch (Exception e) {
-            log.error("Error in chat without tools", e);
+            span.error(e);
+            llmUsageRecorder.recordChat(path, useTools, "error", System.nanoTime() - start);
+            log.error("Error in chat {} tools", useTools ? "with" : "without", e);
             throw new RuntimeException("Failed to get response from Ollama", e);
+        } finally {
+            span.end();
         }
     }
 
-    private boolean shouldUseTools(String userMessage) {
-        String lowerMessage = userMessage.toLowerCase();
+    private static Span llmSpan(Span trace, List<Message> history, String userMessage) {
+        return trace.child("llm")
+                .tag("historyMessages", history.size())
+                .payload("prompt", userMessage);
+    }
 
-        String response = mcpChatClient.prompt(TOOL_DETECTION_PROMPT)
-                .user(lowerMessage)
-                .call().content();
+    private static void recordResponse(Span span, ChatResponse response, String text) {
+        if (response != null && response.getMetadata() != null && response.getMetadata().getUsage() != null) {
+            span.tag("promptTokens", response.getMetadata().getUsage().getPromptTokens())
+                    .tag("completionTokens", response.getMetadata().getUsage().getCompletionTokens());
+        }
+        span.payload("response", text);
+    }
 
-        return Boolean.parseBoolean(response);
+    /**
+     * Builds the request as real messages: system prompt, then the stored history,
+     * then the new user message. The system prompt and earlier turns never change
+     * between turns, so Ollama can reuse its prompt cache for the whole prefix and
+     * only evaluate the new message.
+     */
+    private ChatClient.ChatClientRequestSpec prompt(String systemPrompt, List<Message> history, String userMessage) {
+        var prompt = mcpChatClient.prompt()
+                .messages(history)
+                .user(userMessage);
+        if (StringUtils.isNotBlank(systemPrompt)) {
+            prompt = prompt.system(systemPrompt);
+        }
+        return prompt;
+    }
+
+    private static String textOf(ChatResponse response) {
+        if (response == null || response.getResult() == null || response.getResult().getOutput() == null) {
+            return null;
+        }
+        return response.getResult().getOutput().getText();
+    }
+
+    /**
+     * Streams the model response token by token. Tool invocations performed by the
+     * model are reported as events in between tokens, and {@code onComplete} receives
+     * the full response once the stream finishes normally. Cancelling the returned
+     * flux (e.g. on client disconnect) cancels the upstream Ollama generation.
+     */
+    private Flux<ChatStreamEvent> streamResponse(String systemPrompt, List<Message> history, String userMessage,
+                                                 boolean useTools, String path, Span trace,
+                                                 Consumer<String> onComplete) {
+        log.info("Processing streaming chat {} tools", useTools ? "WITH" : "WITHOUT");
+
+        return Flux.create(sink -> {
+            long start = System.nanoTime();
+            Span span = llmSpan(trace, history, userMessage);
+            OllamaOptions options = useTools
+                    ? observedToolOptions(userMessage, sink::next, span)
+                    : modelRouter.options(ModelTask.CHAT);
+            span.tag("model", options.getModel());
+            var prompt = prompt(systemPrompt, history, userMessage).options(options);
+
+            StringBuilder response = new StringBuilder();
+            // Ollama reports its timings on the final chunk
+            ChatResponse[] lastChunk = new ChatResponse[1];
+            Disposable generation = prompt.stream().chatResponse().subscribe(
+                    chunk -> {
+                        lastChunk[0] = chunk;
+                        String token = textOf(chunk);
+                        if (token != null && !token.isEmpty()) {
+                            if (response.isEmpty()) {
+                                llmUsageRecorder.recordFirstToken(path, useTools, System.nanoTime() - start);
+                                span.tag("firstTokenMillis", elapsedMillis(start));
+                            }
+                            response.append(token);
+                            sink.next(ChatStreamEvent.token(token));
+                        }
+                    },
+                    error -> {
+                        span.error(error);
+                        span.end();
+                        llmUsageRecorder.recordChat(path, useTools, "error", System.nanoTime() - start);
+                        log.error("Error in streaming chat", error);
+                        sink.error(error);
+                    },
+                    () -> {
+                        llmUsageRecorder.record(path, lastChunk[0], history.size());
+                        llmUsageRecorder.recordChat(path, useTools, "success", System.nanoTime() - start);
+                        String content = response.toString();
+                        recordResponse(span, lastChunk[0], content);
+                        span.end();
+                        onComplete.accept(content);
+                        sink.next(ChatStreamEvent.done(content));
+                        sink.complete();
+                    });
+
+            sink.onCancel(() -> {
+                span.end("cancelled");
+                llmUsageRecorder.recordChat(path, useTools, "cancelled", System.nanoTime() - start);
+                log.info("Streaming client went away, cancelling generation");
+            });
+            sink.onDispose(generation::dispose);
+        });
+    }
+
+    /**
+     * Per-request copy of the runtime options, carrying only the tools selected for
+     * this message, whose callbacks report their invocations to the given listener,
+     * and the model routed for tool use. The shared options must not be mutated.
+     */
+    private OllamaOptions observedToolOptions(String userMessage, Consumer<ChatStreamEvent> listener, Span llmSpan) {
+        OllamaOptions options = mcpRuntimeOptions.copy();
+        List<ToolCallback> callbacks = toolSelector.select(userMessage).tools().stream()
+                .<ToolCallback>map(callback -> new NotifyingToolCallback(tracer.traced(callback, llmSpan), listener))
+                .toList();
+        llmSpan.tag("tools", callbacks.size());
+        options.setToolCallbacks(callbacks);
+        return modelRouter.applyTo(options, ModelTask.TOOLS);
+    }
+
+    private void appendToHistory(String conversationId, String userMessage, String response, Span trace) {
+        try (Span span = trace.child("history.store")) {
+            // Appended as one unit so concurrent turns on the same conversation never interleave
+            chatMemory.add(conversationId, List.of(
+                    new UserMessage(userMessage),
+                    new AssistantMessage(response)
+            ));
+        }
     }
 
 }
\ No newline at end of file
@@ -0,0 +1,91 @@
+package com.riccardocinti.mcp_client_assistant.service;
+
+import com.riccardocinti.mcp_client_assistant.model.ChatStreamEvent;
+import com.riccardocinti.mcp_client_assistant.service.scheduling.LlmPriority;
+import com.riccardocinti.mcp_client_assistant.service.scheduling.LlmScheduler;
+import com.riccardocinti.mcp_client_assistant.service.startup.McpServerStartup;
+import com.riccardocinti.mcp_client_assistant.service.tracing.Span;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * Routes a streamed request on an interactive slot and streams the response on the same
+ * slot, unless the response cannot use it:
+ * <ul>
+ *     <li>a kept speculation already holds a slot of its own, so it streams once the
+ *     routing slot is given back;</li>
+ *     <li>if tools are needed while lazy MCP servers are still to start, the routing slot
+ *     is given back first, the servers start without holding one and the response queues
+ *     for a new slot.</li>
+ * </ul>
+ */
+@Component
+@RequiredArgsConstructor
+public class RoutedStreamScheduler {
+
+    private final LlmScheduler llmScheduler;
+
+    private final McpServerStartup mcpServerStartup;
+
+    public Flux<ChatStreamEvent> schedule(String fairnessKey, Span trace, Span queue, Supplier<RoutedStream> routing) {
+        return Flux.defer(() -> {
+            AtomicReference<RoutedStream> afterRouting = new AtomicReference<>();
+            Flux<ChatStreamEvent> routed = llmScheduler.schedule(LlmPriority.INTERACTIVE, fairnessKey,
+                            () -> Flux.defer(() -> {
+                                queue.end();
+                                RoutedStream stream = routing.get();
+                                Flux<ChatStreamEvent> decision = Flux.just(ChatStreamEvent.routing(stream.useTools()));
+                                if (stream.ownSlot() || stream.useTools() && mcpServerStartup.lazyServersPending()) {
+                                    afterRouting.set(stream);
+                                    return decision;
+                                }
+                                return Flux.concat(decision, Flux.defer(stream.generation()));
+                            })
+                            // Tool detection is a blocking LLM call, keep it off the servlet thread
+                            .subscribeOn(Schedulers.boundedElastic()));
+            return routed.concatWith(Flux.defer(() -> {
+                RoutedStream stream = afterRouting.get();
+                if (stream == null) {
+                    return Flux.empty();
+                }
+                if (stream.ownSlot()) {
+                    return Flux.defer(stream.generation());
+                }
+                return afterLazyStart(fairnessKey, trace, stream.generation());
+            }));
+        });
+    }
+
+    private Flux<ChatStreamEvent> afterLazyStart(String fairnessKey, Span trace,
+                                                 Supplier<Flux<ChatStreamEvent>> generation) {
+        Span lazyQueue = trace.child("queue");
+        return Mono.fromRunnable(mcpServerStartup::startLazyServers)
+                .subscribeOn(Schedulers.boundedElastic())
+                .thenMany(llmScheduler.schedule(LlmPriority.INTERACTIVE, fairnessKey, () -> {
+                    lazyQueue.end();
+                    return Flux.defer(generation)
+                            // Granted on the thread that released the slot, keep the response off it
+                            .subscribeOn(Schedulers.boundedElastic());
+                }))
+                .doFinally(signal -> lazyQueue.end());
+    }
+
+    /**
+     * @param useTools   routing decision of a streamed request
+     * @param generation the response stream
+     * @param ownSlot    whether the generation already holds an LLM slot of its own; if not,
+     *                   it is subscribed to while holding a scheduled one
+     */
+    public record RoutedStream(boolean useTools, Supplier<Flux<ChatStreamEvent>> generation, boolean ownSlot) {
+
+        public RoutedStream(boolean useTools, Supplier<Flux<ChatStreamEvent>> generation) {
+            this(useTools, generation, false);
+        }
+    }
+}
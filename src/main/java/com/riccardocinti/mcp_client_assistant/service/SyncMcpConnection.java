@@ -0,0 +1,49 @@
+package com.riccardocinti.mcp_client_assistant.service;
+
+import io.modelcontextprotocol.client.McpSyncClient;
+import io.modelcontextprotocol.spec.McpSchema;
+import org.springframework.ai.mcp.SyncMcpToolCallback;
+import org.springframework.ai.tool.ToolCallback;
+
+record SyncMcpConnection(McpSyncClient client) implements McpConnection {
+
+    @Override
+    public String clientName() {
+        return client.getClientInfo().name();
+    }
+
+    @Override
+    public McpSchema.Implementation serverInfo() {
+        return client.getServerInfo();
+    }
+
+    @Override
+    public boolean isInitialized() {
+        return client.isInitialized();
+    }
+
+    @Override
+    public void initialize() {
+        client.initialize();
+    }
+
+    @Override
+    public void ping() {
+        client.ping();
+    }
+
+    @Override
+    public McpSchema.ListToolsResult listTools() {
+        return client.listTools();
+    }
+
+    @Override
+    public ToolCallback toolCallback(McpSchema.Tool tool) {
+        return new SyncMcpToolCallback(client, tool);
+    }
+
+    @Override
+    public void close() {
+        client.closeGracefully();
+    }
+}
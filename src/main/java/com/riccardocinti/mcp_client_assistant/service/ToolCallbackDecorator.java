@@ -0,0 +1,12 @@
+package com.riccardocinti.mcp_client_assistant.service;
+
+import org.springframework.ai.tool.ToolCallback;
+
+/**
+ * Wraps the MCP tool callbacks handed out by {@link McpService}.
+ * Decorators are applied in bean order, the first one ends up innermost.
+ */
+public interface ToolCallbackDecorator {
+
+    ToolCallback decorate(ToolCallback callback);
+}
@@ -0,0 +1,46 @@
+package com.riccardocinti.mcp_client_assistant.service.cache;
+
+import com.riccardocinti.mcp_client_assistant.config.ToolCacheProperties;
+import org.springframework.ai.chat.model.ToolContext;
+import org.springframework.ai.tool.ToolCallback;
+import org.springframework.ai.tool.definition.ToolDefinition;
+import org.springframework.ai.tool.metadata.ToolMetadata;
+
+/**
+ * Tool callback that answers repeated calls with the same arguments from the {@link ToolResultCache}.
+ */
+class CachingToolCallback implements ToolCallback {
+
+    private final ToolCallback delegate;
+
+    private final ToolCacheProperties.Policy policy;
+
+    private final ToolResultCache cache;
+
+    CachingToolCallback(ToolCallback delegate, ToolCacheProperties.Policy policy, ToolResultCache cache) {
+        this.delegate = delegate;
+        this.policy = policy;
+        this.cache = cache;
+    }
+
+    @Override
+    public ToolDefinition getToolDefinition() {
+        return delegate.getToolDefinition();
+    }
+
+    @Override
+    public ToolMetadata getToolMetadata() {
+        return delegate.getToolMetadata();
+    }
+
+    @Override
+    public String call(String toolInput) {
+        return call(toolInput, null);
+    }
+
+    @Override
+    public String call(String toolInput, ToolContext toolContext) {
+        return cache.call(getToolDefinition().name(), toolInput, policy,
+                () -> delegate.call(toolInput, toolContext));
+    }
+}
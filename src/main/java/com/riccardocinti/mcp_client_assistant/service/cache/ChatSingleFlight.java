@@ -0,0 +1,136 @@
+package com.riccardocinti.mcp_client_assistant.service.cache;
+
+import com.riccardocinti.mcp_client_assistant.config.SingleFlightProperties;
+import com.riccardocinti.mcp_client_assistant.model.ChatResult;
+import com.riccardocinti.mcp_client_assistant.model.ChatStreamEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces identical single-shot chat requests that are in flight at the same time.
+ * <p>
+ * The first request for a {@link PromptKey} becomes the leader and runs the
+ * generation; requests arriving while it runs attach to the leader instead of
+ * queueing another generation on the GPU. Streaming followers replay the leader's
+ * events from the start and then receive them live; blocking followers wait at most
+ * {@code maxWait} for the leader. The stream is cancelled only
+ * once every subscriber has gone. Conversation requests depend on their history
+ * and must never be passed through here.
+ */
+@Service
+@Slf4j
+public class ChatSingleFlight {
+
+    private final SingleFlightProperties properties;
+
+    private final Map<PromptKey, CompletableFuture<ChatResult>> calls = new ConcurrentHashMap<>();
+
+    private final Map<PromptKey, Flux<ChatStreamEvent>> streams = new ConcurrentHashMap<>();
+
+    private final Counter callLeaders;
+    private final Counter callFollowers;
+    private final Counter streamLeaders;
+    private final Counter streamFollowers;
+
+    public ChatSingleFlight(SingleFlightProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.callLeaders = counter(meterRegistry, "call", "leader");
+        this.callFollowers = counter(meterRegistry, "call", "follower");
+        this.streamLeaders = counter(meterRegistry, "stream", "leader");
+        this.streamFollowers = counter(meterRegistry, "stream", "follower");
+        Gauge.builder("assistant.single.flight.in.flight", this, flight -> flight.calls.size() + flight.streams.size())
+                .description("Generations currently shared between identical requests")
+                .register(meterRegistry);
+    }
+
+    public ChatResult call(PromptKey key, Supplier<ChatResult> generation) {
+        if (!properties.enabled()) {
+            return generation.get();
+        }
+
+        CompletableFuture<ChatResult> call = new CompletableFuture<>();
+        CompletableFuture<ChatResult> leader = calls.putIfAbsent(key, call);
+        if (leader != null) {
+            callFollowers.increment();
+            log.info("Attaching to identical in-flight request");
+            return await(leader);
+        }
+
+        callLeaders.increment();
+        try {
+            ChatResult result = generation.get();
+            call.complete(result);
+            return result;
+        } catch (Throwable e) {
+            // Errors too, or followers would wait on a generation nobody completes
+            call.completeExceptionally(e);
+            throw e;
+        } finally {
+            calls.remove(key, call);
+        }
+    }
+
+    public Flux<ChatStreamEvent> stream(PromptKey key, Supplier<Flux<ChatStreamEvent>> generation) {
+        if (!properties.enabled()) {
+            return generation.get();
+        }
+
+        // Resolved per subscription, the leader is whoever subscribes first
+        return Flux.defer(() -> {
+            AtomicReference<Flux<ChatStreamEvent>> created = new AtomicReference<>();
+            Flux<ChatStreamEvent> shared = streams.computeIfAbsent(key, k -> {
+                created.set(generation.get()
+                        .doFinally(signal -> streams.remove(k, created.get()))
+                        .replay()
+                        .refCount());
+                return created.get();
+            });
+
+            if (shared == created.get()) {
+                streamLeaders.increment();
+            } else {
+                streamFollowers.increment();
+                log.info("Attaching to identical in-flight stream");
+            }
+            return shared;
+        });
+    }
+
+    private ChatResult await(CompletableFuture<ChatResult> leader) {
+        try {
+            return leader.get(properties.maxWait().toMillis(), TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException("Identical in-flight request failed", e.getCause());
+        } catch (TimeoutException e) {
+            throw new IllegalStateException("Identical in-flight request did not complete within "
+                    + properties.maxWait());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for an identical in-flight request", e);
+        }
+    }
+
+    private static Counter counter(MeterRegistry registry, String mode, String role) {
+        return Counter.builder("assistant.single.flight.requests")
+                .description("Single-shot chat requests by whether they led or joined a generation")
+                .tag("mode", mode)
+                .tag("role", role)
+                .register(registry);
+    }
+}
@@ -0,0 +1,12 @@
+package com.riccardocinti.mcp_client_assistant.service.cache;
+
+/**
+ * Identity of a single-shot chat request: two requests with equal keys would be
+ * sent to the model identically. Built by {@link PromptKeys}.
+ *
+ * @param options      fingerprint of the model and its default options
+ * @param systemPrompt normalized system prompt
+ * @param userMessage  normalized user message
+ */
+public record PromptKey(String options, String systemPrompt, String userMessage) {
+}
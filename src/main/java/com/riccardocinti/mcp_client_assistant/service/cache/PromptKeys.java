@@ -0,0 +1,39 @@
+package com.riccardocinti.mcp_client_assistant.service.cache;
+
+import org.springframework.ai.ollama.OllamaChatModel;
+import org.springframework.ai.ollama.api.OllamaOptions;
+import org.springframework.stereotype.Component;
+
+import java.text.Normalizer;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+
+/**
+ * Builds {@link PromptKey}s. Messages are NFC-normalized, trimmed and have runs of
+ * whitespace collapsed, so trivially different copies of a templated prompt match.
+ */
+@Component
+public class PromptKeys {
+
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private final String optionsFingerprint;
+
+    public PromptKeys(OllamaChatModel ollamaChatModel) {
+        // Sorted so the fingerprint does not depend on map iteration order
+        this.optionsFingerprint = new TreeMap<>(((OllamaOptions) ollamaChatModel.getDefaultOptions()).toMap())
+                .toString();
+    }
+
+    public PromptKey of(String systemPrompt, String userMessage) {
+        return new PromptKey(optionsFingerprint, normalize(systemPrompt), normalize(userMessage));
+    }
+
+    private static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        String normalized = Normalizer.normalize(text, Normalizer.Form.NFC).strip();
+        return WHITESPACE.matcher(normalized).replaceAll(" ");
+    }
+}
@@ -0,0 +1,102 @@
+package com.riccardocinti.mcp_client_assistant.service.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.riccardocinti.mcp_client_assistant.config.ResponseCacheProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Caches complete responses of single-shot chats.
+ * <p>
+ * Entries are keyed on the model options, the system prompt and the normalized
+ * user message ({@link PromptKey}). A response is only stored if every tool called
+ * while producing it is known to be free of side effects, otherwise replaying it
+ * would skip an action the caller asked for.
+ */
+@Service
+@Slf4j
+public class ResponseCache {
+
+    private final ResponseCacheProperties properties;
+
+    private final Cache<PromptKey, Entry> cache;
+
+    private final List<Pattern> readOnlyTools;
+
+    private final Counter bypassed;
+    private final Counter uncacheable;
+    private final Counter latencySaved;
+
+    public ResponseCache(ResponseCacheProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(properties.maxEntries())
+                .expireAfterWrite(properties.ttl())
+                .recordStats()
+                .build();
+        this.readOnlyTools = properties.readOnlyTools().stream().map(Pattern::compile).toList();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "responses");
+        this.bypassed = Counter.builder("assistant.response.cache.bypassed")
+                .description("Requests that asked not to use the response cache")
+                .register(meterRegistry);
+        this.uncacheable = Counter.builder("assistant.response.cache.uncacheable")
+                .description("Responses not cached because a tool with side effects was called")
+                .register(meterRegistry);
+        this.latencySaved = Counter.builder("assistant.response.cache.latency.saved")
+                .description("Generation time avoided by serving responses from the cache")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return properties.enabled();
+    }
+
+    public Optional<String> get(PromptKey key) {
+        Entry entry = cache.getIfPresent(key);
+        if (entry == null) {
+            return Optional.empty();
+        }
+        latencySaved.increment(entry.generationNanos() / (double) TimeUnit.SECONDS.toNanos(1));
+        return Optional.of(entry.response());
+    }
+
+    /**
+     * @param toolsCalled     names of the tools invoked while generating the response
+     * @param generationNanos how long the generation took, reported as saved on every hit
+     */
+    public void put(PromptKey key, String response, Collection<String> toolsCalled, long generationNanos) {
+        if (response == null) {
+            return;
+        }
+        List<String> sideEffects = toolsCalled.stream().filter(tool -> !isReadOnly(tool)).toList();
+        if (!sideEffects.isEmpty()) {
+            uncacheable.increment();
+            log.debug("Not caching response, tools with side effects were called: {}", sideEffects);
+            return;
+        }
+        cache.put(key, new Entry(response, generationNanos));
+    }
+
+    public void recordBypass() {
+        bypassed.increment();
+    }
+
+    private boolean isReadOnly(String toolName) {
+        return readOnlyTools.stream().anyMatch(pattern -> pattern.matcher(toolName).find());
+    }
+
+    private record Entry(String response, long generationNanos) {
+    }
+}
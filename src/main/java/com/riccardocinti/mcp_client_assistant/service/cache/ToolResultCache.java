@@ -0,0 +1,233 @@
+package com.riccardocinti.mcp_client_assistant.service.cache;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.riccardocinti.mcp_client_assistant.config.ToolCacheProperties;
+import com.riccardocinti.mcp_client_assistant.model.ToolCacheStats;
+import com.riccardocinti.mcp_client_assistant.service.ToolCallbackDecorator;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.mcp.client.autoconfigure.properties.McpClientCommonProperties;
+import org.springframework.ai.tool.ToolCallback;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Memoizes results of MCP tools configured as cacheable.
+ * <p>
+ * Results are keyed on the tool name and the canonical form of the JSON arguments,
+ * so argument order and formatting do not matter. Concurrent identical calls are
+ * coalesced: only the first reaches the MCP server, the others wait for its result,
+ * at most for the MCP request timeout. Failures are never cached.
+ */
+@Service
+// Outside the MCP server pool, a hit never takes an instance
+@Order(Ordered.HIGHEST_PRECEDENCE + 10)
+@Slf4j
+public class ToolResultCache implements ToolCallbackDecorator {
+
+    private final ToolCacheProperties properties;
+
+    private final MeterRegistry meterRegistry;
+
+    private final Duration requestTimeout;
+
+    private final ObjectMapper canonicalMapper = new ObjectMapper()
+            .configure(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS, true);
+
+    private final Cache<Key, Entry> cache;
+
+    private final Map<Key, CompletableFuture<String>> inFlight = new ConcurrentHashMap<>();
+
+    private final Map<String, ToolStats> stats = new ConcurrentHashMap<>();
+
+    public ToolResultCache(ToolCacheProperties properties, McpClientCommonProperties clientProperties,
+                           MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+        this.requestTimeout = clientProperties.getRequestTimeout();
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(properties.maxEntries())
+                .expireAfter(new PerToolExpiry())
+                .build();
+    }
+
+    @Override
+    public ToolCallback decorate(ToolCallback callback) {
+        if (!properties.enabled()) {
+            return callback;
+        }
+        ToolCacheProperties.Policy policy = properties.policyFor(callback.getToolDefinition().name());
+        return policy.cacheable() ? new CachingToolCallback(callback, policy, this) : callback;
+    }
+
+    String call(String toolName, String toolInput, ToolCacheProperties.Policy policy, Supplier<String> invocation) {
+        ToolStats toolStats = statsFor(toolName);
+        Key key = new Key(toolName, canonicalize(toolInput));
+
+        Entry cached = cache.getIfPresent(key);
+        if (cached != null) {
+            toolStats.hits.increment();
+            toolStats.savedNanos.add(cached.callNanos());
+            return cached.result();
+        }
+
+        CompletableFuture<String> call = new CompletableFuture<>();
+        CompletableFuture<String> leader = inFlight.putIfAbsent(key, call);
+        if (leader != null) {
+            toolStats.coalesced.increment();
+            return await(toolName, leader);
+        }
+
+        toolStats.misses.increment();
+        try {
+            long start = System.nanoTime();
+            String result = invocation.get();
+            long callNanos = System.nanoTime() - start;
+
+            if (result != null && fits(result, policy)) {
+                cache.put(key, new Entry(result, callNanos, policy.ttl().toNanos()));
+            } else {
+                log.debug("Result of tool {} not cached, exceeds {}", toolName, policy.maxResultSize());
+            }
+            call.complete(result);
+            return result;
+        } catch (Throwable e) {
+            // Errors too, or followers would wait on a call nobody completes
+            call.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, call);
+        }
+    }
+
+    public List<ToolCacheStats> getStats() {
+        return stats.entrySet().stream()
+                .map(entry -> entry.getValue().snapshot(entry.getKey()))
+                .sorted(Comparator.comparing(ToolCacheStats::tool))
+                .toList();
+    }
+
+    private String canonicalize(String toolInput) {
+        if (toolInput == null || toolInput.isBlank()) {
+            return "";
+        }
+        try {
+            return canonicalMapper.writeValueAsString(canonicalMapper.readValue(toolInput, Object.class));
+        } catch (JsonProcessingException e) {
+            return toolInput.strip();
+        }
+    }
+
+    private static boolean fits(String result, ToolCacheProperties.Policy policy) {
+        return result.getBytes(StandardCharsets.UTF_8).length <= policy.maxResultSize().toBytes();
+    }
+
+    /**
+     * Waits for the identical call in flight. Interruptible, so a tool call cancelled
+     * at its deadline does not keep waiting on the leader.
+     */
+    private String await(String toolName, CompletableFuture<String> leader) {
+        try {
+            return leader.get(requestTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException("Identical call to tool " + toolName + " failed", e.getCause());
+        } catch (TimeoutException e) {
+            throw new IllegalStateException("Identical call to tool " + toolName + " did not complete within "
+                    + requestTimeout);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for tool " + toolName, e);
+        }
+    }
+
+    private ToolStats statsFor(String toolName) {
+        return stats.computeIfAbsent(toolName, name -> {
+            ToolStats toolStats = new ToolStats();
+            counter("hit", name, toolStats.hits);
+            counter("miss", name, toolStats.misses);
+            counter("coalesced", name, toolStats.coalesced);
+            FunctionCounter.builder("assistant.tool.cache.time.saved", toolStats.savedNanos,
+                            saved -> saved.sum() / (double) TimeUnit.SECONDS.toNanos(1))
+                    .description("MCP call time avoided by serving tool results from the cache")
+                    .baseUnit("seconds")
+                    .tag("tool", name)
+                    .register(meterRegistry);
+            return toolStats;
+        });
+    }
+
+    private void counter(String result, String toolName, LongAdder value) {
+        FunctionCounter.builder("assistant.tool.cache.requests", value, LongAdder::sum)
+                .description("Calls to cacheable MCP tools")
+                .tag("tool", toolName)
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    private record Key(String tool, String arguments) {
+    }
+
+    private record Entry(String result, long callNanos, long ttlNanos) {
+    }
+
+    private static final class ToolStats {
+
+        private final LongAdder hits = new LongAdder();
+        private final LongAdder misses = new LongAdder();
+        private final LongAdder coalesced = new LongAdder();
+        private final LongAdder savedNanos = new LongAdder();
+
+        ToolCacheStats snapshot(String tool) {
+            long hitCount = hits.sum();
+            long served = hitCount + coalesced.sum();
+            long total = served + misses.sum();
+            return new ToolCacheStats(tool, hitCount, misses.sum(), coalesced.sum(),
+                    total == 0 ? 0 : (double) served / total,
+                    TimeUnit.NANOSECONDS.toMillis(savedNanos.sum()));
+        }
+    }
+
+    /**
+     * Each entry lives for the TTL of the tool it came from.
+     */
+    private static final class PerToolExpiry implements Expiry<Key, Entry> {
+
+        @Override
+        public long expireAfterCreate(Key key, Entry entry, long currentTime) {
+            return entry.ttlNanos();
+        }
+
+        @Override
+        public long expireAfterUpdate(Key key, Entry entry, long currentTime, long currentDuration) {
+            return entry.ttlNanos();
+        }
+
+        @Override
+        public long expireAfterRead(Key key, Entry entry, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package com.riccardocinti.mcp_client_assistant.service.catalog;
+
+/**
+ * Published when an MCP server sends a tools/list_changed notification.
+ *
+ * @param connectionName MCP connection whose tools changed
+ * @param toolCount      number of tools the server now lists
+ */
+public record McpToolsChangedEvent(String connectionName, int toolCount) {
+}
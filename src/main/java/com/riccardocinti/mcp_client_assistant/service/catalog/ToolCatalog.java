@@ -0,0 +1,226 @@
+package com.riccardocinti.mcp_client_assistant.service.catalog;
+
+import com.riccardocinti.mcp_client_assistant.service.McpConnection;
+import com.riccardocinti.mcp_client_assistant.service.ToolCallbackDecorator;
+import com.riccardocinti.mcp_client_assistant.service.startup.McpServerStartedEvent;
+import io.modelcontextprotocol.spec.McpSchema;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.tool.ToolCallback;
+import org.springframework.ai.tool.definition.ToolDefinition;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * In-memory catalog of the MCP tools, indexed by tool name and by server.
+ * <p>
+ * Filled as the servers start, refreshed on a schedule and whenever a server announces that
+ * its tools changed. Each refresh builds a new immutable snapshot and swaps it in,
+ * so readers never block and never see a half-built catalog. A server that cannot
+ * be listed keeps the tools it had in the previous snapshot. The version only
+ * increases when the tool definitions actually changed, letting consumers cache
+ * anything derived from the catalog and rebuild it only on a version bump.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ToolCatalog {
+
+    private static final String UNKNOWN_SERVER = "unknown";
+
+    private final List<McpConnection> mcpConnections;
+
+    private final List<ToolCallbackDecorator> toolCallbackDecorators;
+
+    private final MeterRegistry meterRegistry;
+
+    private final ExecutorService refreshExecutor = Executors.newVirtualThreadPerTaskExecutor();
+
+    private final ReentrantLock refreshLock = new ReentrantLock();
+
+    private final AtomicBoolean refreshPending = new AtomicBoolean();
+
+    private final AtomicReference<Snapshot> snapshot = new AtomicReference<>(Snapshot.EMPTY);
+
+    @PostConstruct
+    public void initialize() {
+        Gauge.builder("assistant.tool.catalog.tools", snapshot, current -> current.get().callbacks().size())
+                .description("Tools currently in the catalog")
+                .register(meterRegistry);
+        Gauge.builder("assistant.tool.catalog.version", snapshot, current -> current.get().version())
+                .description("Current tool catalog version")
+                .register(meterRegistry);
+        refresh();
+    }
+
+    public Snapshot getSnapshot() {
+        return snapshot.get();
+    }
+
+    public long getVersion() {
+        return snapshot.get().version();
+    }
+
+    @Scheduled(fixedDelayString = "${assistant.tool-catalog.refresh-interval:5m}",
+            initialDelayString = "${assistant.tool-catalog.refresh-interval:5m}")
+    public void refresh() {
+        // Listing goes over MCP, so use a lock rather than a monitor that would pin a virtual thread
+        refreshLock.lock();
+        long start = System.nanoTime();
+        String outcome = "error";
+        try {
+            refreshPending.set(false);
+            Snapshot current = snapshot.get();
+            List<ToolCallback> callbacks = new ArrayList<>();
+            int failed = 0;
+            for (McpConnection connection : mcpConnections) {
+                // Not started yet, listed once its McpServerStartedEvent arrives
+                if (!connection.isInitialized()) {
+                    continue;
+                }
+                try {
+                    List<ToolCallback> listed = new ArrayList<>();
+                    for (McpSchema.Tool tool : connection.listTools().tools()) {
+                        listed.add(decorate(connection.toolCallback(tool)));
+                    }
+                    callbacks.addAll(listed);
+                } catch (Exception e) {
+                    failed++;
+                    List<ToolCallback> previous = current.byServer().getOrDefault(connection.connectionName(), List.of());
+                    callbacks.addAll(previous);
+                    log.warn("Listing the tools of MCP server {} failed, keeping its {} previous tools",
+                            connection.connectionName(), previous.size(), e);
+                }
+            }
+
+            List<ToolDefinition> definitions = callbacks.stream().map(ToolCallback::getToolDefinition).toList();
+            if (current.version() > 0 && definitions.equals(current.definitions())) {
+                snapshot.set(current.refreshed(Instant.now()));
+                outcome = failed > 0 ? "partial" : "unchanged";
+                return;
+            }
+
+            Snapshot next = build(current.version() + 1, callbacks, definitions);
+            snapshot.set(next);
+            outcome = failed > 0 ? "partial" : "changed";
+            log.info("Tool catalog version {}: {} tools from {} servers",
+                    next.version(), callbacks.size(), next.byServer().size());
+        } catch (Exception e) {
+            log.warn("Tool catalog refresh failed, keeping version {}", snapshot.get().version(), e);
+        } finally {
+            refreshLock.unlock();
+            Timer.builder("assistant.tool.catalog.refresh")
+                    .description("Time taken to list the tools of all MCP servers")
+                    .tag("outcome", outcome)
+                    .register(meterRegistry)
+                    .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Lists the tools of a server that just started. Runs on the startup thread, so
+     * the server counts as started only once its tools are in the catalog.
+     */
+    @EventListener
+    public void onServerStarted(McpServerStartedEvent event) {
+        refresh();
+    }
+
+    @EventListener
+    public void onToolsChanged(McpToolsChangedEvent event) {
+        log.info("MCP server {} reported changed tools ({} tools)", event.connectionName(), event.toolCount());
+        // Notifications arrive on the MCP client's own thread, never list tools on it.
+        // Notifications that arrive while a refresh is pending are folded into it.
+        if (refreshPending.compareAndSet(false, true)) {
+            refreshExecutor.execute(this::refresh);
+        }
+    }
+
+    private Snapshot build(long version, List<ToolCallback> callbacks, List<ToolDefinition> definitions) {
+        Map<String, ToolCallback> byName = new LinkedHashMap<>();
+        Map<String, String> serverByTool = new LinkedHashMap<>();
+        Map<String, List<ToolCallback>> byServer = new LinkedHashMap<>();
+        for (ToolCallback callback : callbacks) {
+            String name = callback.getToolDefinition().name();
+            String server = connectionOf(name).orElse(UNKNOWN_SERVER);
+            byName.put(name, callback);
+            serverByTool.put(name, server);
+            byServer.computeIfAbsent(server, key -> new ArrayList<>()).add(callback);
+        }
+        byServer.replaceAll((server, tools) -> List.copyOf(tools));
+        return new Snapshot(version, List.copyOf(callbacks), definitions, Map.copyOf(byName),
+                Map.copyOf(serverByTool), Map.copyOf(byServer), Instant.now());
+    }
+
+    private Optional<String> connectionOf(String toolName) {
+        return mcpConnections.stream()
+                .filter(connection -> toolName.startsWith(connection.toolNamePrefix()))
+                .map(McpConnection::connectionName)
+                .findFirst();
+    }
+
+    private ToolCallback decorate(ToolCallback callback) {
+        ToolCallback decorated = callback;
+        for (ToolCallbackDecorator decorator : toolCallbackDecorators) {
+            decorated = decorator.decorate(decorated);
+        }
+        return decorated;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        refreshExecutor.shutdownNow();
+    }
+
+    /**
+     * Immutable view of the catalog at one version.
+     *
+     * @param callbacks    decorated tool callbacks, ready to hand to the model
+     * @param byServer     tools per MCP connection name
+     * @param serverByTool MCP connection name per tool name
+     * @param refreshedAt  when the servers were last listed, even if nothing changed
+     */
+    public record Snapshot(
+            long version,
+            List<ToolCallback> callbacks,
+            List<ToolDefinition> definitions,
+            Map<String, ToolCallback> byName,
+            Map<String, String> serverByTool,
+            Map<String, List<ToolCallback>> byServer,
+            Instant refreshedAt
+    ) {
+
+        static final Snapshot EMPTY = new Snapshot(0, List.of(), List.of(), Map.of(), Map.of(), Map.of(), null);
+
+        public Optional<String> serverOf(String toolName) {
+            return Optional.ofNullable(serverByTool.get(toolName));
+        }
+
+        public int toolCount(String server) {
+            return byServer.getOrDefault(server, List.of()).size();
+        }
+
+        Snapshot refreshed(Instant at) {
+            return new Snapshot(version, callbacks, definitions, byName, serverByTool, byServer, at);
+        }
+    }
+}
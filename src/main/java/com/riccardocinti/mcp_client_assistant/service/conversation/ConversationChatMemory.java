@@ -0,0 +1,62 @@
+package com.riccardocinti.mcp_client_assistant.service.conversation;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.ai.chat.memory.ChatMemory;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.SystemMessage;
+import org.springframework.ai.chat.messages.ToolResponseMessage;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Spring AI {@link ChatMemory} view of the {@link ConversationStore}.
+ * <p>
+ * Unlike {@code MessageWindowChatMemory} this appends instead of rewriting the
+ * whole conversation on every turn, and windowing is left to the store.
+ * Tool responses are not kept: only the final assistant answer of a tool turn
+ * is part of the history sent back to the model. The {@link HistoryCompactor}
+ * keeps what is sent back within the token budget.
+ */
+@Component
+@RequiredArgsConstructor
+public class ConversationChatMemory implements ChatMemory {
+
+    private final ConversationStore conversationStore;
+
+    private final HistoryCompactor historyCompactor;
+
+    @Override
+    public void add(String conversationId, List<Message> messages) {
+        List<ConversationMessage> stored = messages.stream()
+                .filter(message -> !(message instanceof ToolResponseMessage))
+                .map(message -> historyCompactor.limit(
+                        new ConversationMessage(message.getMessageType(), message.getText())))
+                .toList();
+        conversationStore.append(conversationId, stored);
+        historyCompactor.afterAppend(conversationId);
+    }
+
+    @Override
+    public List<Message> get(String conversationId) {
+        return historyCompactor.fit(conversationStore.getMessages(conversationId)).stream()
+                .map(ConversationChatMemory::toMessage)
+                .toList();
+    }
+
+    @Override
+    public void clear(String conversationId) {
+        conversationStore.clear(conversationId);
+    }
+
+    private static Message toMessage(ConversationMessage message) {
+        return switch (message.type()) {
+            case USER -> new UserMessage(message.content());
+            case ASSISTANT -> new AssistantMessage(message.content());
+            case SYSTEM -> new SystemMessage(message.content());
+            case TOOL -> throw new IllegalStateException("Tool responses are not stored in conversation history");
+        };
+    }
+}
@@ -0,0 +1,480 @@
+package com.riccardocinti.mcp_client_assistant.service.conversation;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.chat.messages.MessageType;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only log of conversation changes, split into memory-mapped segment files.
+ * <p>
+ * Every change is one record: {@code [int length][int crc32c][byte kind][long timestamp]
+ * [short id length][id][body]}. A message inside a record is {@code [byte type][int length][utf-8]},
+ * and is addressed by a reference packing the segment id and the message offset into one
+ * long, so an index of a conversation is a handful of longs and messages are decoded
+ * from the mapping only when read. A zero length marks the end of a segment.
+ * <p>
+ * Appends go to the newest segment under one lock; a new segment is started when a
+ * record does not fit. Only whole segments are ever removed, oldest first, once the
+ * caller has rewritten whatever was still live in them.
+ */
+@Slf4j
+class ConversationLog implements AutoCloseable {
+
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    private static final int HEADER_BYTES = 8;
+
+    private static final int MESSAGE_HEADER_BYTES = 5;
+
+    private final Path directory;
+
+    private final int segmentSize;
+
+    private final boolean forceWrites;
+
+    private final ConcurrentSkipListMap<Integer, Segment> segments = new ConcurrentSkipListMap<>();
+
+    private final ReentrantLock writeLock = new ReentrantLock();
+
+    private Segment active;
+
+    ConversationLog(Path directory, int segmentSize, boolean forceWrites) {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.forceWrites = forceWrites;
+    }
+
+    /**
+     * Maps the existing segments and hands every intact record to the visitor, oldest
+     * first. Reading a segment stops at its end marker or at the first record whose
+     * checksum does not match, e.g. one torn by a crash; appends resume right there.
+     */
+    void open(Consumer<Record> visitor) {
+        try {
+            Files.createDirectories(directory);
+            List<Path> files;
+            try (Stream<Path> listing = Files.list(directory)) {
+                files = listing.filter(file -> file.getFileName().toString().endsWith(SEGMENT_SUFFIX))
+                        .sorted()
+                        .toList();
+            }
+            for (Path file : files) {
+                Segment segment = Segment.map(segmentId(file), file, Files.size(file));
+                segments.put(segment.id, segment);
+                segment.position = replay(segment, visitor, true);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not open conversation log in " + directory, e);
+        }
+        active = segments.isEmpty() ? createSegment(1, segmentSize) : segments.lastEntry().getValue();
+    }
+
+    enum Kind {
+        /**
+         * Messages added to the end of a conversation.
+         */
+        APPEND,
+        /**
+         * Conversation removed, cleared or evicted.
+         */
+        CLEAR,
+        /**
+         * The oldest {@code prefixCount} messages replaced by the one message of the record.
+         */
+        REPLACE_PREFIX,
+        /**
+         * The conversation consists of exactly the messages of the record, written by compaction.
+         */
+        SNAPSHOT
+    }
+
+    /**
+     * One replayed record.
+     *
+     * @param messages references of the messages in the record
+     */
+    record Record(Kind kind, long timestamp, String conversationId, int prefixCount, long[] messages) {
+    }
+
+    /**
+     * Appends one record and returns the references of its messages.
+     */
+    long[] append(Kind kind, String conversationId, int prefixCount, List<ConversationMessage> messages) {
+        ByteBuffer record = encode(kind, conversationId, prefixCount, messages);
+        writeLock.lock();
+        try {
+            if (active.remaining() < record.remaining() + Integer.BYTES) {
+                roll(record.remaining() + Integer.BYTES);
+            }
+            Segment segment = active;
+            int start = segment.position;
+            segment.buffer.put(start, record, 0, record.remaining());
+            segment.position += record.remaining();
+            segment.buffer.putInt(segment.position, 0);
+            if (forceWrites) {
+                segment.buffer.force(start, record.remaining());
+            }
+
+            long[] refs = new long[messages.size()];
+            int offset = start + bodyOffset(conversationId);
+            for (int i = 0; i < refs.length; i++) {
+                refs[i] = ref(segment.id, offset);
+                int size = segment.messageSize(offset);
+                segment.liveBytes.addAndGet(size);
+                offset += size;
+            }
+            return refs;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    ConversationMessage read(long ref) {
+        Segment segment = segment(ref);
+        int offset = offset(ref);
+        int length = segment.buffer.getInt(offset + 1);
+        byte[] content = new byte[length];
+        segment.buffer.get(offset + MESSAGE_HEADER_BYTES, content);
+        return new ConversationMessage(typeOf(segment.buffer.get(offset)), new String(content, StandardCharsets.UTF_8));
+    }
+
+    boolean isSummary(long ref) {
+        return typeOf(segment(ref).buffer.get(offset(ref))) == MessageType.SYSTEM;
+    }
+
+    /**
+     * Bytes the message takes in the log.
+     */
+    int sizeOf(long ref) {
+        return segment(ref).messageSize(offset(ref));
+    }
+
+    /**
+     * Marks the message as no longer part of any conversation.
+     */
+    void release(long ref) {
+        Segment segment = segments.get(segmentOf(ref));
+        if (segment != null) {
+            segment.liveBytes.addAndGet(-segment.messageSize(offset(ref)));
+        }
+    }
+
+    /**
+     * Segments no longer appended to, oldest first.
+     */
+    List<SegmentInfo> sealedSegments() {
+        Segment current = active;
+        return segments.values().stream()
+                .filter(segment -> segment != current)
+                .map(segment -> new SegmentInfo(segment.id, segment.position, segment.liveBytes.get()))
+                .toList();
+    }
+
+    /**
+     * Conversations with at least one record in the segment.
+     */
+    Set<String> conversationsIn(int segmentId) {
+        Set<String> ids = new LinkedHashSet<>();
+        Segment segment = segments.get(segmentId);
+        if (segment != null) {
+            replay(segment, record -> ids.add(record.conversationId()), false);
+        }
+        return ids;
+    }
+
+    /**
+     * Removes a sealed segment. Nothing may reference its messages any more.
+     */
+    void delete(int segmentId) {
+        Segment segment = segments.get(segmentId);
+        if (segment == null || segment == active) {
+            return;
+        }
+        segments.remove(segmentId);
+        try {
+            // The mapping itself is released once the buffer is garbage collected
+            Files.deleteIfExists(segment.file);
+        } catch (IOException e) {
+            log.warn("Could not delete conversation log segment {}: {}", segment.file, e.getMessage());
+        }
+    }
+
+    int segmentCount() {
+        return segments.size();
+    }
+
+    long sizeBytes() {
+        return segments.values().stream().mapToLong(segment -> segment.position).sum();
+    }
+
+    /**
+     * Flushes the segment being appended to; sealed segments were flushed when they were sealed.
+     */
+    void force() {
+        writeLock.lock();
+        try {
+            if (active != null) {
+                active.buffer.force();
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public void close() {
+        force();
+    }
+
+    /**
+     * @param retain count the messages of the records as live, the visitor releases the ones it drops
+     */
+    private int replay(Segment segment, Consumer<Record> visitor, boolean retain) {
+        MappedByteBuffer buffer = segment.buffer;
+        int position = 0;
+        CRC32C crc = new CRC32C();
+        while (position + HEADER_BYTES <= segment.capacity) {
+            int length = buffer.getInt(position);
+            if (length == 0) {
+                return position;
+            }
+            if (length < 0 || (long) position + HEADER_BYTES + length > segment.capacity) {
+                return torn(segment, position);
+            }
+            crc.reset();
+            crc.update(buffer.slice(position + HEADER_BYTES, length));
+            if ((int) crc.getValue() != buffer.getInt(position + Integer.BYTES)) {
+                return torn(segment, position);
+            }
+            visitor.accept(decode(segment, position, retain));
+            position += HEADER_BYTES + length;
+        }
+        return position;
+    }
+
+    private static int torn(Segment segment, int position) {
+        log.warn("Conversation log segment {} ends in an incomplete record at offset {}, ignoring the rest",
+                segment.file.getFileName(), position);
+        return position;
+    }
+
+    private Record decode(Segment segment, int position, boolean retain) {
+        MappedByteBuffer buffer = segment.buffer;
+        int offset = position + HEADER_BYTES;
+        Kind kind = Kind.values()[buffer.get(offset)];
+        long timestamp = buffer.getLong(offset + 1);
+        int idLength = Short.toUnsignedInt(buffer.getShort(offset + 9));
+        byte[] id = new byte[idLength];
+        buffer.get(offset + 11, id);
+        offset += 11 + idLength;
+
+        int prefixCount = 0;
+        int count = 0;
+        switch (kind) {
+            case APPEND, SNAPSHOT -> {
+                count = buffer.getInt(offset);
+                offset += Integer.BYTES;
+            }
+            case REPLACE_PREFIX -> {
+                prefixCount = buffer.getInt(offset);
+                offset += Integer.BYTES;
+                count = 1;
+            }
+            case CLEAR -> {
+            }
+        }
+        long[] refs = new long[count];
+        for (int i = 0; i < count; i++) {
+            refs[i] = ref(segment.id, offset);
+            int size = segment.messageSize(offset);
+            if (retain) {
+                segment.liveBytes.addAndGet(size);
+            }
+            offset += size;
+        }
+        return new Record(kind, timestamp, new String(id, StandardCharsets.UTF_8), prefixCount, refs);
+    }
+
+    private static ByteBuffer encode(Kind kind, String conversationId, int prefixCount,
+                                     List<ConversationMessage> messages) {
+        byte[] id = conversationId.getBytes(StandardCharsets.UTF_8);
+        if (id.length > 0xFFFF) {
+            throw new IllegalArgumentException("Conversation ID too long: " + id.length + " bytes");
+        }
+        List<byte[]> contents = new ArrayList<>(messages.size());
+        int length = 1 + Long.BYTES + Short.BYTES + id.length + (kind == Kind.CLEAR ? 0 : Integer.BYTES);
+        for (ConversationMessage message : messages) {
+            byte[] content = message.content() == null
+                    ? new byte[0]
+                    : message.content().getBytes(StandardCharsets.UTF_8);
+            contents.add(content);
+            length += MESSAGE_HEADER_BYTES + content.length;
+        }
+
+        ByteBuffer record = ByteBuffer.allocate(HEADER_BYTES + length);
+        record.putInt(length).putInt(0);
+        record.put((byte) kind.ordinal()).putLong(System.currentTimeMillis()).putShort((short) id.length).put(id);
+        switch (kind) {
+            case APPEND, SNAPSHOT -> record.putInt(messages.size());
+            case REPLACE_PREFIX -> record.putInt(prefixCount);
+            case CLEAR -> {
+            }
+        }
+        for (int i = 0; i < messages.size(); i++) {
+            record.put(typeCode(messages.get(i).type())).putInt(contents.get(i).length).put(contents.get(i));
+        }
+
+        CRC32C crc = new CRC32C();
+        crc.update(record.array(), HEADER_BYTES, length);
+        record.putInt(Integer.BYTES, (int) crc.getValue());
+        return record.flip();
+    }
+
+    private static int bodyOffset(String conversationId) {
+        int idLength = conversationId.getBytes(StandardCharsets.UTF_8).length;
+        return HEADER_BYTES + 1 + Long.BYTES + Short.BYTES + idLength + Integer.BYTES;
+    }
+
+    /**
+     * Seals the active segment and starts a new one. Called with the write lock held.
+     */
+    private void roll(int needed) {
+        Segment sealed = active;
+        sealed.buffer.force();
+        active = createSegment(sealed.id + 1, Math.max(segmentSize, needed));
+        log.debug("Conversation log rolled to segment {}", active.id);
+    }
+
+    private Segment createSegment(int id, int size) {
+        Path file = directory.resolve("segment-%010d%s".formatted(id, SEGMENT_SUFFIX));
+        try {
+            Segment segment = Segment.map(id, file, size);
+            segments.put(id, segment);
+            return segment;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not create conversation log segment " + file, e);
+        }
+    }
+
+    private Segment segment(long ref) {
+        Segment segment = segments.get(segmentOf(ref));
+        if (segment == null) {
+            throw new IllegalStateException("Conversation log segment " + segmentOf(ref) + " no longer exists");
+        }
+        return segment;
+    }
+
+    private static int segmentId(Path file) {
+        String name = file.getFileName().toString();
+        return Integer.parseInt(name.substring("segment-".length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    static long ref(int segmentId, int offset) {
+        return ((long) segmentId << 32) | (offset & 0xFFFFFFFFL);
+    }
+
+    static int segmentOf(long ref) {
+        return (int) (ref >>> 32);
+    }
+
+    private static int offset(long ref) {
+        return (int) ref;
+    }
+
+    private static byte typeCode(MessageType type) {
+        // Stable codes, the enum's ordinals are not ours to rely on
+        return switch (type) {
+            case USER -> 1;
+            case ASSISTANT -> 2;
+            case SYSTEM -> 3;
+            case TOOL -> 4;
+        };
+    }
+
+    private static MessageType typeOf(byte code) {
+        return switch (code) {
+            case 1 -> MessageType.USER;
+            case 2 -> MessageType.ASSISTANT;
+            case 3 -> MessageType.SYSTEM;
+            case 4 -> MessageType.TOOL;
+            default -> throw new IllegalStateException("Unknown message type code " + code);
+        };
+    }
+
+    /**
+     * @param writtenBytes bytes of records in the segment
+     * @param liveBytes    bytes of messages still part of a conversation
+     */
+    record SegmentInfo(int id, long writtenBytes, long liveBytes) {
+
+        double liveRatio() {
+            return writtenBytes == 0 ? 0 : (double) liveBytes / writtenBytes;
+        }
+    }
+
+    private static final class Segment {
+
+        private final int id;
+
+        private final Path file;
+
+        private final MappedByteBuffer buffer;
+
+        private final int capacity;
+
+        /**
+         * End of the written records. Only changed by the writer, under the write lock.
+         */
+        private volatile int position;
+
+        private final AtomicLong liveBytes = new AtomicLong();
+
+        private Segment(int id, Path file, MappedByteBuffer buffer, int capacity) {
+            this.id = id;
+            this.file = file;
+            this.buffer = buffer;
+            this.capacity = capacity;
+        }
+
+        static Segment map(int id, Path file, long size) throws IOException {
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Conversation log segment " + file + " is larger than 2GB");
+            }
+            try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw");
+                 FileChannel channel = raf.getChannel()) {
+                if (raf.length() < size) {
+                    raf.setLength(size);
+                }
+                // The mapping stays valid after the channel is closed
+                return new Segment(id, file, channel.map(FileChannel.MapMode.READ_WRITE, 0, size), (int) size);
+            }
+        }
+
+        int remaining() {
+            return capacity - position;
+        }
+
+        int messageSize(int offset) {
+            return MESSAGE_HEADER_BYTES + buffer.getInt(offset + 1);
+        }
+    }
+}
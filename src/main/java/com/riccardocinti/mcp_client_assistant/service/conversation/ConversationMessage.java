@@ -0,0 +1,46 @@
+package com.riccardocinti.mcp_client_assistant.service.conversation;
+
+import org.springframework.ai.chat.messages.MessageType;
+
+/**
+ * One stored turn of a conversation.
+ */
+public record ConversationMessage(
+        MessageType type,
+        String content
+) {
+
+    /**
+     * Object header, record fields and String header on a 64-bit JVM with compressed oops.
+     */
+    private static final int OVERHEAD_BYTES = 64;
+
+    public static ConversationMessage user(String content) {
+        return new ConversationMessage(MessageType.USER, content);
+    }
+
+    public static ConversationMessage assistant(String content) {
+        return new ConversationMessage(MessageType.ASSISTANT, content);
+    }
+
+    /**
+     * Rolling summary standing in for the turns folded into it, kept as the first message.
+     */
+    public static ConversationMessage summary(String content) {
+        return new ConversationMessage(MessageType.SYSTEM, content);
+    }
+
+    /**
+     * Summaries are the only system messages a conversation stores.
+     */
+    public boolean isSummary() {
+        return type == MessageType.SYSTEM;
+    }
+
+    /**
+     * Approximate heap footprint, assuming the worst case of UTF-16 string storage.
+     */
+    public long estimatedBytes() {
+        return OVERHEAD_BYTES + (content == null ? 0 : 2L * content.length());
+    }
+}
@@ -0,0 +1,35 @@
+package com.riccardocinti.mcp_client_assistant.service.conversation;
+
+import java.util.List;
+
+/**
+ * Storage for conversation histories, keyed by conversation ID.
+ * Implementations must be safe for concurrent use, including concurrent
+ * requests on the same conversation.
+ */
+public interface ConversationStore {
+
+    /**
+     * Returns a snapshot of the conversation, oldest message first.
+     * Unknown conversations yield an empty list and are not created.
+     */
+    List<ConversationMessage> getMessages(String conversationId);
+
+    /**
+     * Atomically appends the messages to the conversation, creating it if needed.
+     */
+    void append(String conversationId, List<ConversationMessage> messages);
+
+    void clear(String conversationId);
+
+    /**
+     * Atomically replaces the oldest messages with one message, provided the
+     * conversation still starts with exactly {@code prefix}.
+     *
+     * @return false if the conversation is gone or changed at its start in the meantime
+     */
+    boolean replacePrefix(String conversationId, List<ConversationMessage> prefix, ConversationMessage replacement);
+
+    ConversationStoreStats getStats();
+
+}
@@ -0,0 +1,53 @@
+package com.riccardocinti.mcp_client_assistant.service.conversation;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Publishes the statistics of whichever {@link ConversationStore} is active.
+ */
+@Component
+@RequiredArgsConstructor
+public class ConversationStoreMetrics implements MeterBinder {
+
+    private final ConversationStore conversationStore;
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        gauge(registry, "assistant.conversations.size", "Conversations currently stored", null,
+                ConversationStoreStats::conversations);
+        gauge(registry, "assistant.conversations.messages", "Messages currently stored", null,
+                ConversationStoreStats::messages);
+        gauge(registry, "assistant.conversations.memory", "Estimated size of stored messages", "bytes",
+                ConversationStoreStats::bytes);
+        gauge(registry, "assistant.conversations.hit.ratio", "Share of lookups that found a conversation", null,
+                ConversationStoreStats::hitRate);
+
+        counter(registry, "assistant.conversations.lookups", "result", "hit", ConversationStoreStats::hits);
+        counter(registry, "assistant.conversations.lookups", "result", "miss", ConversationStoreStats::misses);
+        counter(registry, "assistant.conversations.evictions", "reason", "idle", ConversationStoreStats::idleEvictions);
+        counter(registry, "assistant.conversations.evictions", "reason", "capacity", ConversationStoreStats::capacityEvictions);
+        counter(registry, "assistant.conversations.evictions", "reason", "memory", ConversationStoreStats::memoryEvictions);
+    }
+
+    private void gauge(MeterRegistry registry, String name, String description, String unit,
+                       ToDoubleFunction<ConversationStoreStats> value) {
+        Gauge.builder(name, conversationStore, store -> value.applyAsDouble(store.getStats()))
+                .description(description)
+                .baseUnit(unit)
+                .register(registry);
+    }
+
+    private void counter(MeterRegistry registry, String name, String tagKey, String tagValue,
+                         ToDoubleFunction<ConversationStoreStats> value) {
+        FunctionCounter.builder(name, conversationStore, store -> value.applyAsDouble(store.getStats()))
+                .tag(tagKey, tagValue)
+                .register(registry);
+    }
+}
@@ -0,0 +1,18 @@
+package com.riccardocinti.mcp_client_assistant.service.conversation;
+
+public record ConversationStoreStats(
+        long conversations,
+        long messages,
+        long bytes,
+        long hits,
+        long misses,
+        long idleEvictions,
+        long capacityEvictions,
+        long memoryEvictions
+) {
+
+    public double hitRate() {
+        long lookups = hits + misses;
+        return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+}
@@ -0,0 +1,211 @@
+package com.riccardocinti.mcp_client_assistant.service.conversation;
+
+import com.riccardocinti.mcp_client_assistant.config.ConversationProperties;
+import com.riccardocinti.mcp_client_assistant.config.HistoryCompactionProperties;
+import com.riccardocinti.mcp_client_assistant.model.ConversationUsage;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.chat.messages.MessageType;
+import org.springframework.ai.tokenizer.JTokkitTokenCountEstimator;
+import org.springframework.ai.tokenizer.TokenCountEstimator;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps the history sent with each conversation turn within a token budget.
+ * <p>
+ * Tokens are estimated locally. Oversized messages are truncated in the middle
+ * before they are stored. Once a conversation exceeds the budget, its oldest turns
+ * are folded into a rolling summary by the {@link HistorySummarizer} off the
+ * request path. Until that is done, the history sent to the model leaves out the
+ * oldest turns so the prompt stays within the budget.
+ */
+@Service
+@Slf4j
+public class HistoryCompactor {
+
+    /**
+     * Role and separator tokens the chat template adds around every message.
+     */
+    private static final int MESSAGE_OVERHEAD_TOKENS = 4;
+
+    /**
+     * Exchanges of headroom before the store's message limit starts dropping turns.
+     */
+    private static final int MESSAGE_LIMIT_HEADROOM = 4;
+
+    private final ConversationStore conversationStore;
+
+    private final HistorySummarizer historySummarizer;
+
+    private final HistoryCompactionProperties properties;
+
+    private final ConversationProperties conversationProperties;
+
+    private final TokenCountEstimator tokenCountEstimator = new JTokkitTokenCountEstimator();
+
+    private final Set<String> compacting = ConcurrentHashMap.newKeySet();
+
+    private final Counter truncated;
+
+    private final DistributionSummary promptTokens;
+
+    public HistoryCompactor(ConversationStore conversationStore, HistorySummarizer historySummarizer,
+                            HistoryCompactionProperties properties, ConversationProperties conversationProperties,
+                            MeterRegistry meterRegistry) {
+        this.conversationStore = conversationStore;
+        this.historySummarizer = historySummarizer;
+        this.properties = properties;
+        this.conversationProperties = conversationProperties;
+        this.truncated = Counter.builder("assistant.conversation.truncated")
+                .description("Messages truncated before they were stored")
+                .register(meterRegistry);
+        this.promptTokens = DistributionSummary.builder("assistant.conversation.prompt.tokens")
+                .description("Estimated history tokens sent with a conversation turn")
+                .baseUnit("tokens")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Truncates a message longer than {@code max-message-tokens}, keeping its
+     * beginning and end, which usually carry the question and the conclusion.
+     */
+    public ConversationMessage limit(ConversationMessage message) {
+        if (!properties.enabled() || message.content() == null) {
+            return message;
+        }
+        String content = message.content();
+        int tokens = tokenCountEstimator.estimate(content);
+        if (tokens <= properties.maxMessageTokens()) {
+            return message;
+        }
+        double charsPerToken = (double) content.length() / tokens;
+        int keep = (int) (properties.maxMessageTokens() * charsPerToken);
+        int head = keep * 2 / 3;
+        int tail = keep - head;
+        truncated.increment();
+        return new ConversationMessage(message.type(), content.substring(0, head)
+                + "\n[... " + (tokens - properties.maxMessageTokens()) + " tokens omitted ...]\n"
+                + content.substring(content.length() - tail));
+    }
+
+    /**
+     * The part of the history that fits the budget: the summary, if any, and the
+     * newest turns. Older turns are only left out of the prompt here, the store
+     * keeps them until they are summarized.
+     */
+    public List<ConversationMessage> fit(List<ConversationMessage> history) {
+        if (!properties.enabled()) {
+            return history;
+        }
+        List<ConversationMessage> fitted = fitToBudget(history, tokens(history));
+        promptTokens.record(sum(tokens(fitted)));
+        return fitted;
+    }
+
+    /**
+     * Called after a turn was stored. Starts summarizing the oldest turns if the
+     * conversation is over budget, or about to hit the store's message limit.
+     */
+    public void afterAppend(String conversationId) {
+        if (!properties.enabled() || compacting.contains(conversationId)) {
+            return;
+        }
+        List<ConversationMessage> history = conversationStore.getMessages(conversationId);
+        int[] tokens = tokens(history);
+        boolean overBudget = sum(tokens) > properties.tokenBudget();
+        boolean nearMessageLimit = history.size() + 2 * MESSAGE_LIMIT_HEADROOM > conversationProperties.maxMessages();
+        if (!overBudget && !nearMessageLimit) {
+            return;
+        }
+
+        List<ConversationMessage> folded = foldable(history, tokens);
+        if (folded.stream().filter(message -> !message.isSummary()).count() < 2
+                || !compacting.add(conversationId)) {
+            return;
+        }
+        try {
+            historySummarizer.summarize(conversationId, folded)
+                    .whenComplete((compacted, error) -> compacting.remove(conversationId));
+        } catch (RuntimeException e) {
+            compacting.remove(conversationId);
+            log.warn("Could not schedule summarizing conversation {}", conversationId, e);
+        }
+    }
+
+    public ConversationUsage usage(String conversationId) {
+        List<ConversationMessage> history = conversationStore.getMessages(conversationId);
+        int[] tokens = tokens(history);
+        List<ConversationMessage> prompt = properties.enabled() ? fitToBudget(history, tokens) : history;
+        return new ConversationUsage(
+                conversationId,
+                history.size(),
+                sum(tokens),
+                sum(tokens(prompt)),
+                properties.tokenBudget(),
+                !history.isEmpty() && history.getFirst().isSummary(),
+                compacting.contains(conversationId)
+        );
+    }
+
+    private List<ConversationMessage> fitToBudget(List<ConversationMessage> history, int[] tokens) {
+        int first = !history.isEmpty() && history.getFirst().isSummary() ? 1 : 0;
+        int total = sum(tokens);
+        int start = first;
+        while (start < history.size() && total > properties.tokenBudget()) {
+            total -= tokens[start++];
+        }
+        // Never start with an answer whose question was left out
+        while (start < history.size() && history.get(start).type() != MessageType.USER) {
+            start++;
+        }
+        if (start == first) {
+            return history;
+        }
+        List<ConversationMessage> fitted = new ArrayList<>(history.subList(0, first));
+        fitted.addAll(history.subList(start, history.size()));
+        return fitted;
+    }
+
+    /**
+     * Oldest messages, including any earlier summary, to fold so that the rest is
+     * down to {@code compact-to} of the budget and half the message limit.
+     * Whole exchanges only, and never the newest {@code keep-recent-messages}.
+     */
+    private List<ConversationMessage> foldable(List<ConversationMessage> history, int[] tokens) {
+        int target = (int) (properties.tokenBudget() * properties.compactTo());
+        int limit = history.size() - properties.keepRecentMessages();
+        int remaining = sum(tokens);
+        int end = 0;
+        while (end < limit && (remaining > target || history.size() - end > conversationProperties.maxMessages() / 2)) {
+            remaining -= tokens[end++];
+        }
+        while (end < limit && history.get(end).type() != MessageType.USER) {
+            end++;
+        }
+        return List.copyOf(history.subList(0, end));
+    }
+
+    private int[] tokens(List<ConversationMessage> messages) {
+        int[] tokens = new int[messages.size()];
+        for (int i = 0; i < tokens.length; i++) {
+            String content = messages.get(i).content();
+            tokens[i] = MESSAGE_OVERHEAD_TOKENS + (content == null ? 0 : tokenCountEstimator.estimate(content));
+        }
+        return tokens;
+    }
+
+    private static int sum(int[] values) {
+        int sum = 0;
+        for (int value : values) {
+            sum += value;
+        }
+        return sum;
+    }
+}
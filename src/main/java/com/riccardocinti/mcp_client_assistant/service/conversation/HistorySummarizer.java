@@ -0,0 +1,115 @@
+package com.riccardocinti.mcp_client_assistant.service.conversation;
+
+import com.riccardocinti.mcp_client_assistant.config.HistoryCompactionProperties;
+import com.riccardocinti.mcp_client_assistant.service.models.ModelRouter;
+import com.riccardocinti.mcp_client_assistant.service.models.ModelTask;
+import com.riccardocinti.mcp_client_assistant.service.scheduling.LlmScheduler;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Folds the oldest turns of a conversation into a rolling summary with the LLM.
+ * Runs asynchronously and only on an LLM slot that is free right now, so it never
+ * delays a request nor takes a place in the LLM queue. Without a free slot the
+ * summary is skipped and tried again after a later turn.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class HistorySummarizer {
+
+    private static final String SUMMARY_PROMPT = """
+            Summarize the conversation below in at most %d words, for your own later reference.
+            Keep names, numbers, decisions, open questions and anything the user asked you to remember.
+            If it starts with an earlier summary, merge that into the new one.
+            Answer with the summary only.
+            """;
+
+    private static final String SUMMARY_PREFIX = "Summary of the earlier conversation: ";
+
+    private final ChatClient mcpChatClient;
+
+    private final LlmScheduler llmScheduler;
+
+    private final ModelRouter modelRouter;
+
+    private final ConversationStore conversationStore;
+
+    private final HistoryCompactionProperties properties;
+
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * Summarizes {@code folded} and puts the summary in its place, unless the start
+     * of the conversation changed in the meantime or no LLM slot is free.
+     *
+     * @return whether the conversation was compacted
+     */
+    @Async
+    public CompletableFuture<Boolean> summarize(String conversationId, List<ConversationMessage> folded) {
+        long start = System.nanoTime();
+        String outcome = "error";
+        Optional<LlmScheduler.Permit> slot = llmScheduler.tryAcquire(0);
+        if (slot.isEmpty()) {
+            outcome = "skipped";
+            log.debug("Skipped summarizing conversation {}, no free LLM slot", conversationId);
+            recordCompaction(outcome, start);
+            return CompletableFuture.completedFuture(false);
+        }
+        try (var permit = slot.get()) {
+            String summary = mcpChatClient.prompt()
+                    .system(SUMMARY_PROMPT.formatted(properties.summaryMaxWords()))
+                    .user(transcript(folded))
+                    .options(modelRouter.options(ModelTask.SUMMARY))
+                    .call().content();
+            if (!StringUtils.hasText(summary)) {
+                outcome = "empty";
+                return CompletableFuture.completedFuture(false);
+            }
+
+            boolean replaced = conversationStore.replacePrefix(conversationId, folded,
+                    ConversationMessage.summary(SUMMARY_PREFIX + summary.strip()));
+            outcome = replaced ? "compacted" : "conflict";
+            log.info("Conversation {}: {} messages {} into a summary", conversationId, folded.size(),
+                    replaced ? "folded" : "not folded, history changed meanwhile,");
+            return CompletableFuture.completedFuture(replaced);
+        } catch (Exception e) {
+            log.warn("Summarizing conversation {} failed", conversationId, e);
+            return CompletableFuture.completedFuture(false);
+        } finally {
+            recordCompaction(outcome, start);
+        }
+    }
+
+    private void recordCompaction(String outcome, long startNanos) {
+        Timer.builder("assistant.conversation.compaction")
+                .description("Time taken to fold old turns into the rolling summary")
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private static String transcript(List<ConversationMessage> messages) {
+        StringBuilder transcript = new StringBuilder();
+        for (ConversationMessage message : messages) {
+            String speaker = switch (message.type()) {
+                case USER -> "User: ";
+                case ASSISTANT -> "Assistant: ";
+                default -> "";
+            };
+            transcript.append(speaker).append(message.content()).append("\n\n");
+        }
+        return transcript.toString();
+    }
+}
@@ -0,0 +1,241 @@
+package com.riccardocinti.mcp_client_assistant.service.conversation;
+
+import com.riccardocinti.mcp_client_assistant.config.ConversationProperties;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayDeque;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Heap-backed conversation store.
+ * <p>
+ * Each conversation is guarded by its own monitor, so requests on different
+ * conversations never contend. Conversations are evicted when idle for longer
+ * than the TTL, and least-recently-used ones are evicted when either the entry
+ * limit or the global memory budget is exceeded.
+ */
+@Service
+@ConditionalOnProperty(prefix = "assistant.conversation", name = "store", havingValue = "memory", matchIfMissing = true)
+@RequiredArgsConstructor
+@Slf4j
+public class InMemoryConversationStore implements ConversationStore {
+
+    /**
+     * When a limit is exceeded, evict down to this fraction of it so that the
+     * LRU scan is amortised over many appends.
+     */
+    private static final double LOW_WATERMARK = 0.9;
+
+    private final ConversationProperties properties;
+
+    private final Map<String, Conversation> conversations = new ConcurrentHashMap<>();
+
+    private final AtomicBoolean evicting = new AtomicBoolean();
+
+    private final AtomicLong totalBytes = new AtomicLong();
+    private final AtomicLong totalMessages = new AtomicLong();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong idleEvictions = new AtomicLong();
+    private final AtomicLong capacityEvictions = new AtomicLong();
+    private final AtomicLong memoryEvictions = new AtomicLong();
+
+    @Override
+    public List<ConversationMessage> getMessages(String conversationId) {
+        Conversation conversation = conversations.get(conversationId);
+        if (conversation == null) {
+            misses.incrementAndGet();
+            return List.of();
+        }
+        hits.incrementAndGet();
+        return conversation.snapshot();
+    }
+
+    @Override
+    public void append(String conversationId, List<ConversationMessage> messages) {
+        while (true) {
+            Conversation conversation = conversations.computeIfAbsent(conversationId, id -> new Conversation());
+            if (conversation.append(messages)) {
+                break;
+            }
+            // Lost a race with eviction, the instance we got is no longer in the map
+        }
+        enforceLimits();
+    }
+
+    @Override
+    public void clear(String conversationId) {
+        Conversation conversation = conversations.remove(conversationId);
+        if (conversation != null) {
+            conversation.discard();
+        }
+    }
+
+    @Override
+    public boolean replacePrefix(String conversationId, List<ConversationMessage> prefix,
+                                 ConversationMessage replacement) {
+        Conversation conversation = conversations.get(conversationId);
+        return conversation != null && conversation.replacePrefix(prefix, replacement);
+    }
+
+    @Override
+    public ConversationStoreStats getStats() {
+        return new ConversationStoreStats(
+                conversations.size(),
+                totalMessages.get(),
+                totalBytes.get(),
+                hits.get(),
+                misses.get(),
+                idleEvictions.get(),
+                capacityEvictions.get(),
+                memoryEvictions.get()
+        );
+    }
+
+    @Scheduled(fixedDelayString = "${assistant.conversation.sweep-interval:60s}")
+    public void evictIdle() {
+        long cutoff = System.nanoTime() - properties.idleTtl().toNanos();
+        conversations.forEach((id, conversation) -> {
+            if (conversation.lastAccess - cutoff < 0 && evict(id, conversation)) {
+                idleEvictions.incrementAndGet();
+            }
+        });
+    }
+
+    private void enforceLimits() {
+        long maxBytes = properties.maxMemory().toBytes();
+        int maxEntries = properties.maxEntries();
+        if (conversations.size() <= maxEntries && totalBytes.get() <= maxBytes) {
+            return;
+        }
+        // One thread evicting is enough, the others carry on
+        if (!evicting.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            evictLeastRecentlyUsed(maxEntries, maxBytes);
+        } finally {
+            evicting.set(false);
+        }
+    }
+
+    private void evictLeastRecentlyUsed(int maxEntries, long maxBytes) {
+        long targetBytes = (long) (maxBytes * LOW_WATERMARK);
+        int targetEntries = (int) (maxEntries * LOW_WATERMARK);
+
+        // Access times keep moving while we sort, so sort on a snapshot of them
+        var oldestFirst = conversations.entrySet().stream()
+                .map(entry -> new Candidate(entry.getKey(), entry.getValue(), entry.getValue().lastAccess))
+                .sorted(Comparator.comparingLong(Candidate::lastAccess))
+                .toList();
+        for (Candidate candidate : oldestFirst) {
+            boolean overEntries = conversations.size() > targetEntries;
+            boolean overBytes = totalBytes.get() > targetBytes;
+            if (!overEntries && !overBytes) {
+                break;
+            }
+            if (evict(candidate.id(), candidate.conversation())) {
+                (overEntries ? capacityEvictions : memoryEvictions).incrementAndGet();
+            }
+        }
+    }
+
+    private boolean evict(String conversationId, Conversation conversation) {
+        if (conversations.remove(conversationId, conversation)) {
+            conversation.discard();
+            log.debug("Evicted conversation {}", conversationId);
+            return true;
+        }
+        return false;
+    }
+
+    private record Candidate(String id, Conversation conversation, long lastAccess) {
+    }
+
+    private final class Conversation {
+
+        private final ArrayDeque<ConversationMessage> messages = new ArrayDeque<>();
+
+        private long bytes;
+
+        private boolean discarded;
+
+        private volatile long lastAccess = System.nanoTime();
+
+        synchronized List<ConversationMessage> snapshot() {
+            lastAccess = System.nanoTime();
+            return List.copyOf(messages);
+        }
+
+        synchronized boolean append(List<ConversationMessage> added) {
+            if (discarded) {
+                return false;
+            }
+            lastAccess = System.nanoTime();
+
+            long delta = 0;
+            for (ConversationMessage message : added) {
+                messages.addLast(message);
+                delta += message.estimatedBytes();
+            }
+            int removed = 0;
+            while (messages.size() > properties.maxMessages()) {
+                ConversationMessage first = messages.removeFirst();
+                if (first.isSummary() && !messages.isEmpty()) {
+                    // The summary stands for everything before it, drop the oldest turn after it instead
+                    delta -= messages.removeFirst().estimatedBytes();
+                    messages.addFirst(first);
+                } else {
+                    delta -= first.estimatedBytes();
+                }
+                removed++;
+            }
+
+            bytes += delta;
+            totalBytes.addAndGet(delta);
+            totalMessages.addAndGet(added.size() - removed);
+            return true;
+        }
+
+        synchronized boolean replacePrefix(List<ConversationMessage> prefix, ConversationMessage replacement) {
+            if (discarded || messages.size() < prefix.size()) {
+                return false;
+            }
+            Iterator<ConversationMessage> current = messages.iterator();
+            for (ConversationMessage expected : prefix) {
+                if (!expected.equals(current.next())) {
+                    return false;
+                }
+            }
+
+            long delta = replacement.estimatedBytes();
+            for (int i = 0; i < prefix.size(); i++) {
+                delta -= messages.removeFirst().estimatedBytes();
+            }
+            messages.addFirst(replacement);
+
+            bytes += delta;
+            totalBytes.addAndGet(delta);
+            totalMessages.addAndGet(1 - prefix.size());
+            return true;
+        }
+
+        synchronized void discard() {
+            discarded = true;
+            totalBytes.addAndGet(-bytes);
+            totalMessages.addAndGet(-messages.size());
+            bytes = 0;
+            messages.clear();
+        }
+    }
+}
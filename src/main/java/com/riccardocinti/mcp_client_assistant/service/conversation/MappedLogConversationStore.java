@@ -0,0 +1,442 @@
+package com.riccardocinti.mcp_client_assistant.service.conversation;
+
+import com.riccardocinti.mcp_client_assistant.config.ConversationLogProperties;
+import com.riccardocinti.mcp_client_assistant.config.ConversationProperties;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Conversation store persisted in an append-only, memory-mapped {@link ConversationLog}.
+ * <p>
+ * Every change is appended to the log before it is applied to the in-memory index,
+ * which only holds the log positions of each conversation's messages. Messages are
+ * decoded from the mapping when a conversation is read, so history costs no heap
+ * while it sits in the store. On startup the log is replayed to rebuild the index.
+ * <p>
+ * Limits are those of the in-memory store, with the memory budget applied to the
+ * live messages in the log. Evicted and cleared conversations leave dead records
+ * behind; compaction rewrites what is still live in the oldest segments and deletes
+ * them. Only the oldest segments are ever deleted, so the removal of a conversation
+ * can never be forgotten while older records of it remain.
+ */
+@Service
+@ConditionalOnProperty(prefix = "assistant.conversation", name = "store", havingValue = "log")
+@Slf4j
+public class MappedLogConversationStore implements ConversationStore {
+
+    /**
+     * When a limit is exceeded, evict down to this fraction of it so that the
+     * LRU scan is amortised over many appends.
+     */
+    private static final double LOW_WATERMARK = 0.9;
+
+    private final ConversationProperties properties;
+
+    private final ConversationLogProperties logProperties;
+
+    private final ConversationLog conversationLog;
+
+    private final Map<String, Conversation> conversations = new ConcurrentHashMap<>();
+
+    private final AtomicBoolean evicting = new AtomicBoolean();
+
+    private final AtomicLong totalBytes = new AtomicLong();
+    private final AtomicLong totalMessages = new AtomicLong();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong idleEvictions = new AtomicLong();
+    private final AtomicLong capacityEvictions = new AtomicLong();
+    private final AtomicLong memoryEvictions = new AtomicLong();
+
+    public MappedLogConversationStore(ConversationProperties properties, ConversationLogProperties logProperties,
+                                      MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.logProperties = logProperties;
+        this.conversationLog = new ConversationLog(Path.of(logProperties.directory()),
+                Math.toIntExact(logProperties.segmentSize().toBytes()), logProperties.forceWrites());
+
+        Gauge.builder("assistant.conversations.log.segments", conversationLog, ConversationLog::segmentCount)
+                .description("Segment files of the conversation log")
+                .register(meterRegistry);
+        Gauge.builder("assistant.conversations.log.size", conversationLog, ConversationLog::sizeBytes)
+                .description("Bytes written to the conversation log segments")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Rebuilds the index from the log.
+     */
+    @PostConstruct
+    public void recover() {
+        long start = System.nanoTime();
+        conversationLog.open(this::replay);
+        log.info("Recovered {} conversations with {} messages from {} conversation log segments in {} ms",
+                conversations.size(), totalMessages.get(), conversationLog.segmentCount(),
+                (System.nanoTime() - start) / 1_000_000);
+    }
+
+    @PreDestroy
+    public void close() {
+        conversationLog.close();
+    }
+
+    @Override
+    public List<ConversationMessage> getMessages(String conversationId) {
+        Conversation conversation = conversations.get(conversationId);
+        if (conversation == null) {
+            misses.incrementAndGet();
+            return List.of();
+        }
+        hits.incrementAndGet();
+        return conversation.snapshot();
+    }
+
+    @Override
+    public void append(String conversationId, List<ConversationMessage> messages) {
+        while (true) {
+            Conversation conversation = conversations.computeIfAbsent(conversationId, Conversation::new);
+            if (conversation.append(messages)) {
+                break;
+            }
+            // Lost a race with eviction, the instance we got is no longer in the map
+        }
+        enforceLimits();
+    }
+
+    @Override
+    public void clear(String conversationId) {
+        conversations.computeIfPresent(conversationId, (id, conversation) -> {
+            conversation.discard();
+            return null;
+        });
+    }
+
+    @Override
+    public boolean replacePrefix(String conversationId, List<ConversationMessage> prefix,
+                                 ConversationMessage replacement) {
+        Conversation conversation = conversations.get(conversationId);
+        return conversation != null && conversation.replacePrefix(prefix, replacement);
+    }
+
+    @Override
+    public ConversationStoreStats getStats() {
+        return new ConversationStoreStats(
+                conversations.size(),
+                totalMessages.get(),
+                totalBytes.get(),
+                hits.get(),
+                misses.get(),
+                idleEvictions.get(),
+                capacityEvictions.get(),
+                memoryEvictions.get()
+        );
+    }
+
+    @Scheduled(fixedDelayString = "${assistant.conversation.sweep-interval:60s}")
+    public void evictIdle() {
+        long cutoff = System.currentTimeMillis() - properties.idleTtl().toMillis();
+        conversations.forEach((id, conversation) -> {
+            if (conversation.lastAccess < cutoff && evict(id, conversation)) {
+                idleEvictions.incrementAndGet();
+            }
+        });
+    }
+
+    /**
+     * Rewrites the live conversations of the oldest segments with few live messages
+     * left and deletes those segments. Stops at the first segment still mostly live.
+     * A conversation spread over several of them is rewritten once per pass.
+     */
+    @Scheduled(fixedDelayString = "${assistant.conversation.log.compaction-interval:5m}")
+    public void compact() {
+        List<ConversationLog.SegmentInfo> compacted = new ArrayList<>();
+        // Any record may matter on replay, not only the messages still referenced
+        Set<String> ids = new LinkedHashSet<>();
+        for (ConversationLog.SegmentInfo segment : conversationLog.sealedSegments()) {
+            if (segment.liveRatio() >= logProperties.compactBelow()) {
+                break;
+            }
+            compacted.add(segment);
+            ids.addAll(conversationLog.conversationsIn(segment.id()));
+        }
+        if (compacted.isEmpty()) {
+            return;
+        }
+        int rewritten = 0;
+        for (String id : ids) {
+            Conversation conversation = conversations.get(id);
+            if (conversation != null && conversation.rewrite()) {
+                rewritten++;
+            }
+        }
+        // The snapshots must be on disk before the records they replace are gone
+        conversationLog.force();
+        for (ConversationLog.SegmentInfo segment : compacted) {
+            conversationLog.delete(segment.id());
+            log.info("Compacted conversation log segment {}: {} of {} bytes live",
+                    segment.id(), segment.liveBytes(), segment.writtenBytes());
+        }
+        log.info("Conversation log compaction rewrote {} conversations", rewritten);
+    }
+
+    private void replay(ConversationLog.Record record) {
+        String id = record.conversationId();
+        switch (record.kind()) {
+            case APPEND -> conversations.computeIfAbsent(id, Conversation::new).restoreAppend(record.messages());
+            case REPLACE_PREFIX -> conversations.computeIfAbsent(id, Conversation::new)
+                    .restoreReplace(record.prefixCount(), record.messages()[0]);
+            case SNAPSHOT -> conversations.computeIfAbsent(id, Conversation::new).restoreSnapshot(record.messages());
+            case CLEAR -> {
+                Conversation conversation = conversations.remove(id);
+                if (conversation != null) {
+                    conversation.release();
+                }
+            }
+        }
+        Conversation conversation = conversations.get(id);
+        if (conversation != null) {
+            conversation.lastAccess = Math.max(conversation.lastAccess, record.timestamp());
+        }
+    }
+
+    private void enforceLimits() {
+        long maxBytes = properties.maxMemory().toBytes();
+        int maxEntries = properties.maxEntries();
+        if (conversations.size() <= maxEntries && totalBytes.get() <= maxBytes) {
+            return;
+        }
+        // One thread evicting is enough, the others carry on
+        if (!evicting.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            evictLeastRecentlyUsed(maxEntries, maxBytes);
+        } finally {
+            evicting.set(false);
+        }
+    }
+
+    private void evictLeastRecentlyUsed(int maxEntries, long maxBytes) {
+        long targetBytes = (long) (maxBytes * LOW_WATERMARK);
+        int targetEntries = (int) (maxEntries * LOW_WATERMARK);
+
+        // Access times keep moving while we sort, so sort on a snapshot of them
+        var oldestFirst = conversations.entrySet().stream()
+                .map(entry -> new Candidate(entry.getKey(), entry.getValue(), entry.getValue().lastAccess))
+                .sorted(Comparator.comparingLong(Candidate::lastAccess))
+                .toList();
+        for (Candidate candidate : oldestFirst) {
+            boolean overEntries = conversations.size() > targetEntries;
+            boolean overBytes = totalBytes.get() > targetBytes;
+            if (!overEntries && !overBytes) {
+                break;
+            }
+            if (evict(candidate.id(), candidate.conversation())) {
+                (overEntries ? capacityEvictions : memoryEvictions).incrementAndGet();
+            }
+        }
+    }
+
+    private boolean evict(String conversationId, Conversation conversation) {
+        AtomicBoolean evicted = new AtomicBoolean();
+        // Removing under the map's lock keeps a new conversation with this ID from
+        // logging its first messages before our clear record
+        conversations.computeIfPresent(conversationId, (id, current) -> {
+            if (current != conversation) {
+                return current;
+            }
+            current.discard();
+            evicted.set(true);
+            return null;
+        });
+        if (evicted.get()) {
+            log.debug("Evicted conversation {}", conversationId);
+        }
+        return evicted.get();
+    }
+
+    private record Candidate(String id, Conversation conversation, long lastAccess) {
+    }
+
+    /**
+     * Log references of one conversation's messages, oldest first, in a ring buffer of longs.
+     */
+    private final class Conversation {
+
+        private final String id;
+
+        private long[] refs = new long[8];
+
+        private int head;
+
+        private int size;
+
+        private boolean discarded;
+
+        /**
+         * Wall-clock millis, so that access times recovered from the log stay comparable.
+         */
+        private volatile long lastAccess = System.currentTimeMillis();
+
+        Conversation(String id) {
+            this.id = id;
+        }
+
+        synchronized List<ConversationMessage> snapshot() {
+            lastAccess = System.currentTimeMillis();
+            List<ConversationMessage> messages = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                messages.add(conversationLog.read(get(i)));
+            }
+            return List.copyOf(messages);
+        }
+
+        synchronized boolean append(List<ConversationMessage> added) {
+            if (discarded) {
+                return false;
+            }
+            lastAccess = System.currentTimeMillis();
+            restoreAppend(conversationLog.append(ConversationLog.Kind.APPEND, id, 0, added));
+            return true;
+        }
+
+        synchronized boolean replacePrefix(List<ConversationMessage> prefix, ConversationMessage replacement) {
+            if (discarded || size < prefix.size()) {
+                return false;
+            }
+            for (int i = 0; i < prefix.size(); i++) {
+                if (!prefix.get(i).equals(conversationLog.read(get(i)))) {
+                    return false;
+                }
+            }
+            long[] written = conversationLog.append(ConversationLog.Kind.REPLACE_PREFIX, id, prefix.size(),
+                    List.of(replacement));
+            restoreReplace(prefix.size(), written[0]);
+            return true;
+        }
+
+        /**
+         * Writes the live messages again at the end of the log so older segments can go.
+         */
+        synchronized boolean rewrite() {
+            if (discarded) {
+                return false;
+            }
+            List<ConversationMessage> messages = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                messages.add(conversationLog.read(get(i)));
+            }
+            restoreSnapshot(conversationLog.append(ConversationLog.Kind.SNAPSHOT, id, 0, messages));
+            return true;
+        }
+
+        /**
+         * Logs the removal of the conversation and releases its messages.
+         */
+        synchronized void discard() {
+            discarded = true;
+            conversationLog.append(ConversationLog.Kind.CLEAR, id, 0, List.of());
+            release();
+        }
+
+        synchronized void release() {
+            while (size > 0) {
+                drop(removeFirst());
+            }
+        }
+
+        // The restore methods apply a logged change to the index, at runtime and on replay alike
+
+        synchronized void restoreAppend(long[] added) {
+            for (long ref : added) {
+                addLast(ref);
+                totalBytes.addAndGet(conversationLog.sizeOf(ref));
+            }
+            totalMessages.addAndGet(added.length);
+            while (size > properties.maxMessages()) {
+                long first = removeFirst();
+                if (conversationLog.isSummary(first) && size > 0) {
+                    // The summary stands for everything before it, drop the oldest turn after it instead
+                    drop(removeFirst());
+                    addFirst(first);
+                } else {
+                    drop(first);
+                }
+            }
+        }
+
+        synchronized void restoreReplace(int prefixCount, long replacement) {
+            for (int i = Math.min(prefixCount, size); i > 0; i--) {
+                drop(removeFirst());
+            }
+            addFirst(replacement);
+            totalBytes.addAndGet(conversationLog.sizeOf(replacement));
+            totalMessages.incrementAndGet();
+        }
+
+        synchronized void restoreSnapshot(long[] messages) {
+            release();
+            restoreAppend(messages);
+        }
+
+        private void drop(long ref) {
+            totalBytes.addAndGet(-conversationLog.sizeOf(ref));
+            totalMessages.decrementAndGet();
+            conversationLog.release(ref);
+        }
+
+        private long get(int index) {
+            return refs[(head + index) & (refs.length - 1)];
+        }
+
+        private void addLast(long ref) {
+            grow();
+            refs[(head + size) & (refs.length - 1)] = ref;
+            size++;
+        }
+
+        private void addFirst(long ref) {
+            grow();
+            head = (head - 1) & (refs.length - 1);
+            refs[head] = ref;
+            size++;
+        }
+
+        private long removeFirst() {
+            long ref = refs[head];
+            head = (head + 1) & (refs.length - 1);
+            size--;
+            return ref;
+        }
+
+        private void grow() {
+            if (size < refs.length) {
+                return;
+            }
+            long[] larger = new long[refs.length * 2];
+            for (int i = 0; i < size; i++) {
+                larger[i] = get(i);
+            }
+            refs = larger;
+            head = 0;
+        }
+    }
+}
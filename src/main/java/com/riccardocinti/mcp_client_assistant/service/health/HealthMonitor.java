@@ -0,0 +1,200 @@
+package com.riccardocinti.mcp_client_assistant.service.health;
+
+import com.riccardocinti.mcp_client_assistant.config.HealthProperties;
+import com.riccardocinti.mcp_client_assistant.model.ComponentHealth;
+import com.riccardocinti.mcp_client_assistant.service.McpConnection;
+import com.riccardocinti.mcp_client_assistant.service.models.ModelPool;
+import com.riccardocinti.mcp_client_assistant.service.models.ModelRouter;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * Probes Ollama and the MCP servers on a background schedule and caches the results.
+ * <p>
+ * Probes are deliberately cheap: every Ollama endpoint of the pool is asked for its
+ * model list rather than a completion, and MCP servers receive a protocol ping. All
+ * probes of a round run concurrently. Readers never trigger a probe, they always get
+ * the last snapshot.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class HealthMonitor {
+
+    private final ModelPool modelPool;
+
+    private final ModelRouter modelRouter;
+
+    private final List<McpConnection> mcpConnections;
+
+    private final HealthProperties properties;
+
+    private final ExecutorService probeExecutor = Executors.newVirtualThreadPerTaskExecutor();
+
+    private final AtomicReference<HealthSnapshot> snapshot =
+            new AtomicReference<>(new HealthSnapshot(ComponentHealth.unknown(), Map.of(), null));
+
+    @Scheduled(fixedDelayString = "${assistant.health.interval:15s}")
+    public void probe() {
+        long start = System.nanoTime();
+        Set<String> models = new LinkedHashSet<>(modelRouter.getRoutes().values());
+        Map<String, Future<ModelPool.ModelCheck>> endpoints = new LinkedHashMap<>();
+        for (String endpoint : modelPool.getEndpointNames()) {
+            endpoints.put(endpoint, probeExecutor.submit(() -> modelPool.checkModels(endpoint, models)));
+        }
+
+        Map<String, Future<ComponentHealth>> mcp = new LinkedHashMap<>();
+        for (McpConnection connection : mcpConnections) {
+            mcp.put(connection.serverName(), probeExecutor.submit(() -> timed(() -> probeMcp(connection))));
+        }
+        // Probes run concurrently, so the whole round is bounded by one timeout
+        long deadline = System.nanoTime() + properties.timeout().toNanos();
+
+        Map<String, ComponentHealth> mcpResults = new LinkedHashMap<>();
+        mcp.forEach((name, future) -> mcpResults.put(name, await(future, deadline)));
+
+        ComponentHealth ollama = ollamaHealth(models, endpoints, deadline, start);
+        HealthSnapshot next = new HealthSnapshot(ollama, Map.copyOf(mcpResults), Instant.now());
+        HealthSnapshot previous = snapshot.getAndSet(next);
+        logTransitions(previous, next);
+    }
+
+    public HealthSnapshot getSnapshot() {
+        return snapshot.get();
+    }
+
+    /**
+     * Up while every routed model is pulled on at least one reachable endpoint: the pool
+     * fails over and ejects the others, so one dead endpoint must not take the instance
+     * out of readiness. Endpoints that cannot be reached or miss a model they serve are
+     * reported as degraded.
+     */
+    private ComponentHealth ollamaHealth(Set<String> models, Map<String, Future<ModelPool.ModelCheck>> endpoints,
+                                         long deadlineNanos, long startNanos) {
+        Set<String> available = new HashSet<>();
+        List<String> degraded = new ArrayList<>();
+        endpoints.forEach((endpoint, future) -> {
+            try {
+                ModelPool.ModelCheck check = future.get(Math.max(0, deadlineNanos - System.nanoTime()),
+                        TimeUnit.NANOSECONDS);
+                available.addAll(check.available());
+                if (!check.missing().isEmpty()) {
+                    degraded.add(endpoint + ": models " + check.missing() + " not pulled");
+                }
+            } catch (TimeoutException e) {
+                future.cancel(true);
+                degraded.add(endpoint + ": probe timed out after " + properties.timeout());
+            } catch (ExecutionException e) {
+                degraded.add(endpoint + ": " + e.getCause().getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                future.cancel(true);
+                degraded.add(endpoint + ": probe interrupted");
+            }
+        });
+
+        List<String> unserved = models.stream().filter(model -> !available.contains(model)).toList();
+        String detail = unserved.isEmpty()
+                ? "models " + models + " available on " + (endpoints.size() - degraded.size()) + " of "
+                + endpoints.size() + " endpoint(s)"
+                : "no reachable endpoint serves models " + unserved;
+        return new ComponentHealth(unserved.isEmpty(), detail, Instant.now(), elapsedMillis(startNanos),
+                List.copyOf(degraded));
+    }
+
+    private String probeMcp(McpConnection connection) {
+        if (!connection.isInitialized()) {
+            throw new IllegalStateException("Client not initialized");
+        }
+        connection.ping();
+        return "ping ok";
+    }
+
+    private ComponentHealth timed(Supplier<String> probe) {
+        long start = System.nanoTime();
+        try {
+            String detail = probe.get();
+            return new ComponentHealth(true, detail, Instant.now(), elapsedMillis(start));
+        } catch (Exception e) {
+            return new ComponentHealth(false, e.getMessage(), Instant.now(), elapsedMillis(start));
+        }
+    }
+
+    private ComponentHealth await(Future<ComponentHealth> future, long deadlineNanos) {
+        try {
+            return future.get(Math.max(0, deadlineNanos - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            // Interrupts the probe's thread, unlike cancelling a CompletableFuture
+            future.cancel(true);
+            return new ComponentHealth(false, "probe timed out after " + properties.timeout(),
+                    Instant.now(), properties.timeout().toMillis());
+        } catch (ExecutionException e) {
+            return new ComponentHealth(false, e.getCause().getMessage(), Instant.now(), 0);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            future.cancel(true);
+            return new ComponentHealth(false, "probe interrupted", Instant.now(), 0);
+        }
+    }
+
+    private void logTransitions(HealthSnapshot previous, HealthSnapshot next) {
+        if (previous.ollama().up() != next.ollama().up()) {
+            log.info("Ollama health changed: {} ({})", next.ollama().up() ? "UP" : "DOWN", next.ollama().detail());
+        }
+        if (!previous.ollama().degraded().equals(next.ollama().degraded())) {
+            log.info("Degraded Ollama endpoints: {}", next.ollama().degraded().isEmpty()
+                    ? "none" : String.join("; ", next.ollama().degraded()));
+        }
+        next.mcpServers().forEach((name, health) -> {
+            ComponentHealth before = previous.mcpServers().get(name);
+            if (before == null || before.up() != health.up()) {
+                log.info("MCP server {} health changed: {} ({})", name, health.up() ? "UP" : "DOWN", health.detail());
+            }
+        });
+    }
+
+    private static long elapsedMillis(long startNanos) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        probeExecutor.shutdownNow();
+    }
+
+    /**
+     * Result of the last completed probe round.
+     *
+     * @param completedAt when the round finished, null until the first round has run
+     */
+    public record HealthSnapshot(
+            ComponentHealth ollama,
+            Map<String, ComponentHealth> mcpServers,
+            Instant completedAt
+    ) {
+
+        public boolean allMcpServersUp() {
+            return mcpServers.values().stream().allMatch(ComponentHealth::up);
+        }
+    }
+}
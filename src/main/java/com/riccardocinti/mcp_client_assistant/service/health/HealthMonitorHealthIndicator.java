@@ -0,0 +1,41 @@
+package com.riccardocinti.mcp_client_assistant.service.health;
+
+import com.riccardocinti.mcp_client_assistant.config.HealthProperties;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Liveness check for the probing itself: if no probe round has completed for
+ * several intervals the scheduler is stuck and the instance should be restarted.
+ * Dependency health deliberately stays out of liveness.
+ */
+@Component
+@RequiredArgsConstructor
+public class HealthMonitorHealthIndicator implements HealthIndicator {
+
+    private static final int MISSED_ROUNDS = 3;
+
+    private final HealthMonitor healthMonitor;
+
+    private final HealthProperties properties;
+
+    private final Instant startedAt = Instant.now();
+
+    @Override
+    public Health health() {
+        Instant lastRound = healthMonitor.getSnapshot().completedAt();
+        Instant reference = lastRound != null ? lastRound : startedAt;
+        Duration maxAge = properties.interval().plus(properties.timeout()).multipliedBy(MISSED_ROUNDS);
+        Duration age = Duration.between(reference, Instant.now());
+
+        return (age.compareTo(maxAge) <= 0 ? Health.up() : Health.down())
+                .withDetail("lastRound", String.valueOf(lastRound))
+                .withDetail("maxAge", maxAge.toString())
+                .build();
+    }
+}
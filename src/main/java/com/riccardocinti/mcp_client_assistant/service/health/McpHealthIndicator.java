@@ -0,0 +1,50 @@
+package com.riccardocinti.mcp_client_assistant.service.health;
+
+import com.riccardocinti.mcp_client_assistant.service.McpConnection;
+import com.riccardocinti.mcp_client_assistant.service.startup.McpServerStartup;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Reports the cached MCP server probe results, never calls the servers itself.
+ * <p>
+ * Only the required servers ({@code assistant.mcp-startup.required}) decide the
+ * status; optional servers are listed in the details and may come up later.
+ */
+@Component
+@RequiredArgsConstructor
+public class McpHealthIndicator implements HealthIndicator {
+
+    private final HealthMonitor healthMonitor;
+
+    private final McpServerStartup mcpServerStartup;
+
+    private final List<McpConnection> mcpConnections;
+
+    @Override
+    public Health health() {
+        if (!mcpServerStartup.requiredServersStarted()) {
+            return Health.outOfService()
+                    .withDetail("detail", "required MCP servers still starting")
+                    .withDetail("startup", mcpServerStartup.getStatus())
+                    .build();
+        }
+        var snapshot = healthMonitor.getSnapshot();
+        if (snapshot.completedAt() == null) {
+            return Health.unknown().withDetail("detail", "not checked yet").build();
+        }
+        boolean requiredUp = mcpConnections.stream()
+                .filter(connection -> mcpServerStartup.isRequired(connection.connectionName()))
+                .map(connection -> snapshot.mcpServers().get(connection.serverName()))
+                // A server that started after the last probe round has no result yet
+                .allMatch(health -> health == null || health.up());
+        return (requiredUp ? Health.up() : Health.down())
+                .withDetails(snapshot.mcpServers())
+                .withDetail("startup", mcpServerStartup.getStatus())
+                .build();
+    }
+}
@@ -0,0 +1,31 @@
+package com.riccardocinti.mcp_client_assistant.service.health;
+
+import com.riccardocinti.mcp_client_assistant.model.ComponentHealth;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+/**
+ * Reports the cached Ollama probe result, never calls Ollama itself.
+ */
+@Component
+@RequiredArgsConstructor
+public class OllamaHealthIndicator implements HealthIndicator {
+
+    private final HealthMonitor healthMonitor;
+
+    @Override
+    public Health health() {
+        ComponentHealth ollama = healthMonitor.getSnapshot().ollama();
+        Health.Builder health = (ollama.up() ? Health.up() : Health.down())
+                .withDetail("detail", ollama.detail())
+                .withDetail("checkedAt", String.valueOf(ollama.checkedAt()))
+                .withDetail("latencyMs", ollama.latencyMs());
+        if (!ollama.degraded().isEmpty()) {
+            // Endpoints the pool routes around, they do not take the instance out of readiness
+            health.withDetail("degraded", ollama.degraded());
+        }
+        return health.build();
+    }
+}
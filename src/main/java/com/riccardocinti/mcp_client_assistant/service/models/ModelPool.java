@@ -0,0 +1,513 @@
+package com.riccardocinti.mcp_client_assistant.service.models;
+
+import com.riccardocinti.mcp_client_assistant.config.ModelPoolProperties;
+import com.riccardocinti.mcp_client_assistant.model.ModelEndpointStatus;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.observation.ObservationRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.prompt.ChatOptions;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.model.ollama.autoconfigure.OllamaConnectionDetails;
+import org.springframework.ai.model.tool.DefaultToolExecutionEligibilityPredicate;
+import org.springframework.ai.model.tool.ToolCallingChatOptions;
+import org.springframework.ai.model.tool.ToolCallingManager;
+import org.springframework.ai.model.tool.ToolExecutionEligibilityPredicate;
+import org.springframework.ai.model.tool.ToolExecutionResult;
+import org.springframework.ai.ollama.OllamaChatModel;
+import org.springframework.ai.ollama.api.OllamaApi;
+import org.springframework.ai.ollama.api.OllamaOptions;
+import org.springframework.ai.retry.RetryUtils;
+import org.springframework.ai.retry.TransientAiException;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.retry.support.RetryTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestClient;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Spreads chat requests across a pool of Ollama endpoints.
+ * <p>
+ * Requests name their model in the options (see {@link ModelRouter}) and go to the
+ * available endpoint serving that model with the fewest requests in flight. Health is
+ * checked passively: an endpoint whose requests fail {@code eject-after-failures} times
+ * in a row with a connection error or a 5xx is taken out of rotation for
+ * {@code ejection-time}. A request that failed that way is tried again on another
+ * endpoint, up to {@code max-attempts} endpoints; a stream only while it has not
+ * emitted anything yet.
+ * <p>
+ * The pool runs the tool calling loop itself and the endpoints only ever answer a
+ * single model call, so failover repeats that model call and never a tool call that
+ * already ran.
+ * <p>
+ * Without configured endpoints the pool holds the auto-configured model only, so a
+ * single Ollama server behaves as before.
+ */
+@Service
+@Slf4j
+public class ModelPool {
+
+    private static final String DEFAULT_ENDPOINT = "default";
+
+    private final ModelPoolProperties properties;
+
+    private final MeterRegistry meterRegistry;
+
+    private final OllamaOptions defaultOptions;
+
+    private final ToolCallingManager toolCallingManager;
+
+    private final ToolExecutionEligibilityPredicate toolExecutionEligibility =
+            new DefaultToolExecutionEligibilityPredicate();
+
+    private final List<Endpoint> endpoints;
+
+    private final AtomicInteger rotation = new AtomicInteger();
+
+    private final ChatModel chatModel = new PooledChatModel();
+
+    public ModelPool(ModelPoolProperties properties,
+                     OllamaChatModel ollamaChatModel,
+                     OllamaApi defaultOllamaApi,
+                     OllamaConnectionDetails connectionDetails,
+                     ToolCallingManager toolCallingManager,
+                     ObservationRegistry observationRegistry,
+                     ObjectProvider<RestClient.Builder> restClientBuilder,
+                     ObjectProvider<WebClient.Builder> webClientBuilder,
+                     MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+        this.defaultOptions = ((OllamaOptions) ollamaChatModel.getDefaultOptions()).copy();
+        this.toolCallingManager = toolCallingManager;
+
+        List<Endpoint> created = new ArrayList<>();
+        if (properties.endpoints().isEmpty()) {
+            created.add(new Endpoint(DEFAULT_ENDPOINT, connectionDetails.getBaseUrl(), List.of(),
+                    defaultOllamaApi, ollamaChatModel));
+        }
+        properties.endpoints().forEach((name, endpoint) -> {
+            OllamaApi ollamaApi = OllamaApi.builder()
+                    .baseUrl(endpoint.baseUrl())
+                    .restClientBuilder(restClientBuilder.getIfAvailable(RestClient::builder))
+                    .webClientBuilder(webClientBuilder.getIfAvailable(WebClient::builder))
+                    .responseErrorHandler(RetryUtils.DEFAULT_RESPONSE_ERROR_HANDLER)
+                    .build();
+            OllamaChatModel model = OllamaChatModel.builder()
+                    .ollamaApi(ollamaApi)
+                    .defaultOptions(defaultOptions.copy())
+                    .toolCallingManager(toolCallingManager)
+                    .observationRegistry(observationRegistry)
+                    // Failover to another endpoint replaces retrying against the same one
+                    .retryTemplate(RetryTemplate.builder().maxAttempts(1).build())
+                    .build();
+            created.add(new Endpoint(name, endpoint.baseUrl(), List.copyOf(endpoint.models()), ollamaApi, model));
+        });
+        this.endpoints = List.copyOf(created);
+        log.info("Model pool with {} endpoints: {}", endpoints.size(),
+                endpoints.stream().map(endpoint -> endpoint.name + "=" + endpoint.baseUrl).toList());
+    }
+
+    /**
+     * Chat model that dispatches every request to an endpoint of the pool.
+     */
+    public ChatModel chatModel() {
+        return chatModel;
+    }
+
+    public List<ModelEndpointStatus> getStatus() {
+        return endpoints.stream().map(Endpoint::status).toList();
+    }
+
+    public List<String> getEndpointNames() {
+        return endpoints.stream().map(endpoint -> endpoint.name).toList();
+    }
+
+    /**
+     * Asks the endpoint for its model list and checks which of the given models it serves are pulled.
+     *
+     * @throws RuntimeException if the endpoint cannot be reached
+     */
+    public ModelCheck checkModels(String endpointName, Collection<String> models) {
+        Endpoint endpoint = endpoints.stream()
+                .filter(candidate -> candidate.name.equals(endpointName))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("Unknown Ollama endpoint " + endpointName));
+        List<String> served = models.stream().filter(endpoint::serves).distinct().toList();
+        var pulled = endpoint.ollamaApi.listModels().models();
+        List<String> missing = served.stream()
+                .filter(model -> pulled.stream().noneMatch(m -> m.name().equals(model)
+                        || (!model.contains(":") && m.name().equals(model + ":latest"))))
+                .toList();
+        return new ModelCheck(served.stream().filter(model -> !missing.contains(model)).toList(), missing);
+    }
+
+    /**
+     * @param available models the endpoint serves and has pulled
+     * @param missing   models the endpoint should serve but has not pulled
+     */
+    public record ModelCheck(List<String> available, List<String> missing) {
+    }
+
+    private String modelOf(Prompt prompt) {
+        ChatOptions options = prompt.getOptions();
+        return options != null && options.getModel() != null ? options.getModel() : defaultOptions.getModel();
+    }
+
+    /**
+     * The prompt with internal tool execution switched off, so an endpoint returns the
+     * tool calls instead of running them.
+     */
+    private static Prompt modelCallOnly(Prompt prompt) {
+        ToolCallingChatOptions options = prompt.getOptions() instanceof ToolCallingChatOptions toolOptions
+                ? toolOptions.copy()
+                : OllamaOptions.builder().build();
+        options.setInternalToolExecutionEnabled(false);
+        return new Prompt(prompt.getInstructions(), options);
+    }
+
+    private boolean runsTools(Prompt prompt, ChatResponse response) {
+        return prompt.getOptions() != null
+                && toolExecutionEligibility.isToolExecutionRequired(prompt.getOptions(), response);
+    }
+
+    private static ChatResponse returnDirect(ChatResponse response, ToolExecutionResult result) {
+        return ChatResponse.builder()
+                .from(response)
+                .generations(ToolExecutionResult.buildGenerations(result))
+                .build();
+    }
+
+    /**
+     * Available endpoint serving the model with the fewest requests in flight, skipping
+     * endpoints this request already tried. The scan starts at a rotating offset so ties
+     * are spread. When every candidate is ejected the one coming back first is tried
+     * rather than failing outright. Null once no candidate is left.
+     */
+    private Endpoint select(String model, Set<Endpoint> tried) {
+        Instant now = Instant.now();
+        int size = endpoints.size();
+        int start = Math.floorMod(rotation.getAndIncrement(), size);
+        Endpoint best = null;
+        Endpoint ejected = null;
+        for (int i = 0; i < size; i++) {
+            Endpoint candidate = endpoints.get((start + i) % size);
+            if (!candidate.serves(model) || tried.contains(candidate)) {
+                continue;
+            }
+            if (candidate.isAvailable(now)) {
+                if (best == null || candidate.outstanding.get() < best.outstanding.get()) {
+                    best = candidate;
+                }
+            } else if (ejected == null || candidate.ejectedUntil.isBefore(ejected.ejectedUntil)) {
+                ejected = candidate;
+            }
+        }
+        return best != null ? best : ejected;
+    }
+
+    private Endpoint first(String model, Set<Endpoint> tried) {
+        Endpoint endpoint = select(model, tried);
+        if (endpoint == null) {
+            throw new IllegalStateException("No Ollama endpoint serves model " + model);
+        }
+        tried.add(endpoint);
+        return endpoint;
+    }
+
+    /**
+     * The next endpoint to try after {@code failed} failed, or null if the failure is returned.
+     */
+    private Endpoint retry(Endpoint failed, String model, Set<Endpoint> tried, Throwable error) {
+        if (tried.size() >= properties.maxAttempts()) {
+            return null;
+        }
+        Endpoint next = select(model, tried);
+        if (next == null) {
+            return null;
+        }
+        tried.add(next);
+        failed.retried.increment();
+        log.warn("Ollama endpoint {} failed for model {}, retrying on {}: {}",
+                failed.name, model, next.name, error.getMessage());
+        return next;
+    }
+
+    /**
+     * Whether the error says the endpoint itself is unhealthy (unreachable, timed out,
+     * 5xx) rather than the request being wrong.
+     */
+    private static boolean isEndpointFailure(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof TransientAiException
+                    || cause instanceof ResourceAccessException
+                    || cause instanceof HttpServerErrorException
+                    || cause instanceof WebClientRequestException
+                    || cause instanceof IOException) {
+                return true;
+            }
+            if (cause instanceof WebClientResponseException response && response.getStatusCode().is5xxServerError()) {
+                return true;
+            }
+            if (cause.getCause() == cause) {
+                break;
+            }
+        }
+        return false;
+    }
+
+    private final class PooledChatModel implements ChatModel {
+
+        @Override
+        public ChatResponse call(Prompt prompt) {
+            Prompt current = prompt;
+            while (true) {
+                ChatResponse response = callOnce(modelCallOnly(current));
+                if (!runsTools(prompt, response)) {
+                    return response;
+                }
+                ToolExecutionResult result = toolCallingManager.executeToolCalls(current, response);
+                if (result.returnDirect()) {
+                    return returnDirect(response, result);
+                }
+                current = new Prompt(result.conversationHistory(), prompt.getOptions());
+            }
+        }
+
+        private ChatResponse callOnce(Prompt prompt) {
+            String model = modelOf(prompt);
+            Set<Endpoint> tried = ConcurrentHashMap.newKeySet();
+            Endpoint endpoint = first(model, tried);
+            while (true) {
+                Attempt attempt = endpoint.begin(model);
+                try {
+                    ChatResponse response = endpoint.model.call(prompt);
+                    attempt.succeeded();
+                    return response;
+                } catch (RuntimeException e) {
+                    Endpoint next = attempt.failed(e) ? retry(endpoint, model, tried, e) : null;
+                    if (next == null) {
+                        throw e;
+                    }
+                    endpoint = next;
+                }
+            }
+        }
+
+        @Override
+        public Flux<ChatResponse> stream(Prompt prompt) {
+            return Flux.defer(() -> streamOnce(modelCallOnly(prompt)))
+                    .flatMap(response -> {
+                        if (!runsTools(prompt, response)) {
+                            return Flux.just(response);
+                        }
+                        // Tool calls block, so they run off the stream's thread
+                        return Flux.defer(() -> {
+                            ToolExecutionResult result = toolCallingManager.executeToolCalls(prompt, response);
+                            return result.returnDirect()
+                                    ? Flux.just(returnDirect(response, result))
+                                    : stream(new Prompt(result.conversationHistory(), prompt.getOptions()));
+                        }).subscribeOn(Schedulers.boundedElastic());
+                    });
+        }
+
+        private Flux<ChatResponse> streamOnce(Prompt prompt) {
+            String model = modelOf(prompt);
+            Set<Endpoint> tried = ConcurrentHashMap.newKeySet();
+            return streamOnce(prompt, model, first(model, tried), tried);
+        }
+
+        private Flux<ChatResponse> streamOnce(Prompt prompt, String model, Endpoint endpoint, Set<Endpoint> tried) {
+            return Flux.defer(() -> {
+                Attempt attempt = endpoint.begin(model);
+                AtomicBoolean emitted = new AtomicBoolean();
+                return endpoint.model.stream(prompt)
+                        .doOnNext(chunk -> emitted.set(true))
+                        .doOnComplete(attempt::succeeded)
+                        .doOnCancel(attempt::cancelled)
+                        .onErrorResume(error -> {
+                            // Tokens already sent to the client cannot be taken back
+                            Endpoint next = attempt.failed(error) && !emitted.get()
+                                    ? retry(endpoint, model, tried, error)
+                                    : null;
+                            return next != null ? streamOnce(prompt, model, next, tried) : Flux.error(error);
+                        });
+            });
+        }
+
+        @Override
+        public ChatOptions getDefaultOptions() {
+            return defaultOptions.copy();
+        }
+    }
+
+    private final class Endpoint {
+
+        private final String name;
+
+        private final String baseUrl;
+
+        private final List<String> models;
+
+        private final OllamaApi ollamaApi;
+
+        private final ChatModel model;
+
+        private volatile Instant ejectedUntil;
+
+        private final AtomicInteger outstanding = new AtomicInteger();
+        private final AtomicInteger consecutiveFailures = new AtomicInteger();
+        private final AtomicInteger ejections = new AtomicInteger();
+        private final LongAdder requests = new LongAdder();
+        private final LongAdder failures = new LongAdder();
+        private final LongAdder retried = new LongAdder();
+        private final Map<String, LongAdder> requestsByModel = new ConcurrentHashMap<>();
+
+        private final Counter ejectionCounter;
+
+        Endpoint(String name, String baseUrl, List<String> models, OllamaApi ollamaApi, ChatModel model) {
+            this.name = name;
+            this.baseUrl = baseUrl;
+            this.models = models;
+            this.ollamaApi = ollamaApi;
+            this.model = model;
+            Gauge.builder("assistant.model.outstanding", outstanding, AtomicInteger::get)
+                    .description("LLM requests in flight per Ollama endpoint")
+                    .tag("endpoint", name)
+                    .register(meterRegistry);
+            Gauge.builder("assistant.model.available", this, endpoint -> endpoint.isAvailable(Instant.now()) ? 1 : 0)
+                    .description("Whether the Ollama endpoint is in rotation")
+                    .tag("endpoint", name)
+                    .register(meterRegistry);
+            this.ejectionCounter = Counter.builder("assistant.model.ejections")
+                    .description("Times an Ollama endpoint was taken out of rotation")
+                    .tag("endpoint", name)
+                    .register(meterRegistry);
+        }
+
+        boolean serves(String model) {
+            return models.isEmpty() || models.contains(model);
+        }
+
+        boolean isAvailable(Instant now) {
+            Instant until = ejectedUntil;
+            return until == null || !now.isBefore(until);
+        }
+
+        Attempt begin(String model) {
+            outstanding.incrementAndGet();
+            requests.increment();
+            requestsByModel.computeIfAbsent(model, key -> new LongAdder()).increment();
+            return new Attempt(this, model, System.nanoTime());
+        }
+
+        void recordFailure() {
+            failures.increment();
+            if (consecutiveFailures.incrementAndGet() < properties.ejectAfterFailures()) {
+                return;
+            }
+            consecutiveFailures.set(0);
+            ejectedUntil = Instant.now().plus(properties.ejectionTime());
+            ejections.incrementAndGet();
+            ejectionCounter.increment();
+            log.warn("Ollama endpoint {} ({}) ejected for {} after {} consecutive failures",
+                    name, baseUrl, properties.ejectionTime(), properties.ejectAfterFailures());
+        }
+
+        void recordSuccess() {
+            consecutiveFailures.set(0);
+            if (ejectedUntil != null) {
+                ejectedUntil = null;
+                log.info("Ollama endpoint {} ({}) is back in rotation", name, baseUrl);
+            }
+        }
+
+        ModelEndpointStatus status() {
+            Instant until = ejectedUntil;
+            boolean available = isAvailable(Instant.now());
+            Map<String, Long> byModel = new TreeMap<>();
+            requestsByModel.forEach((model, count) -> byModel.put(model, count.sum()));
+            return new ModelEndpointStatus(name, baseUrl, models, available, available ? null : until,
+                    outstanding.get(), requests.sum(), failures.sum(), retried.sum(), ejections.get(), byModel);
+        }
+    }
+
+    /**
+     * One request on one endpoint. Finishes once, whichever signal comes first.
+     */
+    private final class Attempt {
+
+        private final Endpoint endpoint;
+
+        private final String model;
+
+        private final long startNanos;
+
+        private final AtomicBoolean finished = new AtomicBoolean();
+
+        Attempt(Endpoint endpoint, String model, long startNanos) {
+            this.endpoint = endpoint;
+            this.model = model;
+            this.startNanos = startNanos;
+        }
+
+        void succeeded() {
+            if (finish("success")) {
+                endpoint.recordSuccess();
+            }
+        }
+
+        void cancelled() {
+            finish("cancelled");
+        }
+
+        /**
+         * @return whether the endpoint is to blame, so the request may be tried elsewhere
+         */
+        boolean failed(Throwable error) {
+            boolean endpointFailure = isEndpointFailure(error);
+            if (finish("error") && endpointFailure) {
+                endpoint.recordFailure();
+            }
+            return endpointFailure;
+        }
+
+        private boolean finish(String outcome) {
+            if (!finished.compareAndSet(false, true)) {
+                return false;
+            }
+            endpoint.outstanding.decrementAndGet();
+            Timer.builder("assistant.model.requests")
+                    .description("LLM requests per Ollama endpoint and model")
+                    .tag("endpoint", endpoint.name)
+                    .tag("model", model)
+                    .tag("outcome", outcome)
+                    .register(meterRegistry)
+                    .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+            return true;
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.riccardocinti.mcp_client_assistant.service.models;
+
+import com.riccardocinti.mcp_client_assistant.config.ModelPoolProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.ollama.OllamaChatModel;
+import org.springframework.ai.ollama.api.OllamaOptions;
+import org.springframework.stereotype.Service;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Picks the model a request runs on from what the request is for.
+ * <p>
+ * The classifier only answers true or false and short chats do not need the large
+ * model, so each {@link ModelTask} can be routed to its own model. The choice travels
+ * in the request options; {@link ModelPool} then finds an endpoint serving that model.
+ */
+@Service
+@Slf4j
+public class ModelRouter {
+
+    private final Map<ModelTask, String> routes = new EnumMap<>(ModelTask.class);
+
+    private final Map<ModelTask, LongAdder> decisions = new EnumMap<>(ModelTask.class);
+
+    private final Map<ModelTask, Counter> decisionCounters = new EnumMap<>(ModelTask.class);
+
+    public ModelRouter(ModelPoolProperties properties, OllamaChatModel ollamaChatModel, MeterRegistry meterRegistry) {
+        String defaultModel = ollamaChatModel.getDefaultOptions().getModel();
+        properties.routes().keySet().stream()
+                .filter(task -> Arrays.stream(ModelTask.values()).noneMatch(known -> known.key().equals(task)))
+                .forEach(task -> log.warn("Ignoring model route for unknown task {}", task));
+        for (ModelTask task : ModelTask.values()) {
+            String model = properties.routes().getOrDefault(task.key(), defaultModel);
+            routes.put(task, model);
+            decisions.put(task, new LongAdder());
+            decisionCounters.put(task, Counter.builder("assistant.model.routes")
+                    .description("LLM requests routed per task and model")
+                    .tag("task", task.key())
+                    .tag("model", model)
+                    .register(meterRegistry));
+        }
+        log.info("Model routes: {}", routes);
+    }
+
+    /**
+     * Options that only select the model of the task, everything else comes from the model defaults.
+     */
+    public OllamaOptions options(ModelTask task) {
+        return OllamaOptions.builder()
+                .model(route(task))
+                .build();
+    }
+
+    /**
+     * Selects the model of the task on per-request options that are not shared.
+     */
+    public OllamaOptions applyTo(OllamaOptions options, ModelTask task) {
+        options.setModel(route(task));
+        return options;
+    }
+
+    public String modelFor(ModelTask task) {
+        return routes.get(task);
+    }
+
+    public Map<String, String> getRoutes() {
+        Map<String, String> byKey = new LinkedHashMap<>();
+        routes.forEach((task, model) -> byKey.put(task.key(), model));
+        return byKey;
+    }
+
+    public Map<String, Long> getDecisions() {
+        Map<String, Long> byKey = new LinkedHashMap<>();
+        decisions.forEach((task, count) -> byKey.put(task.key(), count.sum()));
+        return byKey;
+    }
+
+    private String route(ModelTask task) {
+        decisions.get(task).increment();
+        decisionCounters.get(task).increment();
+        return routes.get(task);
+    }
+}
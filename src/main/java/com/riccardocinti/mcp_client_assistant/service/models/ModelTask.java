@@ -0,0 +1,36 @@
+package com.riccardocinti.mcp_client_assistant.service.models;
+
+import java.util.Locale;
+
+/**
+ * Kinds of LLM requests, each routed to its own model by {@link ModelRouter}.
+ */
+public enum ModelTask {
+
+    /**
+     * True/false tool-intent classification of ambiguous messages.
+     */
+    CLASSIFICATION,
+
+    /**
+     * Answers without tools.
+     */
+    CHAT,
+
+    /**
+     * Answers with MCP tools attached.
+     */
+    TOOLS,
+
+    /**
+     * Rolling summaries of long conversations.
+     */
+    SUMMARY;
+
+    /**
+     * Name used in {@code assistant.models.routes} and in metric tags.
+     */
+    public String key() {
+        return name().toLowerCase(Locale.ROOT);
+    }
+}
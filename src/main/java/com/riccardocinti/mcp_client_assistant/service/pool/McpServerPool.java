@@ -0,0 +1,416 @@
+package com.riccardocinti.mcp_client_assistant.service.pool;
+
+import com.riccardocinti.mcp_client_assistant.config.McpPoolProperties;
+import com.riccardocinti.mcp_client_assistant.model.McpInstanceStatus;
+import com.riccardocinti.mcp_client_assistant.service.McpConnection;
+import com.riccardocinti.mcp_client_assistant.service.ToolCallbackDecorator;
+import com.riccardocinti.mcp_client_assistant.service.catalog.McpToolsChangedEvent;
+import com.riccardocinti.mcp_client_assistant.service.startup.McpServerStartedEvent;
+import io.modelcontextprotocol.client.McpAsyncClient;
+import io.modelcontextprotocol.client.McpClient;
+import io.modelcontextprotocol.client.McpSyncClient;
+import io.modelcontextprotocol.client.transport.ServerParameters;
+import io.modelcontextprotocol.client.transport.StdioClientTransport;
+import io.modelcontextprotocol.spec.McpSchema;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.chat.model.ToolContext;
+import org.springframework.ai.mcp.client.autoconfigure.properties.McpClientCommonProperties;
+import org.springframework.ai.mcp.client.autoconfigure.properties.McpStdioClientProperties;
+import org.springframework.ai.tool.ToolCallback;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Runs several processes of a stdio MCP server and spreads tool calls across them.
+ * <p>
+ * A stdio server answers over a single pipe, so one slow call holds up every other
+ * call to the same server. For connections configured with more than one instance
+ * the pool starts extra processes from the same command line once the server has
+ * started; instance 0 is the client Spring AI created. The tools of a pooled server are wrapped so each call
+ * goes to the healthy instance with the fewest calls in flight.
+ * <p>
+ * All instances run the same server, so the tool catalog is still listed from
+ * instance 0 only and the rest of the application sees one logical server.
+ * Instances are pinged in the background; one that fails is taken out of
+ * rotation and restarted. Instance 0 is never restarted: the catalog, the health
+ * probe and the rest of the application keep using the client Spring AI created,
+ * so a failed instance 0 only leaves rotation until that client answers again.
+ */
+@Service
+// Innermost decorator: the cache and anything else see the logical server, not an instance
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@RequiredArgsConstructor
+@Slf4j
+public class McpServerPool implements ToolCallbackDecorator {
+
+    private final McpPoolProperties properties;
+
+    private final McpStdioClientProperties stdioProperties;
+
+    private final McpClientCommonProperties clientProperties;
+
+    private final List<McpConnection> mcpConnections;
+
+    private final ExecutorService poolExecutor = Executors.newVirtualThreadPerTaskExecutor();
+
+    /**
+     * Filled once at startup, read-only afterwards.
+     */
+    private final Map<String, Pool> pools = new LinkedHashMap<>();
+
+    @PostConstruct
+    public void createPools() {
+        Map<String, ServerParameters> stdioServers = stdioProperties.toServerParameters();
+        for (McpConnection connection : mcpConnections) {
+            String name = connection.connectionName();
+            int size = properties.instancesFor(name);
+            if (size == 1) {
+                continue;
+            }
+            ServerParameters parameters = stdioServers.get(name);
+            if (parameters == null) {
+                log.warn("MCP connection {} is not a stdio connection, not pooling it", name);
+                continue;
+            }
+            pools.put(name, new Pool(name, connection, parameters, size));
+        }
+    }
+
+    /**
+     * Starts the instances of a pooled server once instance 0 is up. Runs before the
+     * catalog lists the server's tools, so no call is dispatched to a pool without instances.
+     */
+    @EventListener
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void onServerStarted(McpServerStartedEvent event) {
+        Pool pool = pools.get(event.connectionName());
+        if (pool == null) {
+            return;
+        }
+        // Server processes start in parallel, so this waits for the slowest one only
+        runAll(pool.instances, Instance::start);
+        log.info("MCP server {} pooled with {} instances, {} healthy",
+                pool.name, pool.instances.size(), pool.instances.stream().filter(i -> i.healthy).count());
+    }
+
+    @Override
+    public ToolCallback decorate(ToolCallback callback) {
+        String toolName = callback.getToolDefinition().name();
+        for (Pool pool : pools.values()) {
+            if (toolName.startsWith(pool.primary.toolNamePrefix())) {
+                return new PooledToolCallback(callback, pool::call);
+            }
+        }
+        return callback;
+    }
+
+    /**
+     * Instances of every pooled server, keyed by connection name.
+     */
+    public Map<String, List<McpInstanceStatus>> getStatus() {
+        return pools.values().stream().collect(Collectors.toMap(
+                pool -> pool.name,
+                pool -> pool.instances.stream().map(Instance::status).toList(),
+                (first, second) -> first,
+                LinkedHashMap::new));
+    }
+
+    @Scheduled(fixedDelayString = "${assistant.mcp-pool.health-interval:15s}",
+            initialDelayString = "${assistant.mcp-pool.health-interval:15s}")
+    public void checkHealth() {
+        // Instances of a server that has not started yet are left alone
+        runAll(pools.values().stream()
+                .flatMap(pool -> pool.instances.stream())
+                .filter(instance -> instance.launched)
+                .toList(), Instance::check);
+    }
+
+    @EventListener
+    public void onToolsChanged(McpToolsChangedEvent event) {
+        Pool pool = pools.get(event.connectionName());
+        if (pool != null) {
+            // Only instance 0 announces changes, the other processes run the same server
+            pool.instances.forEach(instance -> poolExecutor.execute(instance::reloadTools));
+        }
+    }
+
+    private void runAll(List<Instance> instances, Consumer<Instance> action) {
+        CompletableFuture.allOf(instances.stream()
+                        .map(instance -> CompletableFuture.runAsync(() -> action.accept(instance), poolExecutor))
+                        .toArray(CompletableFuture[]::new))
+                .join();
+    }
+
+    @PreDestroy
+    void shutdown() {
+        poolExecutor.shutdownNow();
+        pools.values().forEach(pool -> pool.instances.forEach(Instance::stop));
+    }
+
+    private final class Pool {
+
+        private final String name;
+
+        private final McpConnection primary;
+
+        private final ServerParameters parameters;
+
+        private final List<Instance> instances;
+
+        private final AtomicInteger rotation = new AtomicInteger();
+
+        Pool(String name, McpConnection primary, ServerParameters parameters, int size) {
+            this.name = name;
+            this.primary = primary;
+            this.parameters = parameters;
+            List<Instance> created = new ArrayList<>(size);
+            for (int index = 0; index < size; index++) {
+                created.add(new Instance(this, index));
+            }
+            this.instances = List.copyOf(created);
+        }
+
+        String call(String toolName, String toolInput, ToolContext toolContext) {
+            return leastOutstanding().call(toolName, toolInput, toolContext);
+        }
+
+        /**
+         * Healthy instance with the fewest calls in flight. The scan starts at a
+         * rotating offset so ties are spread instead of always hitting instance 0.
+         */
+        private Instance leastOutstanding() {
+            int size = instances.size();
+            int start = Math.floorMod(rotation.getAndIncrement(), size);
+            Instance best = null;
+            for (int i = 0; i < size; i++) {
+                Instance candidate = instances.get((start + i) % size);
+                if (candidate.healthy
+                        && (best == null || candidate.outstanding.get() < best.outstanding.get())) {
+                    best = candidate;
+                }
+            }
+            if (best == null) {
+                throw new IllegalStateException("No healthy instance of MCP server " + name);
+            }
+            return best;
+        }
+
+        McpConnection connect() {
+            McpConnection connection = client();
+            try {
+                connection.initialize();
+            } catch (RuntimeException e) {
+                // The handshake has already launched the server process, closing the client stops it
+                try {
+                    connection.close();
+                } catch (RuntimeException closeFailure) {
+                    e.addSuppressed(closeFailure);
+                }
+                throw e;
+            }
+            return connection;
+        }
+
+        private McpConnection client() {
+            Duration timeout = clientProperties.getRequestTimeout();
+            var transport = new StdioClientTransport(parameters);
+            // Same client name as instance 0, so tool names carry the same prefix
+            var clientInfo = new McpSchema.Implementation(primary.clientName(), clientProperties.getVersion());
+            if (clientProperties.getType() == McpClientCommonProperties.ClientType.ASYNC) {
+                McpAsyncClient client = McpClient.async(transport)
+                        .clientInfo(clientInfo)
+                        .requestTimeout(timeout)
+                        .build();
+                return McpConnection.of(client, timeout);
+            }
+            McpSyncClient client = McpClient.sync(transport)
+                    .clientInfo(clientInfo)
+                    .requestTimeout(timeout)
+                    .build();
+            return McpConnection.of(client);
+        }
+    }
+
+    private final class Instance {
+
+        private final Pool pool;
+
+        private final int index;
+
+        private volatile Member member;
+
+        private volatile boolean healthy;
+
+        private volatile boolean launched;
+
+        private volatile long lastStartAttempt;
+
+        private final AtomicInteger outstanding = new AtomicInteger();
+        private final AtomicInteger restarts = new AtomicInteger();
+        private final LongAdder calls = new LongAdder();
+        private final LongAdder failures = new LongAdder();
+        private final LongAdder busyNanos = new LongAdder();
+
+        Instance(Pool pool, int index) {
+            this.pool = pool;
+            this.index = index;
+        }
+
+        String call(String toolName, String toolInput, ToolContext toolContext) {
+            ToolCallback target = member.callbacks().get(toolName);
+            if (target == null) {
+                throw new IllegalStateException("Tool " + toolName + " is not available on instance "
+                        + index + " of MCP server " + pool.name);
+            }
+            outstanding.incrementAndGet();
+            long start = System.nanoTime();
+            try {
+                return target.call(toolInput, toolContext);
+            } catch (RuntimeException e) {
+                failures.increment();
+                throw e;
+            } finally {
+                busyNanos.add(System.nanoTime() - start);
+                calls.increment();
+                outstanding.decrementAndGet();
+            }
+        }
+
+        void start() {
+            launched = true;
+            lastStartAttempt = System.nanoTime();
+            Member previous = member;
+            if (previous != null) {
+                healthy = false;
+                previous.stop();
+            }
+            McpConnection connection = null;
+            try {
+                // Instance 0 is the client Spring AI created, every other instance is our own process
+                boolean owned = index > 0;
+                connection = owned ? pool.connect() : pool.primary;
+                member = new Member(connection, owned, toolCallbacks(connection), Instant.now(), System.nanoTime());
+                busyNanos.reset();
+                healthy = true;
+                if (previous != null) {
+                    log.info("Restarted instance {} of MCP server {}", index, pool.name);
+                }
+            } catch (Exception e) {
+                log.warn("Could not start instance {} of MCP server {}: {}", index, pool.name, e.getMessage());
+                if (connection != null && connection != pool.primary) {
+                    connection.close();
+                }
+            }
+        }
+
+        void check() {
+            Member current = member;
+            if (current != null) {
+                try {
+                    current.connection().ping();
+                    if (!healthy) {
+                        log.info("Instance {} of MCP server {} is healthy again", index, pool.name);
+                    }
+                    healthy = true;
+                    return;
+                } catch (Exception e) {
+                    if (healthy) {
+                        log.warn("Instance {} of MCP server {} failed its health check: {}",
+                                index, pool.name, e.getMessage());
+                    }
+                    healthy = false;
+                }
+            }
+            // Replacing instance 0 would leave everything outside the pool on the dead client
+            if (index == 0 || System.nanoTime() - lastStartAttempt < properties.restartBackoff().toNanos()) {
+                return;
+            }
+            restarts.incrementAndGet();
+            start();
+        }
+
+        void reloadTools() {
+            Member current = member;
+            if (current == null) {
+                return;
+            }
+            try {
+                member = current.withCallbacks(toolCallbacks(current.connection()));
+            } catch (Exception e) {
+                log.warn("Could not reload tools of instance {} of MCP server {}: {}",
+                        index, pool.name, e.getMessage());
+            }
+        }
+
+        void stop() {
+            Member current = member;
+            if (current != null) {
+                current.stop();
+            }
+        }
+
+        McpInstanceStatus status() {
+            Member current = member;
+            double utilization = 0;
+            if (current != null) {
+                long alive = System.nanoTime() - current.startedNanos();
+                utilization = alive > 0 ? (double) busyNanos.sum() / alive : 0;
+            }
+            return new McpInstanceStatus(index, healthy, outstanding.get(), calls.sum(), failures.sum(),
+                    restarts.get(), utilization, current != null ? current.startedAt() : null);
+        }
+
+        private static Map<String, ToolCallback> toolCallbacks(McpConnection connection) {
+            Map<String, ToolCallback> callbacks = new LinkedHashMap<>();
+            for (McpSchema.Tool tool : connection.listTools().tools()) {
+                ToolCallback callback = connection.toolCallback(tool);
+                callbacks.put(callback.getToolDefinition().name(), callback);
+            }
+            return Map.copyOf(callbacks);
+        }
+    }
+
+    /**
+     * The process currently backing an instance.
+     *
+     * @param owned false for the client created by Spring AI, which the pool must not close
+     */
+    private record Member(McpConnection connection, boolean owned, Map<String, ToolCallback> callbacks,
+                          Instant startedAt, long startedNanos) {
+
+        Member withCallbacks(Map<String, ToolCallback> reloaded) {
+            return new Member(connection, owned, reloaded, startedAt, startedNanos);
+        }
+
+        void stop() {
+            if (!owned) {
+                return;
+            }
+            try {
+                connection.close();
+            } catch (Exception e) {
+                log.debug("Error closing MCP connection {}", connection.clientName(), e);
+            }
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.riccardocinti.mcp_client_assistant.service.pool;
+
+import org.springframework.ai.chat.model.ToolContext;
+import org.springframework.ai.tool.ToolCallback;
+import org.springframework.ai.tool.definition.ToolDefinition;
+import org.springframework.ai.tool.metadata.ToolMetadata;
+
+/**
+ * Tool callback of a pooled MCP server, each call is dispatched to one of the {@link McpServerPool} instances.
+ */
+class PooledToolCallback implements ToolCallback {
+
+    private final ToolCallback delegate;
+
+    private final Dispatcher dispatcher;
+
+    PooledToolCallback(ToolCallback delegate, Dispatcher dispatcher) {
+        this.delegate = delegate;
+        this.dispatcher = dispatcher;
+    }
+
+    @Override
+    public ToolDefinition getToolDefinition() {
+        return delegate.getToolDefinition();
+    }
+
+    @Override
+    public ToolMetadata getToolMetadata() {
+        return delegate.getToolMetadata();
+    }
+
+    @Override
+    public String call(String toolInput) {
+        return call(toolInput, null);
+    }
+
+    @Override
+    public String call(String toolInput, ToolContext toolContext) {
+        return dispatcher.call(getToolDefinition().name(), toolInput, toolContext);
+    }
+
+    @FunctionalInterface
+    interface Dispatcher {
+
+        String call(String toolName, String toolInput, ToolContext toolContext);
+    }
+}
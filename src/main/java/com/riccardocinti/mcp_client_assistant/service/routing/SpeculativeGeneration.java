@@ -0,0 +1,163 @@
+package com.riccardocinti.mcp_client_assistant.service.routing;
+
+import com.riccardocinti.mcp_client_assistant.config.SpeculationProperties;
+import com.riccardocinti.mcp_client_assistant.model.ChatStreamEvent;
+import com.riccardocinti.mcp_client_assistant.model.SpeculationStats;
+import com.riccardocinti.mcp_client_assistant.service.scheduling.LlmScheduler;
+import com.riccardocinti.mcp_client_assistant.service.tracing.Span;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import reactor.core.Disposable;
+import reactor.core.publisher.ConnectableFlux;
+import reactor.core.publisher.Flux;
+
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Starts the tool-free answer while the LLM tool classifier is still deciding.
+ * <p>
+ * Most messages are routed lexically in microseconds; only ambiguous ones wait for
+ * the classifier, and only those speculate. The speculative generation holds its own
+ * LLM slot, taken only when one is spare, so under load requests simply stop
+ * speculating instead of competing with waiting requests. Its output is buffered until
+ * the decision: kept if no tools are needed, cancelled upstream otherwise.
+ */
+@Service
+@Slf4j
+public class SpeculativeGeneration {
+
+    private final SpeculationProperties properties;
+
+    private final LlmScheduler llmScheduler;
+
+    private final AtomicLong started = new AtomicLong();
+    private final AtomicLong committed = new AtomicLong();
+    private final AtomicLong discarded = new AtomicLong();
+    private final AtomicLong skipped = new AtomicLong();
+    private final AtomicLong wastedTokens = new AtomicLong();
+
+    private final Counter committedCounter;
+    private final Counter discardedCounter;
+    private final Counter skippedCounter;
+    private final Counter wastedTokenCounter;
+
+    public SpeculativeGeneration(SpeculationProperties properties, LlmScheduler llmScheduler,
+                                 MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.llmScheduler = llmScheduler;
+        this.committedCounter = outcome(meterRegistry, "committed");
+        this.discardedCounter = outcome(meterRegistry, "discarded");
+        this.skippedCounter = outcome(meterRegistry, "skipped");
+        this.wastedTokenCounter = Counter.builder("assistant.speculation.wasted.tokens")
+                .description("Tokens generated by speculative answers that were discarded")
+                .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return properties.enabled();
+    }
+
+    /**
+     * Starts the generation on a spare LLM slot, or does nothing if none is free.
+     *
+     * @param generation the tool-free response stream, recorded under the span it is given
+     */
+    public Optional<Speculation> start(Span trace, Function<Span, Flux<ChatStreamEvent>> generation) {
+        Optional<LlmScheduler.Permit> permit = llmScheduler.tryAcquire(properties.minFreeSlots());
+        if (permit.isEmpty()) {
+            skipped.incrementAndGet();
+            skippedCounter.increment();
+            log.debug("No spare LLM slot, not speculating");
+            return Optional.empty();
+        }
+        started.incrementAndGet();
+        Span span = trace.child("speculation");
+        AtomicLong tokens = new AtomicLong();
+        ConnectableFlux<ChatStreamEvent> buffered = generation.apply(span)
+                .doOnNext(event -> {
+                    if (ChatStreamEvent.TOKEN.equals(event.type())) {
+                        tokens.incrementAndGet();
+                    }
+                })
+                .doFinally(signal -> permit.get().close())
+                .replay();
+        return Optional.of(new Speculation(buffered, buffered.connect(), tokens, span));
+    }
+
+    public SpeculationStats getStats() {
+        long startedCount = started.get();
+        return new SpeculationStats(
+                properties.enabled(),
+                startedCount,
+                committed.get(),
+                discarded.get(),
+                skipped.get(),
+                startedCount == 0 ? 0 : (double) committed.get() / startedCount,
+                wastedTokens.get()
+        );
+    }
+
+    private static Counter outcome(MeterRegistry registry, String outcome) {
+        return Counter.builder("assistant.speculation")
+                .description("Speculative tool-free generations by outcome")
+                .tag("outcome", outcome)
+                .register(registry);
+    }
+
+    /**
+     * A running speculative generation. Exactly one of {@link #commit()} and {@link #discard()} is called.
+     */
+    public final class Speculation {
+
+        private final Flux<ChatStreamEvent> buffered;
+
+        private final Disposable connection;
+
+        private final AtomicLong tokens;
+
+        private final Span span;
+
+        private Speculation(Flux<ChatStreamEvent> buffered, Disposable connection, AtomicLong tokens, Span span) {
+            this.buffered = buffered;
+            this.connection = connection;
+            this.tokens = tokens;
+            this.span = span;
+        }
+
+        /**
+         * The answer as a stream, replaying what was generated so far. Cancelling it cancels the generation.
+         */
+        public Flux<ChatStreamEvent> commit() {
+            committed.incrementAndGet();
+            committedCounter.increment();
+            span.tag("tokensAhead", tokens.get()).end("committed");
+            return buffered.doOnCancel(connection::dispose);
+        }
+
+        /**
+         * Waits for the whole answer, null if the generation ended without one.
+         *
+         * @throws RuntimeException if the generation failed
+         */
+        public String await() {
+            return commit()
+                    .filter(event -> ChatStreamEvent.DONE.equals(event.type()))
+                    .map(ChatStreamEvent::content)
+                    .blockLast();
+        }
+
+        public void discard() {
+            connection.dispose();
+            long wasted = tokens.get();
+            discarded.incrementAndGet();
+            discardedCounter.increment();
+            wastedTokens.addAndGet(wasted);
+            wastedTokenCounter.increment(wasted);
+            span.tag("wastedTokens", wasted).end("discarded");
+        }
+    }
+}
@@ -0,0 +1,206 @@
+package com.riccardocinti.mcp_client_assistant.service.routing;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.ai.tool.ToolCallback;
+import org.springframework.ai.tool.definition.ToolDefinition;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Immutable BM25 index over tool names and descriptions, optionally also their
+ * parameter schemas. Built once per tool set and safe to share between threads.
+ */
+public class ToolIndex {
+
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    private static final Pattern CAMEL_CASE = Pattern.compile("(?<=[a-z0-9])(?=[A-Z])");
+    private static final Pattern NON_ALPHANUMERIC = Pattern.compile("[^a-z0-9]+");
+
+    private static final Set<String> STOP_WORDS = Set.of(
+            "a", "an", "and", "are", "as", "at", "be", "by", "can", "could", "do", "does", "for", "from",
+            "how", "i", "if", "in", "into", "is", "it", "its", "me", "my", "of", "on", "or", "please",
+            "should", "so", "that", "the", "their", "them", "then", "there", "these", "this", "to", "us",
+            "was", "we", "what", "when", "which", "who", "will", "with", "would", "you", "your");
+
+    private static final ObjectMapper SCHEMA_MAPPER = new ObjectMapper();
+
+    private final List<ToolDefinition> tools;
+    private final List<Map<String, Integer>> termFrequencies;
+    private final int[] documentLengths;
+    private final Map<String, Integer> documentFrequencies;
+    private final double averageDocumentLength;
+
+    private ToolIndex(List<ToolDefinition> tools, List<String> documents) {
+        this.tools = List.copyOf(tools);
+        this.termFrequencies = new ArrayList<>(documents.size());
+        this.documentLengths = new int[documents.size()];
+        this.documentFrequencies = new HashMap<>();
+
+        long totalLength = 0;
+        for (int i = 0; i < documents.size(); i++) {
+            List<String> terms = tokenize(documents.get(i));
+            Map<String, Integer> frequencies = new HashMap<>();
+            terms.forEach(term -> frequencies.merge(term, 1, Integer::sum));
+            frequencies.keySet().forEach(term -> documentFrequencies.merge(term, 1, Integer::sum));
+
+            termFrequencies.add(frequencies);
+            documentLengths[i] = terms.size();
+            totalLength += terms.size();
+        }
+        this.averageDocumentLength = documents.isEmpty() ? 0 : (double) totalLength / documents.size();
+    }
+
+    /**
+     * Builds an index whose documents are the tool name and description.
+     */
+    public static ToolIndex of(ToolCallback[] callbacks) {
+        List<ToolDefinition> definitions = Arrays.stream(callbacks)
+                .map(ToolCallback::getToolDefinition)
+                .toList();
+        List<String> documents = definitions.stream()
+                .map(definition -> definition.name() + " " + definition.description())
+                .toList();
+        return new ToolIndex(definitions, documents);
+    }
+
+    /**
+     * Builds an index whose documents also contain the parameter names and
+     * descriptions from each tool's input schema.
+     */
+    public static ToolIndex withSchemas(ToolCallback[] callbacks) {
+        List<ToolDefinition> definitions = Arrays.stream(callbacks)
+                .map(ToolCallback::getToolDefinition)
+                .toList();
+        List<String> documents = definitions.stream()
+                .map(definition -> definition.name() + " " + definition.description()
+                        + schemaText(definition.inputSchema()))
+                .toList();
+        return new ToolIndex(definitions, documents);
+    }
+
+    public int size() {
+        return tools.size();
+    }
+
+    /**
+     * Scores every tool against the query and returns the matches, best first.
+     * Scores are normalised to [0, 1] against the score of a document of average
+     * length containing every query term once, so thresholds do not depend on
+     * the size of the tool set. Query terms no tool knows about lower the score.
+     */
+    public List<Match> search(String query) {
+        Set<String> queryTerms = new LinkedHashSet<>(tokenize(query));
+        if (queryTerms.isEmpty() || tools.isEmpty()) {
+            return List.of();
+        }
+
+        double maxScore = queryTerms.stream()
+                .mapToDouble(this::idf)
+                .sum();
+
+        List<Match> matches = new ArrayList<>();
+        for (int i = 0; i < tools.size(); i++) {
+            double score = score(i, queryTerms);
+            if (score > 0) {
+                matches.add(new Match(tools.get(i), Math.min(1.0, score / maxScore)));
+            }
+        }
+        matches.sort(Comparator.comparingDouble(Match::score).reversed());
+        return matches;
+    }
+
+    private double score(int document, Set<String> queryTerms) {
+        Map<String, Integer> frequencies = termFrequencies.get(document);
+        double lengthNorm = 1 - B + B * documentLengths[document] / Math.max(averageDocumentLength, 1);
+
+        double score = 0;
+        for (String term : queryTerms) {
+            Integer frequency = frequencies.get(term);
+            if (frequency != null) {
+                score += idf(term) * frequency * (K1 + 1) / (frequency + K1 * lengthNorm);
+            }
+        }
+        return score;
+    }
+
+    private double idf(String term) {
+        int documentFrequency = documentFrequencies.getOrDefault(term, 0);
+        return Math.log(1 + (tools.size() - documentFrequency + 0.5) / (documentFrequency + 0.5));
+    }
+
+    private static String schemaText(String inputSchema) {
+        if (inputSchema == null || inputSchema.isBlank()) {
+            return "";
+        }
+        StringBuilder text = new StringBuilder();
+        try {
+            collectSchemaText(SCHEMA_MAPPER.readTree(inputSchema), text);
+        } catch (JsonProcessingException e) {
+            // Tool stays searchable by name and description
+        }
+        return text.toString();
+    }
+
+    private static void collectSchemaText(JsonNode schema, StringBuilder text) {
+        schema.path("properties").properties().forEach(property -> {
+            text.append(' ').append(property.getKey());
+            JsonNode description = property.getValue().path("description");
+            if (description.isTextual()) {
+                text.append(' ').append(description.asText());
+            }
+            collectSchemaText(property.getValue(), text);
+        });
+        JsonNode items = schema.path("items");
+        if (items.isObject()) {
+            collectSchemaText(items, text);
+        }
+    }
+
+    static List<String> tokenize(String text) {
+        if (text == null || text.isBlank()) {
+            return List.of();
+        }
+        String normalized = CAMEL_CASE.matcher(text).replaceAll(" ").toLowerCase(Locale.ROOT);
+
+        List<String> terms = new ArrayList<>();
+        for (String token : NON_ALPHANUMERIC.split(normalized)) {
+            if (token.length() > 1 && !STOP_WORDS.contains(token)) {
+                terms.add(stem(token));
+            }
+        }
+        return terms;
+    }
+
+    /**
+     * Very light plural/verb-form folding so "repositories" matches "repository"
+     * and "files" matches "file". Good enough for short tool descriptions.
+     */
+    private static String stem(String token) {
+        if (token.length() > 4 && token.endsWith("ies")) {
+            return token.substring(0, token.length() - 3) + "y";
+        }
+        if (token.length() > 5 && token.endsWith("ing")) {
+            return token.substring(0, token.length() - 3);
+        }
+        if (token.length() > 3 && token.endsWith("s") && !token.endsWith("ss")) {
+            return token.substring(0, token.length() - 1);
+        }
+        return token;
+    }
+
+    public record Match(ToolDefinition tool, double score) {
+    }
+}
@@ -0,0 +1,213 @@
+package com.riccardocinti.mcp_client_assistant.service.routing;
+
+import com.riccardocinti.mcp_client_assistant.config.ToolRoutingProperties;
+import com.riccardocinti.mcp_client_assistant.model.RoutingDecision;
+import com.riccardocinti.mcp_client_assistant.model.RoutingStats;
+import com.riccardocinti.mcp_client_assistant.service.McpService;
+import com.riccardocinti.mcp_client_assistant.service.models.ModelRouter;
+import com.riccardocinti.mcp_client_assistant.service.models.ModelTask;
+import com.riccardocinti.mcp_client_assistant.service.scheduling.LlmScheduler;
+import com.riccardocinti.mcp_client_assistant.service.tracing.RequestTracer;
+import com.riccardocinti.mcp_client_assistant.service.tracing.Span;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Decides whether a message needs MCP tools without a model round-trip.
+ * <p>
+ * Messages are scored against a BM25 index of the available tools. Clear matches
+ * and clear misses are decided locally; only scores between the two configured
+ * thresholds fall back to the LLM classifier.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ToolIntentRouter {
+
+    private static final String TOOL_DETECTION_PROMPT = """
+            Analyse the user message and determine if it is needed to call one of the available tools or not.
+            Always return JUST true or false in lowercase.
+            """;
+
+    private final McpService mcpService;
+
+    private final ChatClient mcpChatClient;
+
+    private final ToolRoutingProperties properties;
+
+    private final LlmScheduler llmScheduler;
+
+    private final ModelRouter modelRouter;
+
+    private final RequestTracer tracer;
+
+    private final MeterRegistry meterRegistry;
+
+    private final ExecutorService shadowExecutor = Executors.newVirtualThreadPerTaskExecutor();
+
+    private volatile VersionedIndex toolIndex = new VersionedIndex(-1, null);
+
+    private final AtomicLong decisions = new AtomicLong();
+    private final AtomicLong lexicalTools = new AtomicLong();
+    private final AtomicLong lexicalNoTools = new AtomicLong();
+    private final AtomicLong llmFallbacks = new AtomicLong();
+    private final AtomicLong shadowCompared = new AtomicLong();
+    private final AtomicLong shadowAgreed = new AtomicLong();
+
+    public RoutingDecision route(String userMessage) {
+        return route(userMessage, () -> {
+        });
+    }
+
+    /**
+     * Routes the message, running {@code beforeClassifier} first if the decision has to wait for the LLM.
+     */
+    public RoutingDecision route(String userMessage, Runnable beforeClassifier) {
+        Span span = tracer.span("routing");
+        try {
+            RoutingDecision decision = route(userMessage, span, beforeClassifier);
+            span.tag("source", decision.source().name().toLowerCase())
+                    .tag("useTools", decision.useTools())
+                    .tag("score", decision.score())
+                    .tag("topTool", decision.topTool());
+            return decision;
+        } catch (RuntimeException e) {
+            span.error(e);
+            throw e;
+        } finally {
+            span.end();
+        }
+    }
+
+    private RoutingDecision route(String userMessage, Span span, Runnable beforeClassifier) {
+        long start = System.nanoTime();
+        List<ToolIndex.Match> matches = index().search(userMessage);
+        double score = matches.isEmpty() ? 0 : matches.getFirst().score();
+        String topTool = matches.isEmpty() ? null : matches.getFirst().tool().name();
+
+        RoutingDecision decision;
+        if (isAmbiguous(score) && properties.llmFallback()) {
+            llmFallbacks.incrementAndGet();
+            beforeClassifier.run();
+            // Lexical confidence is highest at the thresholds and drops to zero mid-band
+            double halfBand = (properties.toolsThreshold() - properties.noToolsThreshold()) / 2;
+            double confidence = Math.abs(score - midpoint()) / halfBand;
+            decision = new RoutingDecision(askLlm(userMessage, span), score, confidence,
+                    RoutingDecision.Source.LLM, topTool);
+        } else {
+            boolean useTools = score >= midpoint();
+            (useTools ? lexicalTools : lexicalNoTools).incrementAndGet();
+            decision = new RoutingDecision(useTools, score, useTools ? score : 1 - score,
+                    RoutingDecision.Source.LEXICAL, topTool);
+            if (properties.shadowLlm()) {
+                compareInBackground(userMessage, decision);
+            }
+        }
+
+        decisions.incrementAndGet();
+        Timer.builder("assistant.routing")
+                .description("Time taken to decide whether a message needs tools")
+                .tag("source", decision.source().name().toLowerCase())
+                .tag("decision", decision.useTools() ? "tools" : "no-tools")
+                .register(meterRegistry)
+                .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        log.info("Tool routing: useTools={} source={} score={} confidence={} topTool={}",
+                decision.useTools(), decision.source(),
+                String.format("%.3f", decision.score()), String.format("%.3f", decision.confidence()),
+                decision.topTool());
+        return decision;
+    }
+
+    private boolean isAmbiguous(double score) {
+        return score > properties.noToolsThreshold() && score < properties.toolsThreshold();
+    }
+
+    private double midpoint() {
+        return (properties.toolsThreshold() + properties.noToolsThreshold()) / 2;
+    }
+
+    private boolean askLlm(String userMessage, Span parent) {
+        try (Span span = parent.child("classifier")) {
+            var options = modelRouter.options(ModelTask.CLASSIFICATION);
+            span.tag("model", options.getModel());
+            String response = mcpChatClient.prompt(TOOL_DETECTION_PROMPT)
+                    .user(userMessage.toLowerCase())
+                    .options(options)
+                    .call().content();
+            span.payload("response", response);
+
+            return Boolean.parseBoolean(response == null ? null : response.strip());
+        }
+    }
+
+    private void compareInBackground(String userMessage, RoutingDecision lexical) {
+        // Shadow comparisons only get capacity nobody else is waiting for, they never queue
+        Optional<LlmScheduler.Permit> slot = llmScheduler.tryAcquire(0);
+        if (slot.isEmpty()) {
+            log.debug("No spare LLM slot, skipped shadow LLM tool classification");
+            return;
+        }
+        shadowExecutor.execute(() -> {
+            try (var permit = slot.get()) {
+                boolean llm = askLlm(userMessage, Span.NOOP);
+                shadowCompared.incrementAndGet();
+                if (llm == lexical.useTools()) {
+                    shadowAgreed.incrementAndGet();
+                } else {
+                    log.info("Tool routing disagreement: lexical={} (score {}) llm={} for message: {}",
+                            lexical.useTools(), String.format("%.3f", lexical.score()), llm, userMessage);
+                }
+            } catch (Exception e) {
+                log.warn("Shadow LLM tool classification failed", e);
+            }
+        });
+    }
+
+    public RoutingStats getStats() {
+        long compared = shadowCompared.get();
+        return new RoutingStats(
+                decisions.get(),
+                lexicalTools.get(),
+                lexicalNoTools.get(),
+                llmFallbacks.get(),
+                compared,
+                shadowAgreed.get(),
+                compared == 0 ? 0 : (double) shadowAgreed.get() / compared
+        );
+    }
+
+    /**
+     * Index over the current catalog, rebuilt only when the catalog version changes.
+     * Two threads may rebuild the same version concurrently; both results are equal.
+     */
+    private ToolIndex index() {
+        VersionedIndex current = toolIndex;
+        long version = mcpService.getToolCatalogVersion();
+        if (current.version() != version) {
+            current = new VersionedIndex(version, ToolIndex.of(mcpService.getToolCallbacks()));
+            log.info("Built tool routing index over {} tools (catalog version {})", current.index().size(), version);
+            toolIndex = current;
+        }
+        return current.index();
+    }
+
+    private record VersionedIndex(long version, ToolIndex index) {
+    }
+
+    @PreDestroy
+    void shutdown() {
+        shadowExecutor.shutdownNow();
+    }
+}
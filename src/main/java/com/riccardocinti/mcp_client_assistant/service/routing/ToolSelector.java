@@ -0,0 +1,130 @@
+package com.riccardocinti.mcp_client_assistant.service.routing;
+
+import com.riccardocinti.mcp_client_assistant.config.ToolRoutingProperties;
+import com.riccardocinti.mcp_client_assistant.service.McpService;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.tokenizer.JTokkitTokenCountEstimator;
+import org.springframework.ai.tokenizer.TokenCountEstimator;
+import org.springframework.ai.tool.ToolCallback;
+import org.springframework.ai.tool.definition.ToolDefinition;
+import org.springframework.stereotype.Service;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Picks the tools to attach to a tool-enabled request.
+ * <p>
+ * Every attached tool costs its JSON schema in prompt tokens, and an 8B model
+ * chooses worse from a long list. Tools are ranked against the user message over
+ * their names, descriptions and parameter schemas, and only the top-k are sent.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ToolSelector {
+
+    private final McpService mcpService;
+
+    private final ToolRoutingProperties properties;
+
+    private final MeterRegistry meterRegistry;
+
+    private final TokenCountEstimator tokenCountEstimator = new JTokkitTokenCountEstimator();
+
+    private volatile IndexedCatalog catalog = new IndexedCatalog(-1, List.of(), null, Map.of(), Map.of());
+
+    public ToolSelection select(String userMessage) {
+        IndexedCatalog current = catalog();
+        List<ToolCallback> all = current.callbacks();
+        if (properties.topK() <= 0 || all.size() <= properties.topK()) {
+            return record(new ToolSelection(all, all.size(), 0));
+        }
+
+        List<ToolIndex.Match> matches = current.index().search(userMessage);
+        if (matches.isEmpty()) {
+            // Tools were asked for but nothing matches lexically, let the model choose from all of them
+            log.debug("No tool matches the message, attaching all {} tools", all.size());
+            return record(new ToolSelection(all, all.size(), 0));
+        }
+
+        List<ToolCallback> selected = matches.stream()
+                .limit(properties.topK())
+                .map(match -> current.byName().get(match.tool().name()))
+                .toList();
+        Set<String> selectedNames = new HashSet<>();
+        selected.forEach(callback -> selectedNames.add(callback.getToolDefinition().name()));
+        int tokensSaved = current.schemaTokens().entrySet().stream()
+                .filter(entry -> !selectedNames.contains(entry.getKey()))
+                .mapToInt(Map.Entry::getValue)
+                .sum();
+
+        log.info("Attaching {} of {} tools, ~{} prompt tokens saved: {}",
+                selected.size(), all.size(), tokensSaved, selectedNames);
+        return record(new ToolSelection(selected, all.size(), tokensSaved));
+    }
+
+    private ToolSelection record(ToolSelection selection) {
+        DistributionSummary.builder("assistant.tools.attached")
+                .description("Tools attached to a tool-enabled request")
+                .register(meterRegistry)
+                .record(selection.tools().size());
+        DistributionSummary.builder("assistant.tools.prompt.tokens.saved")
+                .description("Estimated prompt tokens saved by not attaching unselected tool schemas")
+                .baseUnit("tokens")
+                .register(meterRegistry)
+                .record(selection.promptTokensSaved());
+        return selection;
+    }
+
+    /**
+     * Index and per-tool schema token counts for the current catalog version.
+     */
+    private IndexedCatalog catalog() {
+        IndexedCatalog current = catalog;
+        long version = mcpService.getToolCatalogVersion();
+        if (current.version() != version) {
+            ToolCallback[] callbacks = mcpService.getToolCallbacks();
+            Map<String, Integer> schemaTokens = Arrays.stream(callbacks)
+                    .map(ToolCallback::getToolDefinition)
+                    .collect(Collectors.toMap(ToolDefinition::name, this::estimateTokens, (a, b) -> a));
+            Map<String, ToolCallback> byName = Arrays.stream(callbacks)
+                    .collect(Collectors.toMap(callback -> callback.getToolDefinition().name(),
+                            Function.identity(), (a, b) -> a));
+            current = new IndexedCatalog(version, List.of(callbacks), ToolIndex.withSchemas(callbacks),
+                    byName, schemaTokens);
+            catalog = current;
+        }
+        return current;
+    }
+
+    private int estimateTokens(ToolDefinition definition) {
+        return tokenCountEstimator.estimate(
+                definition.name() + " " + definition.description() + " " + definition.inputSchema());
+    }
+
+    private record IndexedCatalog(
+            long version,
+            List<ToolCallback> callbacks,
+            ToolIndex index,
+            Map<String, ToolCallback> byName,
+            Map<String, Integer> schemaTokens
+    ) {
+    }
+
+    /**
+     * @param tools             tools to attach, best match first
+     * @param available         tools in the catalog
+     * @param promptTokensSaved estimated schema tokens of the tools left out
+     */
+    public record ToolSelection(List<ToolCallback> tools, int available, int promptTokensSaved) {
+    }
+}
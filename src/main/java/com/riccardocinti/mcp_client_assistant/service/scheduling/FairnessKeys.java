@@ -0,0 +1,42 @@
+package com.riccardocinti.mcp_client_assistant.service.scheduling;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+/**
+ * Derives the key the {@link LlmScheduler} shares capacity fairly across.
+ * <p>
+ * An API key identifies a caller best, then the conversation, then the client
+ * address. Must be called on the request thread, where the current request is
+ * bound; elsewhere everything shares the background key.
+ */
+public final class FairnessKeys {
+
+    public static final String API_KEY_HEADER = "X-API-Key";
+
+    static final String BACKGROUND = "background";
+
+    private FairnessKeys() {
+    }
+
+    public static String current(String conversationId) {
+        HttpServletRequest request = currentRequest();
+        if (request != null && request.getHeader(API_KEY_HEADER) != null) {
+            return "api-key:" + request.getHeader(API_KEY_HEADER);
+        }
+        if (conversationId != null) {
+            return "conversation:" + conversationId;
+        }
+        if (request != null) {
+            return "client:" + request.getRemoteAddr();
+        }
+        return BACKGROUND;
+    }
+
+    private static HttpServletRequest currentRequest() {
+        return RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes attributes
+                ? attributes.getRequest()
+                : null;
+    }
+}
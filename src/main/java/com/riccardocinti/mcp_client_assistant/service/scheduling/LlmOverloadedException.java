@@ -0,0 +1,23 @@
+package com.riccardocinti.mcp_client_assistant.service.scheduling;
+
+import lombok.Getter;
+
+import java.time.Duration;
+
+/**
+ * Thrown when a request cannot be admitted to the LLM, either because the wait
+ * queue is full or because no slot freed up in time. Mapped to 429.
+ */
+@Getter
+public class LlmOverloadedException extends RuntimeException {
+
+    /**
+     * Suggested delay before retrying, based on the current queue and service times.
+     */
+    private final Duration retryAfter;
+
+    public LlmOverloadedException(String message, Duration retryAfter) {
+        super(message);
+        this.retryAfter = retryAfter;
+    }
+}
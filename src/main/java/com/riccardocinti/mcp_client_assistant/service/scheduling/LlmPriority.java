@@ -0,0 +1,23 @@
+package com.riccardocinti.mcp_client_assistant.service.scheduling;
+
+/**
+ * Priority classes of the {@link LlmScheduler}, highest first. A waiting request of
+ * a higher class is always admitted before any request of a lower class.
+ */
+public enum LlmPriority {
+
+    /**
+     * A user is waiting on the response.
+     */
+    INTERACTIVE,
+
+    /**
+     * Bulk work submitted through the batch API.
+     */
+    BATCH,
+
+    /**
+     * Work nobody waits on, such as shadow classification and background summaries.
+     */
+    BACKGROUND
+}
@@ -0,0 +1,413 @@
+package com.riccardocinti.mcp_client_assistant.service.scheduling;
+
+import com.riccardocinti.mcp_client_assistant.config.LlmSchedulerProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Admission control between the chat service and Ollama.
+ * <p>
+ * At most {@code maxConcurrent} requests talk to Ollama at once; up to
+ * {@code maxQueue} more wait for a slot and anything beyond that is rejected
+ * immediately with an {@link LlmOverloadedException} instead of piling up in
+ * Ollama's own queue until every request times out. A request arriving at a full
+ * queue takes the place of the newest waiter of a lower priority, which is
+ * rejected instead, so background and batch work never turn interactive requests away.
+ * <p>
+ * Freed slots go to the highest waiting {@link LlmPriority}. Within a priority,
+ * waiting requests are grouped by fairness key (API key, conversation or client)
+ * and the groups are served round-robin, so one busy caller cannot starve the
+ * others.
+ */
+@Service
+public class LlmScheduler {
+
+    /**
+     * Weight of the latest sample in the moving average of slot hold times.
+     */
+    private static final double HOLD_TIME_SMOOTHING = 0.2;
+
+    private static final Duration MIN_RETRY_AFTER = Duration.ofSeconds(1);
+
+    private final LlmSchedulerProperties properties;
+
+    // Not a monitor: waiters are virtual threads and must not pin their carrier
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final Map<LlmPriority, FairQueue> queues = new EnumMap<>(LlmPriority.class);
+
+    private int active;
+
+    private int queued;
+
+    private double averageHoldNanos = TimeUnit.SECONDS.toNanos(10);
+
+    private final Map<LlmPriority, Timer> waitTimers = new EnumMap<>(LlmPriority.class);
+    private final Counter rejectedQueueFull;
+    private final Counter rejectedTimeout;
+    private final Counter rejectedDisplaced;
+
+    public LlmScheduler(LlmSchedulerProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        for (LlmPriority priority : LlmPriority.values()) {
+            FairQueue queue = new FairQueue();
+            queues.put(priority, queue);
+            String tag = priority.name().toLowerCase();
+            Gauge.builder("assistant.llm.queue.depth", queue, q -> q.size)
+                    .description("Requests waiting for an LLM slot")
+                    .tag("priority", tag)
+                    .register(meterRegistry);
+            waitTimers.put(priority, Timer.builder("assistant.llm.queue.wait")
+                    .description("Time requests waited for an LLM slot")
+                    .tag("priority", tag)
+                    .publishPercentileHistogram()
+                    .register(meterRegistry));
+        }
+        Gauge.builder("assistant.llm.active", this, scheduler -> scheduler.active)
+                .description("Requests currently holding an LLM slot")
+                .register(meterRegistry);
+        this.rejectedQueueFull = rejected(meterRegistry, "queue-full");
+        this.rejectedTimeout = rejected(meterRegistry, "timeout");
+        this.rejectedDisplaced = rejected(meterRegistry, "displaced");
+    }
+
+    /**
+     * Blocks until a slot is free. The returned permit must be closed when the
+     * request no longer talks to Ollama.
+     *
+     * @throws LlmOverloadedException if the queue is full, no slot frees up within {@code maxWait}
+     *                                or a higher priority request took its place in the queue
+     */
+    public Permit acquire(LlmPriority priority, String fairnessKey) {
+        Ticket ticket = enqueue(priority, fairnessKey);
+        try {
+            return ticket.permit.get(properties.maxWait().toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            return abandon(ticket).orElseThrow(() -> timedOut(priority));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            abandon(ticket).ifPresent(Permit::close);
+            throw new IllegalStateException("Interrupted while waiting for an LLM slot", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof LlmOverloadedException displaced) {
+                throw displaced;
+            }
+            throw new IllegalStateException("LLM slot could not be granted", e.getCause());
+        }
+    }
+
+    /**
+     * Runs the stream once a slot is free and holds the slot until the stream
+     * terminates or is cancelled. Waiting does not block a thread.
+     */
+    public <T> Flux<T> schedule(LlmPriority priority, String fairnessKey, Supplier<Flux<T>> work) {
+        return Flux.defer(() -> {
+            Ticket ticket = enqueue(priority, fairnessKey);
+            return Mono.fromFuture(ticket.permit, true)
+                    .timeout(properties.maxWait())
+                    .onErrorResume(TimeoutException.class, e -> abandon(ticket)
+                            .map(Mono::just)
+                            .orElseGet(() -> Mono.error(timedOut(priority))))
+                    .doOnCancel(() -> abandon(ticket).ifPresent(Permit::close))
+                    .flatMapMany(permit -> work.get().doFinally(signal -> permit.close()));
+        });
+    }
+
+    /**
+     * Takes a slot only if one is free right now, nobody is waiting and at least
+     * {@code keepFree} more stay free, for work that is only worth doing on spare capacity.
+     */
+    public Optional<Permit> tryAcquire(int keepFree) {
+        lock.lock();
+        try {
+            if (queued > 0 || active + 1 + keepFree > properties.maxConcurrent()) {
+                return Optional.empty();
+            }
+            active++;
+            return Optional.of(new Permit(this));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Rejects up front when the queue is already full of requests of the same or a
+     * higher priority, so callers can fail a request before committing a response.
+     */
+    public void checkAdmission(LlmPriority priority) {
+        lock.lock();
+        try {
+            if (active >= properties.maxConcurrent() && queued >= properties.maxQueue()
+                    && !hasWaiterBelow(priority)) {
+                rejectedQueueFull.increment();
+                throw new LlmOverloadedException("LLM queue is full", retryAfter());
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Ticket enqueue(LlmPriority priority, String fairnessKey) {
+        Displaced displaced = null;
+        lock.lock();
+        try {
+            if (active < properties.maxConcurrent() && queued == 0) {
+                active++;
+                waitTimers.get(priority).record(0, TimeUnit.NANOSECONDS);
+                return Ticket.granted(priority, fairnessKey, new Permit(this));
+            }
+            if (queued >= properties.maxQueue()) {
+                displaced = displaceBelow(priority);
+                if (displaced == null) {
+                    rejectedQueueFull.increment();
+                    throw new LlmOverloadedException("LLM queue is full", retryAfter());
+                }
+            }
+            Ticket ticket = new Ticket(priority, fairnessKey, new CompletableFuture<>(), System.nanoTime());
+            queues.get(priority).add(ticket);
+            queued++;
+            return ticket;
+        } finally {
+            lock.unlock();
+            // Outside the lock: the waiter's error handling runs on this thread
+            if (displaced != null) {
+                displaced.ticket().permit.completeExceptionally(displaced.reason());
+            }
+        }
+    }
+
+    /**
+     * Whether a waiter of a lower priority than {@code priority} could be displaced. Called with the lock held.
+     */
+    private boolean hasWaiterBelow(LlmPriority priority) {
+        for (LlmPriority lower : LlmPriority.values()) {
+            if (lower.compareTo(priority) > 0 && queues.get(lower).size > 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Removes the newest waiter of the lowest priority below {@code priority} from the
+     * queue to make room. Called with the lock held; the caller rejects the waiter
+     * once the lock is released.
+     *
+     * @return null if every waiter has the same or a higher priority
+     */
+    private Displaced displaceBelow(LlmPriority priority) {
+        LlmPriority[] priorities = LlmPriority.values();
+        for (int i = priorities.length - 1; priorities[i].compareTo(priority) > 0; i--) {
+            Ticket displaced = queues.get(priorities[i]).pollNewest();
+            if (displaced != null) {
+                queued--;
+                rejectedDisplaced.increment();
+                return new Displaced(displaced, new LlmOverloadedException(
+                        "LLM queue is full, " + displaced.priority + " request gave way to " + priority,
+                        retryAfter()));
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Gives up a ticket. If a slot was granted in the meantime it is returned,
+     * otherwise the ticket is removed from the queue.
+     */
+    private Optional<Permit> abandon(Ticket ticket) {
+        lock.lock();
+        try {
+            if (queues.get(ticket.priority).remove(ticket)) {
+                queued--;
+                return Optional.empty();
+            }
+        } finally {
+            lock.unlock();
+        }
+        // No longer queued, so the slot was granted before we got the lock, or the ticket was displaced
+        try {
+            return Optional.of(ticket.permit.join());
+        } catch (CompletionException e) {
+            return Optional.empty();
+        }
+    }
+
+    private void release(Permit permit) {
+        long heldNanos = System.nanoTime() - permit.grantedAt;
+        Ticket next;
+        lock.lock();
+        try {
+            averageHoldNanos += HOLD_TIME_SMOOTHING * (heldNanos - averageHoldNanos);
+            next = poll();
+            if (next == null) {
+                active--;
+                return;
+            }
+            queued--;
+            waitTimers.get(next.priority).record(System.nanoTime() - next.enqueuedAt, TimeUnit.NANOSECONDS);
+        } finally {
+            lock.unlock();
+        }
+        // The slot passes straight to the next waiter, active stays the same. Completed
+        // outside the lock, as a scheduled stream starts its work on this thread
+        next.permit.complete(new Permit(this));
+    }
+
+    private Ticket poll() {
+        for (LlmPriority priority : LlmPriority.values()) {
+            Ticket next = queues.get(priority).poll();
+            if (next != null) {
+                return next;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Estimate of when a slot is likely to be free for a new request. Called with the lock held.
+     */
+    private Duration retryAfter() {
+        double rounds = (double) (queued + 1) / properties.maxConcurrent();
+        Duration estimate = Duration.ofNanos((long) (rounds * averageHoldNanos));
+        return estimate.compareTo(MIN_RETRY_AFTER) < 0 ? MIN_RETRY_AFTER : estimate;
+    }
+
+    private LlmOverloadedException timedOut(LlmPriority priority) {
+        rejectedTimeout.increment();
+        lock.lock();
+        try {
+            return new LlmOverloadedException(
+                    "No LLM slot became free within " + properties.maxWait() + " for " + priority + " request",
+                    retryAfter());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static Counter rejected(MeterRegistry registry, String reason) {
+        return Counter.builder("assistant.llm.rejected")
+                .description("Requests rejected by LLM admission control")
+                .tag("reason", reason)
+                .register(registry);
+    }
+
+    /**
+     * A held LLM slot. Closing it more than once has no further effect.
+     */
+    public static final class Permit implements AutoCloseable {
+
+        private final LlmScheduler scheduler;
+
+        private final long grantedAt = System.nanoTime();
+
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Permit(LlmScheduler scheduler) {
+            this.scheduler = scheduler;
+        }
+
+        @Override
+        public void close() {
+            if (released.compareAndSet(false, true)) {
+                scheduler.release(this);
+            }
+        }
+    }
+
+    private record Ticket(LlmPriority priority, String fairnessKey, CompletableFuture<Permit> permit,
+                          long enqueuedAt) {
+
+        static Ticket granted(LlmPriority priority, String fairnessKey, Permit permit) {
+            return new Ticket(priority, fairnessKey, CompletableFuture.completedFuture(permit), System.nanoTime());
+        }
+    }
+
+    /**
+     * A waiter taken out of the queue for a higher priority request, to be rejected with {@code reason}.
+     */
+    private record Displaced(Ticket ticket, LlmOverloadedException reason) {
+    }
+
+    /**
+     * Waiting tickets of one priority, grouped by fairness key and served
+     * round-robin across keys. Only accessed with the scheduler lock held.
+     */
+    private static final class FairQueue {
+
+        private final LinkedHashMap<String, ArrayDeque<Ticket>> byKey = new LinkedHashMap<>();
+
+        private volatile int size;
+
+        void add(Ticket ticket) {
+            byKey.computeIfAbsent(ticket.fairnessKey(), key -> new ArrayDeque<>()).addLast(ticket);
+            size++;
+        }
+
+        Ticket poll() {
+            Iterator<Map.Entry<String, ArrayDeque<Ticket>>> keys = byKey.entrySet().iterator();
+            if (!keys.hasNext()) {
+                return null;
+            }
+            Map.Entry<String, ArrayDeque<Ticket>> first = keys.next();
+            ArrayDeque<Ticket> tickets = first.getValue();
+            Ticket next = tickets.pollFirst();
+            keys.remove();
+            if (!tickets.isEmpty()) {
+                // Back of the rotation, behind every other waiting key
+                byKey.put(first.getKey(), tickets);
+            }
+            size--;
+            return next;
+        }
+
+        /**
+         * Removes the most recently queued ticket, the one that has waited least.
+         */
+        Ticket pollNewest() {
+            Ticket newest = null;
+            for (ArrayDeque<Ticket> tickets : byKey.values()) {
+                Ticket last = tickets.peekLast();
+                if (newest == null || last.enqueuedAt() - newest.enqueuedAt() > 0) {
+                    newest = last;
+                }
+            }
+            if (newest != null) {
+                remove(newest);
+            }
+            return newest;
+        }
+
+        boolean remove(Ticket ticket) {
+            ArrayDeque<Ticket> tickets = byKey.get(ticket.fairnessKey());
+            if (tickets == null || !tickets.remove(ticket)) {
+                return false;
+            }
+            if (tickets.isEmpty()) {
+                byKey.remove(ticket.fairnessKey());
+            }
+            size--;
+            return true;
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package com.riccardocinti.mcp_client_assistant.service.startup;
+
+import java.time.Duration;
+
+/**
+ * Published once an MCP connection has completed its initialization handshake.
+ * Listeners run on the startup thread and may list tools over the connection.
+ *
+ * @param connectionName MCP connection that is now initialized
+ * @param startupTime    time the initialization took
+ */
+public record McpServerStartedEvent(String connectionName, Duration startupTime) {
+}
@@ -0,0 +1,286 @@
+package com.riccardocinti.mcp_client_assistant.service.startup;
+
+import com.riccardocinti.mcp_client_assistant.config.McpStartupProperties;
+import com.riccardocinti.mcp_client_assistant.service.McpConnection;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationStartedEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
+
+/**
+ * Initializes the MCP connections in parallel once the application has started.
+ * <p>
+ * Every stdio server is a JVM of its own, so initializing them one by one inside
+ * context startup made boot time grow with each server. Here all eager connections
+ * start at the same time on virtual threads and the context does not wait for them;
+ * readiness reports UP once the required ones are up. Lazy connections are only
+ * initialized when the first tool-enabled request comes in, before it takes its LLM slot.
+ * <p>
+ * A connection whose initialization failed is retried in the background only, after
+ * a backoff that grows with every further failure; requests never retry it.
+ * <p>
+ * After a connection is initialized a {@link McpServerStartedEvent} is published, on
+ * which the server pool starts its extra instances and the tool catalog lists the
+ * new tools.
+ */
+@Service
+@Slf4j
+public class McpServerStartup {
+
+    private final McpStartupProperties properties;
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final MeterRegistry meterRegistry;
+
+    private final ExecutorService startupExecutor = Executors.newVirtualThreadPerTaskExecutor();
+
+    private final Map<String, Server> servers = new LinkedHashMap<>();
+
+    public McpServerStartup(List<McpConnection> mcpConnections, McpStartupProperties properties,
+                            ApplicationEventPublisher eventPublisher, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.eventPublisher = eventPublisher;
+        this.meterRegistry = meterRegistry;
+        for (McpConnection connection : mcpConnections) {
+            String name = connection.connectionName();
+            servers.put(name, new Server(connection, properties.isRequired(name), properties.isLazy(name)));
+        }
+    }
+
+    /**
+     * Runs after the context is refreshed, so every listener of {@link McpServerStartedEvent} is registered.
+     */
+    @EventListener(ApplicationStartedEvent.class)
+    public void startEagerServers() {
+        long start = System.nanoTime();
+        List<CompletableFuture<Void>> eager = servers.values().stream()
+                .filter(server -> !server.lazy)
+                .map(this::start)
+                .toList();
+        CompletableFuture.allOf(eager.toArray(CompletableFuture[]::new))
+                .whenComplete((ignored, error) -> log.info("MCP startup finished in {}ms: {}",
+                        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), summary()));
+    }
+
+    /**
+     * Retries connections whose initialization failed, e.g. a server that was not
+     * reachable yet at boot, once their backoff has passed. Lazy connections are
+     * retried only after a request has started them.
+     */
+    @Scheduled(fixedDelayString = "${assistant.health.interval:15s}",
+            initialDelayString = "${assistant.health.interval:15s}")
+    public void retryFailedServers() {
+        long now = System.nanoTime();
+        servers.values().stream()
+                .filter(server -> server.state == State.FAILED && now - server.nextRetryNanos >= 0)
+                .forEach(this::start);
+    }
+
+    /**
+     * Whether some lazy connection has not been started yet or is still starting, so
+     * {@link #startLazyServers()} would wait.
+     */
+    public boolean lazyServersPending() {
+        return servers.values().stream()
+                .anyMatch(server -> server.lazy && (server.state == State.PENDING || server.state == State.STARTING));
+    }
+
+    /**
+     * Starts the lazy connections that have not been started yet and waits, bounded by
+     * {@code lazy-start-timeout}, for those still starting. One that failed is left to
+     * {@link #retryFailedServers()}. Called before a tool-enabled request takes its LLM slot.
+     */
+    public void startLazyServers() {
+        List<CompletableFuture<Void>> lazy = servers.values().stream()
+                .filter(server -> server.lazy && server.state != State.FAILED)
+                .map(this::startOnce)
+                .filter(started -> !started.isDone())
+                .toList();
+        if (lazy.isEmpty()) {
+            return;
+        }
+        try {
+            CompletableFuture.allOf(lazy.toArray(CompletableFuture[]::new))
+                    .get(properties.lazyStartTimeout().toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            log.warn("Lazy MCP servers not up after {}, continuing with the tools available",
+                    properties.lazyStartTimeout());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            // Failures are logged by start(), the request continues with the tools available
+        }
+    }
+
+    /**
+     * Whether every required connection has been initialized.
+     */
+    public boolean requiredServersStarted() {
+        return servers.values().stream()
+                .filter(server -> server.required)
+                .allMatch(server -> server.state == State.STARTED);
+    }
+
+    public boolean isRequired(String connectionName) {
+        Server server = servers.get(connectionName);
+        return server != null && server.required;
+    }
+
+    /**
+     * Startup state of every connection, keyed by connection name.
+     */
+    public Map<String, ServerStartupStatus> getStatus() {
+        return servers.entrySet().stream().collect(Collectors.toMap(
+                Map.Entry::getKey,
+                entry -> entry.getValue().status(),
+                (first, second) -> first,
+                LinkedHashMap::new));
+    }
+
+    private CompletableFuture<Void> start(Server server) {
+        synchronized (server) {
+            if (server.started == null || server.started.isCompletedExceptionally()) {
+                server.started = CompletableFuture.runAsync(() -> initialize(server), startupExecutor);
+            }
+            return server.started;
+        }
+    }
+
+    /**
+     * Like {@link #start(Server)}, but never starts a connection a second time.
+     */
+    private CompletableFuture<Void> startOnce(Server server) {
+        synchronized (server) {
+            if (server.started == null) {
+                server.state = State.STARTING;
+                server.started = CompletableFuture.runAsync(() -> initialize(server), startupExecutor);
+            }
+            return server.started;
+        }
+    }
+
+    private void initialize(Server server) {
+        String name = server.connection.connectionName();
+        server.state = State.STARTING;
+        long start = System.nanoTime();
+        try {
+            // Already done when spring.ai.mcp.client.initialized is left at true
+            if (!server.connection.isInitialized()) {
+                server.connection.initialize();
+            }
+            Duration elapsed = Duration.ofNanos(System.nanoTime() - start);
+            server.startupTime = elapsed;
+            record(name, "success", elapsed);
+            log.info("MCP server {} initialized in {}ms", name, elapsed.toMillis());
+
+            eventPublisher.publishEvent(new McpServerStartedEvent(name, elapsed));
+            server.failures = 0;
+            server.state = State.STARTED;
+        } catch (Exception e) {
+            Duration elapsed = Duration.ofNanos(System.nanoTime() - start);
+            Duration backoff = properties.retryBackoff(++server.failures);
+            server.startupTime = elapsed;
+            server.error = e.getMessage();
+            server.nextRetryNanos = System.nanoTime() + backoff.toNanos();
+            server.state = State.FAILED;
+            record(name, "failure", elapsed);
+            log.warn("MCP server {} failed to initialize after {}ms, retrying in {}s: {}",
+                    name, elapsed.toMillis(), backoff.toSeconds(), e.getMessage());
+            throw e;
+        }
+    }
+
+    private void record(String server, String outcome, Duration elapsed) {
+        Timer.builder("assistant.mcp.startup")
+                .description("Time an MCP server took to initialize")
+                .tag("server", server)
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .record(elapsed);
+    }
+
+    private String summary() {
+        return servers.entrySet().stream()
+                .map(entry -> entry.getKey() + " " + entry.getValue().status().describe())
+                .collect(Collectors.joining(", "));
+    }
+
+    @PreDestroy
+    void shutdown() {
+        startupExecutor.shutdownNow();
+    }
+
+    public enum State {
+        PENDING, STARTING, STARTED, FAILED
+    }
+
+    /**
+     * @param startupMillis time the initialization took, null until it finished
+     * @param error         why the initialization failed, null unless {@code state} is FAILED
+     */
+    public record ServerStartupStatus(
+            State state,
+            boolean required,
+            boolean lazy,
+            Long startupMillis,
+            String error
+    ) {
+
+        String describe() {
+            String timing = startupMillis != null ? " in " + startupMillis + "ms" : "";
+            return state.name().toLowerCase() + timing + (required ? "" : " (optional)") + (lazy ? " (lazy)" : "");
+        }
+    }
+
+    private static final class Server {
+
+        private final McpConnection connection;
+
+        private final boolean required;
+
+        private final boolean lazy;
+
+        private volatile State state = State.PENDING;
+
+        private volatile Duration startupTime;
+
+        private volatile String error;
+
+        /**
+         * Initializations failed in a row, only written by the initializing thread.
+         */
+        private volatile int failures;
+
+        private volatile long nextRetryNanos;
+
+        private CompletableFuture<Void> started;
+
+        Server(McpConnection connection, boolean required, boolean lazy) {
+            this.connection = connection;
+            this.required = required;
+            this.lazy = lazy;
+        }
+
+        ServerStartupStatus status() {
+            Duration time = startupTime;
+            return new ServerStartupStatus(state, required, lazy, time != null ? time.toMillis() : null, error);
+        }
+    }
+}
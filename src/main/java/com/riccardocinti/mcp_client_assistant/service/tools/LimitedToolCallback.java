@@ -0,0 +1,45 @@
+package com.riccardocinti.mcp_client_assistant.service.tools;
+
+import com.riccardocinti.mcp_client_assistant.config.ToolResultLimitProperties;
+import org.springframework.ai.chat.model.ToolContext;
+import org.springframework.ai.tool.ToolCallback;
+import org.springframework.ai.tool.definition.ToolDefinition;
+import org.springframework.ai.tool.metadata.ToolMetadata;
+
+/**
+ * Tool callback whose results are kept within the tool's limits by the {@link ToolResultLimiter}.
+ */
+class LimitedToolCallback implements ToolCallback {
+
+    private final ToolCallback delegate;
+
+    private final ToolResultLimitProperties.Limits limits;
+
+    private final ToolResultLimiter limiter;
+
+    LimitedToolCallback(ToolCallback delegate, ToolResultLimitProperties.Limits limits, ToolResultLimiter limiter) {
+        this.delegate = delegate;
+        this.limits = limits;
+        this.limiter = limiter;
+    }
+
+    @Override
+    public ToolDefinition getToolDefinition() {
+        return delegate.getToolDefinition();
+    }
+
+    @Override
+    public ToolMetadata getToolMetadata() {
+        return delegate.getToolMetadata();
+    }
+
+    @Override
+    public String call(String toolInput) {
+        return call(toolInput, null);
+    }
+
+    @Override
+    public String call(String toolInput, ToolContext toolContext) {
+        return limiter.limit(getToolDefinition().name(), delegate.call(toolInput, toolContext), limits);
+    }
+}
@@ -0,0 +1,55 @@
+package com.riccardocinti.mcp_client_assistant.service.tools;
+
+import org.springframework.ai.chat.model.ToolContext;
+import org.springframework.ai.tool.ToolCallback;
+import org.springframework.ai.tool.definition.ToolDefinition;
+import org.springframework.ai.tool.metadata.ToolMetadata;
+
+/**
+ * Tool callback that reports the duration and outcome of every call to {@link ToolCallMetrics}.
+ */
+class MeteredToolCallback implements ToolCallback {
+
+    private final ToolCallback delegate;
+
+    private final String server;
+
+    private final String tool;
+
+    private final ToolCallMetrics metrics;
+
+    MeteredToolCallback(ToolCallback delegate, String server, String tool, ToolCallMetrics metrics) {
+        this.delegate = delegate;
+        this.server = server;
+        this.tool = tool;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public ToolDefinition getToolDefinition() {
+        return delegate.getToolDefinition();
+    }
+
+    @Override
+    public ToolMetadata getToolMetadata() {
+        return delegate.getToolMetadata();
+    }
+
+    @Override
+    public String call(String toolInput) {
+        return call(toolInput, null);
+    }
+
+    @Override
+    public String call(String toolInput, ToolContext toolContext) {
+        long start = System.nanoTime();
+        String outcome = "error";
+        try {
+            String result = delegate.call(toolInput, toolContext);
+            outcome = "success";
+            return result;
+        } finally {
+            metrics.record(server, tool, outcome, System.nanoTime() - start);
+        }
+    }
+}
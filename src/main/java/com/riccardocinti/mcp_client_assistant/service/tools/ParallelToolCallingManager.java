@@ -0,0 +1,217 @@
+package com.riccardocinti.mcp_client_assistant.service.tools;
+
+import com.riccardocinti.mcp_client_assistant.config.ToolExecutionProperties;
+import com.riccardocinti.mcp_client_assistant.service.McpService;
+import io.micrometer.observation.ObservationRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.ToolResponseMessage;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.model.ToolContext;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.model.tool.DefaultToolCallingManager;
+import org.springframework.ai.model.tool.ToolCallingChatOptions;
+import org.springframework.ai.model.tool.ToolCallingManager;
+import org.springframework.ai.model.tool.ToolExecutionResult;
+import org.springframework.ai.tool.ToolCallback;
+import org.springframework.ai.tool.definition.ToolDefinition;
+import org.springframework.ai.tool.execution.ToolExecutionException;
+import org.springframework.ai.tool.execution.ToolExecutionExceptionProcessor;
+import org.springframework.ai.tool.resolution.ToolCallbackResolver;
+import org.springframework.stereotype.Service;
+import org.springframework.util.CollectionUtils;
+import org.springframework.util.StringUtils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Tool calling manager that runs the tool calls of one model turn concurrently.
+ * <p>
+ * Every call runs on its own virtual thread, gated by a per-MCP-server semaphore so
+ * that one server is never flooded, and bounded by a per-call timeout. Responses are
+ * returned to the model in the order the calls were requested. A call that fails or
+ * times out becomes an error tool response instead of failing the whole request, so
+ * the model can still answer with whatever the other calls returned.
+ */
+@Service
+@Slf4j
+public class ParallelToolCallingManager implements ToolCallingManager {
+
+    private static final String UNKNOWN_SERVER = "unknown";
+
+    private final ToolCallingManager definitionResolver;
+
+    private final ToolCallbackResolver toolCallbackResolver;
+
+    private final ToolExecutionExceptionProcessor exceptionProcessor;
+
+    private final McpService mcpService;
+
+    private final ToolExecutionProperties properties;
+
+    private final ExecutorService toolExecutor = Executors.newVirtualThreadPerTaskExecutor();
+
+    private final Map<String, Semaphore> serverPermits = new ConcurrentHashMap<>();
+
+    public ParallelToolCallingManager(ObservationRegistry observationRegistry,
+                                      ToolCallbackResolver toolCallbackResolver,
+                                      ToolExecutionExceptionProcessor exceptionProcessor,
+                                      McpService mcpService,
+                                      ToolExecutionProperties properties) {
+        this.definitionResolver = DefaultToolCallingManager.builder()
+                .observationRegistry(observationRegistry)
+                .toolCallbackResolver(toolCallbackResolver)
+                .toolExecutionExceptionProcessor(exceptionProcessor)
+                .build();
+        this.toolCallbackResolver = toolCallbackResolver;
+        this.exceptionProcessor = exceptionProcessor;
+        this.mcpService = mcpService;
+        this.properties = properties;
+    }
+
+    @Override
+    public List<ToolDefinition> resolveToolDefinitions(ToolCallingChatOptions chatOptions) {
+        return definitionResolver.resolveToolDefinitions(chatOptions);
+    }
+
+    @Override
+    public ToolExecutionResult executeToolCalls(Prompt prompt, ChatResponse chatResponse) {
+        AssistantMessage assistantMessage = chatResponse.getResults().stream()
+                .map(Generation::getOutput)
+                .filter(AssistantMessage::hasToolCalls)
+                .findFirst()
+                .orElseThrow(() -> new IllegalStateException("No tool call requested by the chat model"));
+
+        ToolContext toolContext = buildToolContext(prompt, assistantMessage);
+        List<ResolvedCall> calls = resolve(prompt, assistantMessage.getToolCalls());
+
+        List<ToolResponseMessage.ToolResponse> responses = properties.parallel()
+                ? executeConcurrently(calls, toolContext)
+                : calls.stream().map(call -> awaitResponse(call, submit(call, toolContext), deadline())).toList();
+
+        List<Message> conversationHistory = new ArrayList<>(prompt.copy().getInstructions());
+        conversationHistory.add(assistantMessage);
+        conversationHistory.add(new ToolResponseMessage(responses, Map.of()));
+
+        boolean returnDirect = calls.stream().allMatch(call -> call.callback().getToolMetadata().returnDirect());
+        return ToolExecutionResult.builder()
+                .conversationHistory(conversationHistory)
+                .returnDirect(returnDirect)
+                .build();
+    }
+
+    private List<ToolResponseMessage.ToolResponse> executeConcurrently(List<ResolvedCall> calls,
+                                                                       ToolContext toolContext) {
+        if (calls.size() > 1) {
+            log.info("Executing {} tool calls concurrently", calls.size());
+        }
+        List<Future<String>> futures = calls.stream().map(call -> submit(call, toolContext)).toList();
+        long deadline = deadline();
+
+        List<ToolResponseMessage.ToolResponse> responses = new ArrayList<>(calls.size());
+        for (int i = 0; i < calls.size(); i++) {
+            responses.add(awaitResponse(calls.get(i), futures.get(i), deadline));
+        }
+        return responses;
+    }
+
+    private Future<String> submit(ResolvedCall call, ToolContext toolContext) {
+        return toolExecutor.submit(() -> execute(call, toolContext));
+    }
+
+    private String execute(ResolvedCall call, ToolContext toolContext) throws InterruptedException {
+        Semaphore permits = serverPermits.computeIfAbsent(call.server(),
+                server -> new Semaphore(properties.maxConcurrencyFor(server), true));
+        permits.acquire();
+        try {
+            return call.callback().call(call.arguments(), toolContext);
+        } catch (ToolExecutionException e) {
+            return exceptionProcessor.process(e);
+        } finally {
+            permits.release();
+        }
+    }
+
+    private long deadline() {
+        return System.nanoTime() + properties.timeout().toNanos();
+    }
+
+    /**
+     * Waits for the call until the deadline, which concurrent calls share so the
+     * whole turn is bounded by one timeout measured from their submission.
+     */
+    private ToolResponseMessage.ToolResponse awaitResponse(ResolvedCall call, Future<String> future,
+                                                           long deadlineNanos) {
+        String result;
+        try {
+            result = future.get(Math.max(0, deadlineNanos - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            log.warn("Tool {} timed out after {}", call.name(), properties.timeout());
+            result = "Error: tool " + call.name() + " timed out after " + properties.timeout().toSeconds() + "s";
+        } catch (ExecutionException e) {
+            log.warn("Tool {} failed", call.name(), e.getCause());
+            result = "Error: tool " + call.name() + " failed: " + e.getCause().getMessage();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            future.cancel(true);
+            throw new IllegalStateException("Interrupted while waiting for tool " + call.name(), e);
+        }
+        return new ToolResponseMessage.ToolResponse(call.id(), call.name(), result);
+    }
+
+    private List<ResolvedCall> resolve(Prompt prompt, List<AssistantMessage.ToolCall> toolCalls) {
+        List<ToolCallback> callbacks = prompt.getOptions() instanceof ToolCallingChatOptions options
+                ? options.getToolCallbacks()
+                : List.of();
+
+        return toolCalls.stream().map(toolCall -> {
+            String name = toolCall.name();
+            ToolCallback callback = callbacks.stream()
+                    .filter(tool -> name.equals(tool.getToolDefinition().name()))
+                    .findFirst()
+                    .orElseGet(() -> toolCallbackResolver.resolve(name));
+            if (callback == null) {
+                throw new IllegalStateException("No ToolCallback found for tool name: " + name);
+            }
+            // Models sometimes send no arguments at all for parameterless tools
+            String arguments = StringUtils.hasText(toolCall.arguments()) ? toolCall.arguments() : "{}";
+            String server = mcpService.getConnectionName(name).orElse(UNKNOWN_SERVER);
+            return new ResolvedCall(toolCall.id(), name, arguments, callback, server);
+        }).toList();
+    }
+
+    private static ToolContext buildToolContext(Prompt prompt, AssistantMessage assistantMessage) {
+        Map<String, Object> context = Map.of();
+        if (prompt.getOptions() instanceof ToolCallingChatOptions options
+                && !CollectionUtils.isEmpty(options.getToolContext())) {
+            context = new HashMap<>(options.getToolContext());
+            List<Message> history = new ArrayList<>(prompt.copy().getInstructions());
+            history.add(assistantMessage);
+            context.put(ToolContext.TOOL_CALL_HISTORY, history);
+        }
+        return new ToolContext(context);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        toolExecutor.shutdownNow();
+    }
+
+    private record ResolvedCall(String id, String name, String arguments, ToolCallback callback, String server) {
+    }
+}
@@ -0,0 +1,55 @@
+package com.riccardocinti.mcp_client_assistant.service.tools;
+
+import com.riccardocinti.mcp_client_assistant.service.McpConnection;
+import com.riccardocinti.mcp_client_assistant.service.ToolCallbackDecorator;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import org.springframework.ai.tool.ToolCallback;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times every tool call that reaches an MCP server, tagged by server, tool and
+ * outcome, so latency and error rate can be broken down per tool. Sits inside the
+ * tool result cache, cache hits are counted by the cache itself.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 5)
+@RequiredArgsConstructor
+public class ToolCallMetrics implements ToolCallbackDecorator {
+
+    private static final String UNKNOWN_SERVER = "unknown";
+
+    private final List<McpConnection> mcpConnections;
+
+    private final MeterRegistry meterRegistry;
+
+    @Override
+    public ToolCallback decorate(ToolCallback callback) {
+        String name = callback.getToolDefinition().name();
+        for (McpConnection connection : mcpConnections) {
+            String prefix = connection.toolNamePrefix();
+            if (name.startsWith(prefix)) {
+                return new MeteredToolCallback(callback, connection.connectionName(), name.substring(prefix.length()),
+                        this);
+            }
+        }
+        return new MeteredToolCallback(callback, UNKNOWN_SERVER, name, this);
+    }
+
+    void record(String server, String tool, String outcome, long nanos) {
+        // Tool names come from the catalog, so the tag stays bounded
+        Timer.builder("assistant.tool.calls")
+                .description("Tool calls executed by MCP servers")
+                .tag("server", server)
+                .tag("tool", tool)
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+}
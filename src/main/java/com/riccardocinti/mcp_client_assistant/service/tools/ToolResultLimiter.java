@@ -0,0 +1,234 @@
+package com.riccardocinti.mcp_client_assistant.service.tools;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.databind.node.TextNode;
+import com.riccardocinti.mcp_client_assistant.config.ToolResultLimitProperties;
+import com.riccardocinti.mcp_client_assistant.service.ToolCallbackDecorator;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.tokenizer.JTokkitTokenCountEstimator;
+import org.springframework.ai.tokenizer.TokenCountEstimator;
+import org.springframework.ai.tool.ToolCallback;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Service;
+
+import java.util.Optional;
+
+/**
+ * Keeps tool results within per-tool byte and token limits before they reach the
+ * prompt, the result cache or the trace.
+ * <p>
+ * A JSON result stays valid JSON: arrays are cut to their first items, followed by
+ * a count of the rest, and long strings are shortened in the middle. Strings that
+ * hold JSON themselves, as MCP text content usually does, are shortened the same
+ * way. The limits are halved until the result fits. Anything else, and JSON that
+ * cannot be made to fit, keeps its beginning and end. The full original is written
+ * to the {@link ToolResultSpill} and can be fetched by the ID given in the result.
+ */
+@Service
+// Inside the result cache, so cached entries are the bounded results
+@Order(Ordered.HIGHEST_PRECEDENCE + 7)
+@RequiredArgsConstructor
+@Slf4j
+public class ToolResultLimiter implements ToolCallbackDecorator {
+
+    private static final int MAX_TIGHTENING_ROUNDS = 6;
+
+    private static final int MIN_STRING_LENGTH = 100;
+
+    /**
+     * Characters sampled to estimate the characters per token of a long result.
+     */
+    private static final int TOKEN_SAMPLE_LENGTH = 8192;
+
+    private final ToolResultLimitProperties properties;
+
+    private final ToolResultSpill spill;
+
+    private final MeterRegistry meterRegistry;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final TokenCountEstimator tokenCountEstimator = new JTokkitTokenCountEstimator();
+
+    @Override
+    public ToolCallback decorate(ToolCallback callback) {
+        if (!properties.enabled()) {
+            return callback;
+        }
+        return new LimitedToolCallback(callback, properties.limitsFor(callback.getToolDefinition().name()), this);
+    }
+
+    String limit(String tool, String result, ToolResultLimitProperties.Limits limits) {
+        if (result == null) {
+            return null;
+        }
+        long bytes = utf8Length(result);
+        if (fits(result, bytes, limits)) {
+            count(tool, "passed");
+            return result;
+        }
+
+        Optional<String> id = spill.spill(result, bytes);
+        String bounded = shrinkJson(result, bytes, id, limits)
+                .orElseGet(() -> excerpt(result, bytes, id, limits));
+        long trimmed = bytes - utf8Length(bounded);
+        count(tool, "shortened");
+        // Tool names come from the catalog, so the tag stays bounded
+        DistributionSummary.builder("assistant.tool.results.trimmed")
+                .description("Bytes cut from tool results to keep them within their limits")
+                .baseUnit("bytes")
+                .tag("tool", tool)
+                .register(meterRegistry)
+                .record(trimmed);
+        log.info("Shortened result of tool {} from {} to {} bytes{}", tool, bytes, bytes - trimmed,
+                id.map(value -> ", full result kept as " + value).orElse(""));
+        return bounded;
+    }
+
+    private boolean fits(String text, long bytes, ToolResultLimitProperties.Limits limits) {
+        if (bytes > limits.maxSize().toBytes()) {
+            return false;
+        }
+        // A token is at least one byte, only tokenize when it could matter
+        return bytes <= limits.maxTokens() || tokenCountEstimator.estimate(text) <= limits.maxTokens();
+    }
+
+    private Optional<String> shrinkJson(String result, long bytes, Optional<String> id,
+                                        ToolResultLimitProperties.Limits limits) {
+        Optional<JsonNode> root = parseJson(result);
+        if (root.isEmpty()) {
+            return Optional.empty();
+        }
+        int items = limits.maxArrayItems();
+        int chars = limits.maxStringLength();
+        for (int round = 0; round < MAX_TIGHTENING_ROUNDS; round++) {
+            ObjectNode envelope = objectMapper.createObjectNode();
+            envelope.set("result", shrink(root.get(), items, chars));
+            ObjectNode notice = envelope.putObject("truncation")
+                    .put("originalBytes", bytes)
+                    .put("note", "Arrays keep their first " + items + " items, strings their first and last "
+                            + chars + " characters");
+            id.ifPresent(value -> notice.put("fullResult", "/api/tool-results/" + value));
+            String candidate = envelope.toString();
+            if (fits(candidate, utf8Length(candidate), limits)) {
+                return Optional.of(candidate);
+            }
+            items = Math.max(1, items / 2);
+            chars = Math.max(MIN_STRING_LENGTH, chars / 2);
+        }
+        return Optional.empty();
+    }
+
+    private JsonNode shrink(JsonNode node, int items, int chars) {
+        if (node.isArray()) {
+            ArrayNode shrunk = objectMapper.createArrayNode();
+            for (int i = 0; i < Math.min(items, node.size()); i++) {
+                shrunk.add(shrink(node.get(i), items, chars));
+            }
+            if (node.size() > items) {
+                shrunk.add("[" + (node.size() - items) + " more items omitted]");
+            }
+            return shrunk;
+        }
+        if (node.isObject()) {
+            ObjectNode shrunk = objectMapper.createObjectNode();
+            node.properties().forEach(field -> shrunk.set(field.getKey(), shrink(field.getValue(), items, chars)));
+            return shrunk;
+        }
+        if (node.isTextual() && node.textValue().length() > chars) {
+            String text = node.textValue();
+            return parseJson(text)
+                    .map(embedded -> new TextNode(shrink(embedded, items, chars).toString()))
+                    .orElseGet(() -> new TextNode(middle(text, chars)));
+        }
+        return node;
+    }
+
+    /**
+     * Beginning and end of a result that is not JSON or could not be shortened as JSON.
+     */
+    private String excerpt(String result, long bytes, Optional<String> id, ToolResultLimitProperties.Limits limits) {
+        String sample = result.substring(0, Math.min(result.length(), TOKEN_SAMPLE_LENGTH));
+        double charsPerToken = (double) sample.length() / Math.max(1, tokenCountEstimator.estimate(sample));
+        double charsPerByte = (double) result.length() / bytes;
+        int keep = (int) Math.min(limits.maxSize().toBytes() * charsPerByte, limits.maxTokens() * charsPerToken);
+        String notice = "\n[Result shortened from " + bytes + " bytes"
+                + id.map(value -> ", full result at /api/tool-results/" + value).orElse("") + "]";
+        String candidate = result;
+        for (int round = 0; round < MAX_TIGHTENING_ROUNDS; round++) {
+            // Leave room for the notice and the estimates being off
+            keep = (int) (keep * 0.9);
+            candidate = middle(result, Math.max(MIN_STRING_LENGTH, keep - notice.length())) + notice;
+            if (fits(candidate, utf8Length(candidate), limits)) {
+                break;
+            }
+        }
+        return candidate;
+    }
+
+    /**
+     * Keeps the beginning and the end, which usually carry the headline and the conclusion.
+     */
+    private static String middle(String text, int keep) {
+        if (text.length() <= keep) {
+            return text;
+        }
+        int head = keep * 2 / 3;
+        int tail = keep - head;
+        return text.substring(0, head)
+                + "\n[... " + (text.length() - keep) + " characters omitted ...]\n"
+                + text.substring(text.length() - tail);
+    }
+
+    private Optional<JsonNode> parseJson(String text) {
+        String trimmed = text.strip();
+        if (!(trimmed.startsWith("{") || trimmed.startsWith("["))) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.of(objectMapper.readTree(trimmed));
+        } catch (JsonProcessingException e) {
+            return Optional.empty();
+        }
+    }
+
+    private void count(String tool, String outcome) {
+        Counter.builder("assistant.tool.results")
+                .description("Tool results by whether they had to be shortened")
+                .tag("tool", tool)
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    /**
+     * UTF-8 size without encoding a copy of a possibly large result.
+     */
+    static long utf8Length(CharSequence text) {
+        long bytes = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                bytes += 1;
+            } else if (c < 0x800) {
+                bytes += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < text.length()
+                    && Character.isLowSurrogate(text.charAt(i + 1))) {
+                bytes += 4;
+                i++;
+            } else {
+                bytes += 3;
+            }
+        }
+        return bytes;
+    }
+}
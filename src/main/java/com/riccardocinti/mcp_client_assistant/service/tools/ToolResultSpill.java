@@ -0,0 +1,145 @@
+package com.riccardocinti.mcp_client_assistant.service.tools;
+
+import com.riccardocinti.mcp_client_assistant.config.ToolResultLimitProperties;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Keeps the full originals of shortened tool results on disk, retrievable by ID for
+ * a limited time, so the model and the heap only ever see the bounded version.
+ * Once {@code max-spill-size} is used up, results are no longer kept until the
+ * sweep has removed expired ones.
+ */
+@Component
+@Slf4j
+public class ToolResultSpill {
+
+    private static final List<String> EXTENSIONS = List.of(".json", ".txt");
+
+    private final ToolResultLimitProperties properties;
+
+    private final Path directory;
+
+    private final boolean temporary;
+
+    /**
+     * Bytes of the kept results, reserved before a file is written.
+     */
+    private final AtomicLong keptBytes = new AtomicLong();
+
+    public ToolResultSpill(ToolResultLimitProperties properties) {
+        this.properties = properties;
+        try {
+            this.temporary = properties.spillDirectory().isBlank();
+            this.directory = temporary
+                    ? Files.createTempDirectory("mcp-tool-results")
+                    : Files.createDirectories(Path.of(properties.spillDirectory()));
+            // A configured directory may still hold results kept before a restart
+            try (Stream<Path> files = Files.list(directory)) {
+                keptBytes.set(files.map(Kept::of).flatMap(Optional::stream).mapToLong(Kept::size).sum());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not create tool result spill directory", e);
+        }
+    }
+
+    /**
+     * Writes the result to its own file and returns its ID, or nothing if it would
+     * exceed the spill budget or could not be written.
+     *
+     * @param bytes UTF-8 size of the result
+     */
+    Optional<String> spill(String result, long bytes) {
+        if (keptBytes.addAndGet(bytes) > properties.maxSpillSize().toBytes()) {
+            keptBytes.addAndGet(-bytes);
+            log.debug("Tool result spill budget of {} used up, not keeping a {} byte result",
+                    properties.maxSpillSize(), bytes);
+            return Optional.empty();
+        }
+        String id = UUID.randomUUID().toString();
+        String extension = result.startsWith("{") || result.startsWith("[") ? ".json" : ".txt";
+        try {
+            // Encoded straight into the file, no second copy of a large result on the heap
+            try (var writer = Files.newBufferedWriter(directory.resolve(id + extension), StandardCharsets.UTF_8)) {
+                writer.write(result);
+            }
+            return Optional.of(id);
+        } catch (IOException e) {
+            keptBytes.addAndGet(-bytes);
+            log.warn("Could not keep the full tool result: {}", e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * The file holding a kept result, if the ID is one of ours and has not expired.
+     */
+    public Optional<Path> find(String id) {
+        try {
+            UUID.fromString(id);
+        } catch (IllegalArgumentException e) {
+            return Optional.empty();
+        }
+        return EXTENSIONS.stream()
+                .map(extension -> directory.resolve(id + extension))
+                .filter(Files::isRegularFile)
+                .findFirst();
+    }
+
+    @Scheduled(fixedDelayString = "${assistant.tool-results.sweep-interval:5m}")
+    public void sweep() {
+        FileTime cutoff = FileTime.from(Instant.now().minus(properties.spillTtl()));
+        long budget = properties.maxSpillSize().toBytes();
+        try (Stream<Path> files = Files.list(directory)) {
+            List<Kept> newestFirst = files.map(Kept::of)
+                    .flatMap(Optional::stream)
+                    .sorted(Comparator.comparing(Kept::modified).reversed())
+                    .toList();
+            long total = 0;
+            for (Kept kept : newestFirst) {
+                total += kept.size();
+                if ((kept.modified().compareTo(cutoff) < 0 || total > budget) && Files.deleteIfExists(kept.file())) {
+                    keptBytes.addAndGet(-kept.size());
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Could not sweep tool result spill directory: {}", e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    void shutdown() throws IOException {
+        if (temporary) {
+            FileSystemUtils.deleteRecursively(directory);
+        }
+    }
+
+    private record Kept(Path file, FileTime modified, long size) {
+
+        static Optional<Kept> of(Path file) {
+            try {
+                return Optional.of(new Kept(file, Files.getLastModifiedTime(file), Files.size(file)));
+            } catch (IOException e) {
+                // Deleted by a concurrent sweep
+                return Optional.empty();
+            }
+        }
+    }
+}
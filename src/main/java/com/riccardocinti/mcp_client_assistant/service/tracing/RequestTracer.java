@@ -0,0 +1,150 @@
+package com.riccardocinti.mcp_client_assistant.service.tracing;
+
+import com.riccardocinti.mcp_client_assistant.config.TracingProperties;
+import com.riccardocinti.mcp_client_assistant.model.RequestTrace;
+import com.riccardocinti.mcp_client_assistant.service.catalog.ToolCatalog;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.ai.tool.ToolCallback;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Records one span tree per chat request and keeps the latest completed ones in memory.
+ * <p>
+ * Completed traces go into a fixed-size ring buffer: writers claim a slot with one
+ * atomic increment and overwrite whatever was there, so recording never blocks and
+ * memory stays bounded. Timings and sizes are always recorded; prompts, responses
+ * and tool arguments only for the sampled share of traces, which keeps tracing cheap
+ * enough to leave on where DEBUG logging of every prompt is not.
+ * <p>
+ * The span being worked on is kept per thread while the request runs on it
+ * ({@link #activate}); work that moves to other threads is handed its parent span explicitly.
+ */
+@Service
+public class RequestTracer {
+
+    private static final ThreadLocal<Span> CURRENT = new ThreadLocal<>();
+
+    private final TracingProperties properties;
+
+    private final ToolCatalog toolCatalog;
+
+    private final AtomicReferenceArray<RequestTrace> buffer;
+
+    private final AtomicLong writes = new AtomicLong();
+
+    private final Counter recorded;
+
+    public RequestTracer(TracingProperties properties, ToolCatalog toolCatalog, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.toolCatalog = toolCatalog;
+        this.buffer = new AtomicReferenceArray<>(Math.max(1, properties.capacity()));
+        this.recorded = Counter.builder("assistant.tracing.traces")
+                .description("Request traces recorded into the trace buffer")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Starts the trace of a request. The returned root span completes the trace when it ends.
+     */
+    public Span begin(String path, String conversationId) {
+        if (!properties.enabled()) {
+            return Span.NOOP;
+        }
+        boolean sampled = properties.payloadSampleRate() > 0
+                && ThreadLocalRandom.current().nextDouble() < properties.payloadSampleRate();
+        return new Trace(UUID.randomUUID().toString(), path, conversationId, sampled,
+                properties.maxPayloadLength(), this::record).root();
+    }
+
+    /**
+     * Makes the span current on this thread until the returned scope is closed.
+     */
+    public Scope activate(Span span) {
+        Span previous = CURRENT.get();
+        CURRENT.set(span);
+        return () -> {
+            if (previous != null) {
+                CURRENT.set(previous);
+            } else {
+                CURRENT.remove();
+            }
+        };
+    }
+
+    /**
+     * Starts a child of the current span, or a no-op span if this thread is not tracing a request.
+     */
+    public Span span(String name) {
+        Span current = CURRENT.get();
+        return current != null ? current.child(name) : Span.NOOP;
+    }
+
+    /**
+     * Wraps a tool so its calls are recorded under {@code parent}, whichever thread runs them.
+     */
+    public ToolCallback traced(ToolCallback callback, Span parent) {
+        if (!parent.isRecording()) {
+            return callback;
+        }
+        String server = toolCatalog.getSnapshot().serverOf(callback.getToolDefinition().name()).orElse("unknown");
+        return new TracingToolCallback(callback, parent, server);
+    }
+
+    /**
+     * Completed traces, newest first.
+     *
+     * @param conversationId only traces of this conversation, if not null
+     * @param minDuration    only traces at least this slow, if not null
+     */
+    public List<RequestTrace> find(String conversationId, Duration minDuration, int limit) {
+        double minMillis = minDuration != null ? minDuration.toNanos() / 1_000_000.0 : 0;
+        return snapshot().stream()
+                .filter(trace -> conversationId == null || conversationId.equals(trace.conversationId()))
+                .filter(trace -> trace.durationMillis() >= minMillis)
+                .sorted(Comparator.comparing(RequestTrace::startedAt).reversed())
+                .limit(Math.max(0, limit))
+                .toList();
+    }
+
+    public Optional<RequestTrace> get(String traceId) {
+        return snapshot().stream()
+                .filter(trace -> trace.traceId().equals(traceId))
+                .findFirst();
+    }
+
+    private List<RequestTrace> snapshot() {
+        List<RequestTrace> traces = new ArrayList<>(buffer.length());
+        for (int slot = 0; slot < buffer.length(); slot++) {
+            traces.add(buffer.get(slot));
+        }
+        return traces.stream().filter(Objects::nonNull).toList();
+    }
+
+    private void record(RequestTrace trace) {
+        int slot = (int) (writes.getAndIncrement() % buffer.length());
+        buffer.set(slot, trace);
+        recorded.increment();
+    }
+
+    /**
+     * Restores the previously current span when closed.
+     */
+    @FunctionalInterface
+    public interface Scope extends AutoCloseable {
+
+        @Override
+        void close();
+    }
+}
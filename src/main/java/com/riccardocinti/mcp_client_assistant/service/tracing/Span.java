@@ -0,0 +1,140 @@
+package com.riccardocinti.mcp_client_assistant.service.tracing;
+
+import com.riccardocinti.mcp_client_assistant.model.TraceSpan;
+
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * One timed step of a traced request. Spans of one trace may be started and ended
+ * on different threads, e.g. tool calls on their own virtual threads. Ending a span
+ * more than once has no further effect; ending the root completes the trace.
+ * <p>
+ * {@link #NOOP} stands in when tracing is off or no request is being traced, so
+ * callers never have to check.
+ */
+public final class Span implements AutoCloseable {
+
+    public static final Span NOOP = new Span(null, "noop", 0);
+
+    private static final String OK = "ok";
+
+    private final Trace trace;
+
+    private final String name;
+
+    private final long startNanos;
+
+    private volatile long endNanos;
+
+    private volatile String outcome = OK;
+
+    private final AtomicBoolean ended = new AtomicBoolean();
+
+    private final Map<String, Object> attributes = Collections.synchronizedMap(new LinkedHashMap<>());
+
+    private final Queue<Span> children = new ConcurrentLinkedQueue<>();
+
+    Span(Trace trace, String name, long startNanos) {
+        this.trace = trace;
+        this.name = name;
+        this.startNanos = startNanos;
+    }
+
+    public Span child(String childName) {
+        if (trace == null || ended.get()) {
+            return NOOP;
+        }
+        Span child = new Span(trace, childName, System.nanoTime());
+        children.add(child);
+        return child;
+    }
+
+    public Span tag(String key, Object value) {
+        if (trace != null && value != null) {
+            attributes.put(key, value);
+        }
+        return this;
+    }
+
+    /**
+     * Keeps a prompt, response or tool argument, but only on traces sampled for payloads.
+     */
+    public Span payload(String key, String value) {
+        if (trace != null && trace.sampled() && value != null) {
+            attributes.put(key, trace.truncate(value));
+        }
+        return this;
+    }
+
+    public boolean isRecording() {
+        return trace != null;
+    }
+
+    public void error(Throwable error) {
+        if (trace == null) {
+            return;
+        }
+        outcome = "error";
+        attributes.put("error", error.getClass().getSimpleName()
+                + (error.getMessage() != null ? ": " + trace.truncate(error.getMessage()) : ""));
+    }
+
+    /**
+     * Ends the span with the given outcome, unless an error was recorded already.
+     */
+    public void end(String finalOutcome) {
+        if (OK.equals(outcome)) {
+            outcome = finalOutcome;
+        }
+        end();
+    }
+
+    public void end() {
+        if (trace == null || !ended.compareAndSet(false, true)) {
+            return;
+        }
+        endNanos = System.nanoTime();
+        if (trace.root() == this) {
+            trace.complete();
+        }
+    }
+
+    @Override
+    public void close() {
+        end();
+    }
+
+    long startNanos() {
+        return startNanos;
+    }
+
+    String outcome() {
+        return outcome;
+    }
+
+    TraceSpan toView(long traceStartNanos) {
+        List<TraceSpan> childViews = children.stream()
+                .sorted(Comparator.comparingLong(Span::startNanos))
+                .map(child -> child.toView(traceStartNanos))
+                .toList();
+        Map<String, Object> attributeCopy;
+        synchronized (attributes) {
+            attributeCopy = new LinkedHashMap<>(attributes);
+        }
+        return new TraceSpan(name, millis(startNanos - traceStartNanos),
+                ended.get() ? millis(endNanos - startNanos) : null, outcome, attributeCopy, childViews);
+    }
+
+    static double millis(long nanos) {
+        // Microsecond precision is plenty and keeps the JSON readable
+        return TimeUnit.NANOSECONDS.toMicros(nanos) / 1000.0;
+    }
+}
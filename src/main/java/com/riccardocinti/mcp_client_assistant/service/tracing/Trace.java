@@ -0,0 +1,64 @@
+package com.riccardocinti.mcp_client_assistant.service.tracing;
+
+import com.riccardocinti.mcp_client_assistant.model.RequestTrace;
+
+import java.time.Instant;
+import java.util.function.Consumer;
+
+/**
+ * State shared by the spans of one traced request.
+ */
+final class Trace {
+
+    private final String id;
+
+    private final String path;
+
+    private final String conversationId;
+
+    private final Instant startedAt = Instant.now();
+
+    private final boolean sampled;
+
+    private final int maxPayloadLength;
+
+    private final Consumer<RequestTrace> onComplete;
+
+    private final Span root;
+
+    Trace(String id, String path, String conversationId, boolean sampled, int maxPayloadLength,
+          Consumer<RequestTrace> onComplete) {
+        this.id = id;
+        this.path = path;
+        this.conversationId = conversationId;
+        this.sampled = sampled;
+        this.maxPayloadLength = maxPayloadLength;
+        this.onComplete = onComplete;
+        this.root = new Span(this, path, System.nanoTime());
+    }
+
+    Span root() {
+        return root;
+    }
+
+    boolean sampled() {
+        return sampled;
+    }
+
+    String truncate(String payload) {
+        if (payload.length() <= maxPayloadLength) {
+            return payload;
+        }
+        return payload.substring(0, maxPayloadLength) + "... (" + payload.length() + " chars)";
+    }
+
+    void complete() {
+        onComplete.accept(toView());
+    }
+
+    private RequestTrace toView() {
+        var rootView = root.toView(root.startNanos());
+        return new RequestTrace(id, path, conversationId, startedAt,
+                rootView.durationMillis() != null ? rootView.durationMillis() : 0, root.outcome(), sampled, rootView);
+    }
+}
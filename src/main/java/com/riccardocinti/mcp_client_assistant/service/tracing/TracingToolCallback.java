@@ -0,0 +1,65 @@
+package com.riccardocinti.mcp_client_assistant.service.tracing;
+
+import org.springframework.ai.chat.model.ToolContext;
+import org.springframework.ai.tool.ToolCallback;
+import org.springframework.ai.tool.definition.ToolDefinition;
+import org.springframework.ai.tool.metadata.ToolMetadata;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Records each call of a tool as a span under the LLM call that requested it.
+ * Created per request, as the parent span differs for every request.
+ */
+class TracingToolCallback implements ToolCallback {
+
+    private final ToolCallback delegate;
+
+    private final Span parent;
+
+    private final String server;
+
+    TracingToolCallback(ToolCallback delegate, Span parent, String server) {
+        this.delegate = delegate;
+        this.parent = parent;
+        this.server = server;
+    }
+
+    @Override
+    public ToolDefinition getToolDefinition() {
+        return delegate.getToolDefinition();
+    }
+
+    @Override
+    public ToolMetadata getToolMetadata() {
+        return delegate.getToolMetadata();
+    }
+
+    @Override
+    public String call(String toolInput) {
+        return call(toolInput, null);
+    }
+
+    @Override
+    public String call(String toolInput, ToolContext toolContext) {
+        Span span = parent.child("tool")
+                .tag("server", server)
+                .tag("tool", delegate.getToolDefinition().name())
+                .tag("argumentBytes", sizeOf(toolInput))
+                .payload("arguments", toolInput);
+        try {
+            String result = delegate.call(toolInput, toolContext);
+            span.tag("resultBytes", sizeOf(result)).payload("result", result);
+            return result;
+        } catch (RuntimeException e) {
+            span.error(e);
+            throw e;
+        } finally {
+            span.end();
+        }
+    }
+
+    private static int sizeOf(String value) {
+        return value == null ? 0 : value.getBytes(StandardCharsets.UTF_8).length;
+    }
+}
@@ -0,0 +1,63 @@
+package com.riccardocinti.mcp_client_assistant.service;
+
+import com.riccardocinti.mcp_client_assistant.config.LlmSchedulerProperties;
+import com.riccardocinti.mcp_client_assistant.config.McpStartupProperties;
+import com.riccardocinti.mcp_client_assistant.config.SpeculationProperties;
+import com.riccardocinti.mcp_client_assistant.model.ChatStreamEvent;
+import com.riccardocinti.mcp_client_assistant.service.routing.SpeculativeGeneration;
+import com.riccardocinti.mcp_client_assistant.service.scheduling.LlmScheduler;
+import com.riccardocinti.mcp_client_assistant.service.startup.McpServerStartup;
+import com.riccardocinti.mcp_client_assistant.service.tracing.Span;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RoutedStreamSchedulerTest {
+
+    @Test
+    void aKeptSpeculationStreamsWithoutHoldingTheRoutingSlot() throws InterruptedException {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        LlmScheduler llmScheduler = new LlmScheduler(new LlmSchedulerProperties(2, 16, Duration.ofSeconds(10)),
+                meterRegistry);
+        McpServerStartup mcpServerStartup = new McpServerStartup(List.of(), new McpStartupProperties(List.of(),
+                List.of(), Duration.ofSeconds(30), Duration.ofSeconds(15), Duration.ofMinutes(5)),
+                event -> {
+                }, meterRegistry);
+        SpeculativeGeneration speculativeGeneration = new SpeculativeGeneration(new SpeculationProperties(true, 0),
+                llmScheduler, meterRegistry);
+        RoutedStreamScheduler scheduler = new RoutedStreamScheduler(llmScheduler, mcpServerStartup);
+
+        Sinks.Many<ChatStreamEvent> generation = Sinks.many().unicast().onBackpressureBuffer();
+        SpeculativeGeneration.Speculation speculation = speculativeGeneration
+                .start(Span.NOOP, span -> generation.asFlux())
+                .orElseThrow();
+        List<ChatStreamEvent> received = new CopyOnWriteArrayList<>();
+        Disposable stream = scheduler.schedule("k", Span.NOOP, Span.NOOP,
+                        () -> new RoutedStreamScheduler.RoutedStream(false, speculation::commit, true))
+                .subscribe(received::add);
+        generation.tryEmitNext(ChatStreamEvent.token("Hello"));
+
+        // The speculation holds one of the two slots and is still streaming, the other one is free again
+        Optional<LlmScheduler.Permit> free = Optional.empty();
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (free.isEmpty() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+            free = llmScheduler.tryAcquire(0);
+        }
+        assertThat(free).as("free LLM slot").isPresent();
+        assertThat(received).extracting(ChatStreamEvent::type)
+                .containsExactly(ChatStreamEvent.ROUTING, ChatStreamEvent.TOKEN);
+
+        free.get().close();
+        generation.tryEmitComplete();
+        assertThat(stream.isDisposed()).isTrue();
+    }
+}
@@ -0,0 +1,172 @@
+package com.riccardocinti.mcp_client_assistant.service.conversation;
+
+import com.riccardocinti.mcp_client_assistant.config.ConversationLogProperties;
+import com.riccardocinti.mcp_client_assistant.config.ConversationProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static com.riccardocinti.mcp_client_assistant.service.conversation.ConversationMessage.assistant;
+import static com.riccardocinti.mcp_client_assistant.service.conversation.ConversationMessage.summary;
+import static com.riccardocinti.mcp_client_assistant.service.conversation.ConversationMessage.user;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MappedLogConversationStoreTest {
+
+    private static final int SEGMENT_SIZE = 4096;
+
+    @TempDir
+    Path directory;
+
+    private final List<AutoCloseable> opened = new ArrayList<>();
+
+    @AfterEach
+    void closeAll() throws Exception {
+        for (AutoCloseable closeable : opened) {
+            closeable.close();
+        }
+    }
+
+    @Test
+    void appendedMessagesAreReadBackInOrder() {
+        MappedLogConversationStore store = open();
+
+        store.append("c1", List.of(user("hello"), assistant("hi there")));
+        store.append("c1", List.of(user("how are you?")));
+
+        assertThat(store.getMessages("c1"))
+                .containsExactly(user("hello"), assistant("hi there"), user("how are you?"));
+        assertThat(store.getMessages("c2")).isEmpty();
+    }
+
+    @Test
+    void clearRemovesTheConversation() {
+        MappedLogConversationStore store = open();
+        store.append("c1", List.of(user("hello")));
+        store.append("c2", List.of(user("other")));
+
+        store.clear("c1");
+
+        assertThat(store.getMessages("c1")).isEmpty();
+        assertThat(store.getMessages("c2")).containsExactly(user("other"));
+        assertThat(store.getStats().messages()).isEqualTo(1);
+    }
+
+    @Test
+    void replacePrefixOnlyReplacesAMatchingPrefix() {
+        MappedLogConversationStore store = open();
+        store.append("c1", List.of(user("u1"), assistant("a1"), user("u2")));
+
+        assertThat(store.replacePrefix("c1", List.of(user("u1"), assistant("other")), summary("s"))).isFalse();
+        assertThat(store.replacePrefix("c1", List.of(user("u1"), assistant("a1")), summary("s"))).isTrue();
+
+        assertThat(store.getMessages("c1")).containsExactly(summary("s"), user("u2"));
+    }
+
+    @Test
+    void reopeningReplaysAppendsReplacementsAndClears() {
+        MappedLogConversationStore store = open();
+        store.append("kept", List.of(user("u1"), assistant("a1"), user("u2")));
+        store.replacePrefix("kept", List.of(user("u1"), assistant("a1")), summary("s"));
+        store.append("kept", List.of(assistant("a2")));
+        store.append("cleared", List.of(user("gone")));
+        store.clear("cleared");
+        store.close();
+
+        MappedLogConversationStore reopened = open();
+
+        assertThat(reopened.getMessages("kept")).containsExactly(summary("s"), user("u2"), assistant("a2"));
+        assertThat(reopened.getMessages("cleared")).isEmpty();
+        assertThat(reopened.getStats().conversations()).isEqualTo(1);
+    }
+
+    @Test
+    void compactionDeletesMostlyDeadSegmentsAndRewritesEachConversationOnce() throws IOException {
+        MappedLogConversationStore store = open();
+        String filler = "x".repeat(500);
+        for (int i = 0; i < 20; i++) {
+            store.append("dead", List.of(user(filler + i)));
+            // Spreads the live conversation over several of the segments that will be compacted
+            if (i == 2 || i == 10) {
+                store.append("live", List.of(user("live " + i)));
+            }
+        }
+        store.clear("dead");
+        long segmentsBefore = segmentFiles().size();
+
+        store.compact();
+
+        assertThat(segmentFiles()).hasSizeLessThan((int) segmentsBefore);
+        assertThat(store.getMessages("live")).containsExactly(user("live 2"), user("live 10"));
+        store.close();
+
+        List<ConversationLog.Record> snapshots = new ArrayList<>();
+        try (ConversationLog log = new ConversationLog(directory, SEGMENT_SIZE, false)) {
+            log.open(record -> {
+                if (record.kind() == ConversationLog.Kind.SNAPSHOT) {
+                    snapshots.add(record);
+                }
+            });
+        }
+        assertThat(snapshots).extracting(ConversationLog.Record::conversationId).containsExactly("live");
+
+        MappedLogConversationStore reopened = open();
+        assertThat(reopened.getMessages("live")).containsExactly(user("live 2"), user("live 10"));
+        assertThat(reopened.getMessages("dead")).isEmpty();
+    }
+
+    @Test
+    void aCorruptedTailIsIgnoredAndOverwritten() throws IOException {
+        long intactEnd;
+        try (ConversationLog log = new ConversationLog(directory, SEGMENT_SIZE, false)) {
+            log.open(record -> {
+            });
+            log.append(ConversationLog.Kind.APPEND, "c1", 0, List.of(user("first")));
+            intactEnd = log.sizeBytes();
+            log.append(ConversationLog.Kind.APPEND, "c1", 0, List.of(user("torn")));
+        }
+        try (RandomAccessFile file = new RandomAccessFile(segmentFiles().getFirst().toFile(), "rw")) {
+            long corrupted = intactEnd + 20;
+            file.seek(corrupted);
+            int original = file.read();
+            file.seek(corrupted);
+            file.write(original ^ 0xFF);
+        }
+
+        MappedLogConversationStore store = open();
+        assertThat(store.getMessages("c1")).containsExactly(user("first"));
+        store.append("c1", List.of(assistant("after recovery")));
+        store.close();
+
+        MappedLogConversationStore reopened = open();
+        assertThat(reopened.getMessages("c1")).containsExactly(user("first"), assistant("after recovery"));
+    }
+
+    private MappedLogConversationStore open() {
+        var properties = new ConversationProperties("log", 10_000, 100, DataSize.ofMegabytes(64),
+                Duration.ofMinutes(30), Duration.ofSeconds(60));
+        var logProperties = new ConversationLogProperties(directory.toString(), DataSize.ofBytes(SEGMENT_SIZE),
+                0.5, Duration.ofMinutes(5), false);
+        var store = new MappedLogConversationStore(properties, logProperties, new SimpleMeterRegistry());
+        store.recover();
+        opened.add(store::close);
+        return store;
+    }
+
+    private List<Path> segmentFiles() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.sorted().toList();
+        }
+    }
+}
@@ -0,0 +1,224 @@
+package com.riccardocinti.mcp_client_assistant.service.scheduling;
+
+import com.riccardocinti.mcp_client_assistant.config.LlmSchedulerProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class LlmSchedulerTest {
+
+    @Test
+    void freedSlotsGoToTheHighestPriorityFirst() {
+        LlmScheduler scheduler = scheduler(Duration.ofSeconds(10));
+        List<String> granted = new CopyOnWriteArrayList<>();
+        LlmScheduler.Permit holder = scheduler.acquire(LlmPriority.INTERACTIVE, "holder");
+
+        waitFor(scheduler, LlmPriority.BACKGROUND, "k", "background", granted);
+        waitFor(scheduler, LlmPriority.BATCH, "k", "batch", granted);
+        waitFor(scheduler, LlmPriority.INTERACTIVE, "k", "interactive", granted);
+        holder.close();
+
+        assertThat(granted).containsExactly("interactive", "batch", "background");
+    }
+
+    @Test
+    void waitersOfOnePriorityAreServedRoundRobinAcrossKeys() {
+        LlmScheduler scheduler = scheduler(Duration.ofSeconds(10));
+        List<String> granted = new CopyOnWriteArrayList<>();
+        LlmScheduler.Permit holder = scheduler.acquire(LlmPriority.BATCH, "holder");
+
+        waitFor(scheduler, LlmPriority.BATCH, "a", "a1", granted);
+        waitFor(scheduler, LlmPriority.BATCH, "a", "a2", granted);
+        waitFor(scheduler, LlmPriority.BATCH, "a", "a3", granted);
+        waitFor(scheduler, LlmPriority.BATCH, "b", "b1", granted);
+        waitFor(scheduler, LlmPriority.BATCH, "c", "c1", granted);
+        waitFor(scheduler, LlmPriority.BATCH, "b", "b2", granted);
+        holder.close();
+
+        assertThat(granted).containsExactly("a1", "b1", "c1", "a2", "b2", "a3");
+    }
+
+    @Test
+    void cancellingAScheduledStreamAfterTheGrantReleasesTheSlot() {
+        LlmScheduler scheduler = scheduler(Duration.ofSeconds(10));
+        LlmScheduler.Permit holder = scheduler.acquire(LlmPriority.INTERACTIVE, "holder");
+        AtomicBoolean started = new AtomicBoolean();
+        Disposable subscription = scheduler.schedule(LlmPriority.INTERACTIVE, "k",
+                () -> Flux.never().doOnSubscribe(s -> started.set(true))).subscribe();
+
+        holder.close();
+        assertThat(started).isTrue();
+        assertThat(scheduler.tryAcquire(0)).isEmpty();
+
+        subscription.dispose();
+        assertSlotIsFree(scheduler);
+    }
+
+    @Test
+    void cancellingAScheduledStreamWhileTheSlotIsGrantedNeverLeaksIt() throws Exception {
+        LlmScheduler scheduler = scheduler(Duration.ofSeconds(10));
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < 200; i++) {
+                LlmScheduler.Permit holder = scheduler.acquire(LlmPriority.INTERACTIVE, "holder");
+                Disposable subscription = scheduler.schedule(LlmPriority.INTERACTIVE, "k",
+                        () -> Flux.never()).subscribe();
+
+                Future<?> release = executor.submit(holder::close);
+                Future<?> cancel = executor.submit(subscription::dispose);
+                release.get(1, TimeUnit.SECONDS);
+                cancel.get(1, TimeUnit.SECONDS);
+
+                assertSlotIsFree(scheduler);
+            }
+        }
+    }
+
+    @Test
+    void aWaiterTimingOutWhileTheSlotIsReleasedNeverLeaksIt() throws Exception {
+        LlmScheduler scheduler = scheduler(Duration.ofMillis(5));
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < 200; i++) {
+                LlmScheduler.Permit holder = scheduler.acquire(LlmPriority.INTERACTIVE, "holder");
+                Future<Optional<LlmScheduler.Permit>> waiter = executor.submit(() -> {
+                    try {
+                        return Optional.of(scheduler.acquire(LlmPriority.INTERACTIVE, "k"));
+                    } catch (LlmOverloadedException e) {
+                        return Optional.empty();
+                    }
+                });
+                // Lands just before, at or just after the waiter's timeout
+                TimeUnit.MICROSECONDS.sleep(ThreadLocalRandom.current().nextInt(3_000, 7_000));
+                holder.close();
+                waiter.get(1, TimeUnit.SECONDS).ifPresent(LlmScheduler.Permit::close);
+
+                assertSlotIsFree(scheduler);
+            }
+        }
+    }
+
+    @Test
+    void rejectsWhenTheQueueIsFull() {
+        LlmScheduler scheduler = new LlmScheduler(new LlmSchedulerProperties(1, 1, Duration.ofSeconds(10)),
+                new SimpleMeterRegistry());
+        LlmScheduler.Permit holder = scheduler.acquire(LlmPriority.INTERACTIVE, "holder");
+        Disposable queued = scheduler.schedule(LlmPriority.INTERACTIVE, "k", Flux::never).subscribe();
+
+        assertThatThrownBy(() -> scheduler.acquire(LlmPriority.INTERACTIVE, "k"))
+                .isInstanceOf(LlmOverloadedException.class);
+
+        queued.dispose();
+        holder.close();
+        assertSlotIsFree(scheduler);
+    }
+
+    @Test
+    void aHigherPriorityRequestDisplacesTheNewestLowerPriorityWaiterOfAFullQueue() {
+        LlmScheduler scheduler = new LlmScheduler(new LlmSchedulerProperties(1, 2, Duration.ofSeconds(10)),
+                new SimpleMeterRegistry());
+        List<String> granted = new CopyOnWriteArrayList<>();
+        List<Throwable> rejected = new CopyOnWriteArrayList<>();
+        LlmScheduler.Permit holder = scheduler.acquire(LlmPriority.INTERACTIVE, "holder");
+
+        waitFor(scheduler, LlmPriority.BACKGROUND, "k", "background1", granted);
+        scheduler.schedule(LlmPriority.BACKGROUND, "k", () -> Flux.just("background2"))
+                .subscribe(granted::add, rejected::add);
+        scheduler.checkAdmission(LlmPriority.INTERACTIVE);
+        waitFor(scheduler, LlmPriority.INTERACTIVE, "k", "interactive", granted);
+
+        assertThat(rejected).singleElement().isInstanceOf(LlmOverloadedException.class);
+        assertThatThrownBy(() -> scheduler.acquire(LlmPriority.BACKGROUND, "k"))
+                .isInstanceOf(LlmOverloadedException.class);
+
+        holder.close();
+        assertThat(granted).containsExactly("interactive", "background1");
+        assertSlotIsFree(scheduler);
+    }
+
+    @Test
+    void scheduledWorkStartsOutsideTheSchedulerLock() {
+        LlmScheduler scheduler = scheduler(Duration.ofSeconds(10));
+        LlmScheduler.Permit holder = scheduler.acquire(LlmPriority.INTERACTIVE, "holder");
+        AtomicBoolean unblocked = new AtomicBoolean();
+        Disposable subscription = scheduler.schedule(LlmPriority.INTERACTIVE, "k", () -> {
+            unblocked.set(reachableFromAnotherThread(scheduler));
+            return Flux.never();
+        }).subscribe();
+
+        holder.close();
+        assertThat(unblocked).as("scheduler usable while the granted work starts").isTrue();
+
+        subscription.dispose();
+        assertSlotIsFree(scheduler);
+    }
+
+    @Test
+    void aDisplacedWaiterIsRejectedOutsideTheSchedulerLock() {
+        LlmScheduler scheduler = new LlmScheduler(new LlmSchedulerProperties(1, 1, Duration.ofSeconds(10)),
+                new SimpleMeterRegistry());
+        LlmScheduler.Permit holder = scheduler.acquire(LlmPriority.INTERACTIVE, "holder");
+        AtomicBoolean unblocked = new AtomicBoolean();
+        scheduler.schedule(LlmPriority.BACKGROUND, "k", Flux::never)
+                .subscribe(ignored -> {
+                }, error -> unblocked.set(reachableFromAnotherThread(scheduler)));
+        Disposable interactive = scheduler.schedule(LlmPriority.INTERACTIVE, "k", Flux::never).subscribe();
+
+        assertThat(unblocked).as("scheduler usable while the displaced waiter handles its rejection").isTrue();
+
+        interactive.dispose();
+        holder.close();
+        assertSlotIsFree(scheduler);
+    }
+
+    private static LlmScheduler scheduler(Duration maxWait) {
+        return new LlmScheduler(new LlmSchedulerProperties(1, 16, maxWait), new SimpleMeterRegistry());
+    }
+
+    /**
+     * Queues work that records its label when it gets the slot and releases it straight away,
+     * so with one slot the labels end up in grant order.
+     */
+    private static void waitFor(LlmScheduler scheduler, LlmPriority priority, String key, String label,
+                                List<String> granted) {
+        scheduler.schedule(priority, key, () -> Flux.just(label)).subscribe(granted::add);
+    }
+
+    /**
+     * Whether another thread gets through the scheduler lock while the caller is inside a scheduler callback.
+     */
+    private static boolean reachableFromAnotherThread(LlmScheduler scheduler) {
+        // Not closed with try-with-resources, which would wait for a probe stuck on the lock
+        ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+        try {
+            executor.submit(() -> scheduler.tryAcquire(0)).get(1, TimeUnit.SECONDS);
+            return true;
+        } catch (Exception e) {
+            return false;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * The only slot can be taken, so nothing holds it and nobody waits for it.
+     */
+    private static void assertSlotIsFree(LlmScheduler scheduler) {
+        Optional<LlmScheduler.Permit> permit = scheduler.tryAcquire(0);
+        assertThat(permit).as("free LLM slot").isPresent();
+        permit.get().close();
+    }
+}
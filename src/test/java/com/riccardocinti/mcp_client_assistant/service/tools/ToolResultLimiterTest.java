@@ -0,0 +1,162 @@
+package com.riccardocinti.mcp_client_assistant.service.tools;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.riccardocinti.mcp_client_assistant.config.ToolResultLimitProperties;
+import com.riccardocinti.mcp_client_assistant.config.ToolResultLimitProperties.Limits;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ToolResultLimiterTest {
+
+    private static final Limits LIMITS = new Limits(DataSize.ofKilobytes(4), 100_000, 3, 200);
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @TempDir
+    Path directory;
+
+    private ToolResultSpill spill;
+
+    private ToolResultLimiter limiter;
+
+    @BeforeEach
+    void setUp() {
+        var properties = new ToolResultLimitProperties(true, LIMITS, Map.of(), directory.toString(),
+                Duration.ofHours(1), DataSize.ofMegabytes(1), Duration.ofMinutes(5));
+        spill = new ToolResultSpill(properties);
+        limiter = new ToolResultLimiter(properties, spill, new SimpleMeterRegistry());
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        spill.shutdown();
+    }
+
+    @Test
+    void resultsWithinTheLimitsPassUnchanged() {
+        String result = "{\"items\":[1,2,3]}";
+
+        assertThat(limiter.limit("tool", result, LIMITS)).isSameAs(result);
+        assertThat(directory).isEmptyDirectory();
+    }
+
+    @Test
+    void arraysKeepTheirFirstItemsAndCountTheRest() throws IOException {
+        String result = objectMapper.writeValueAsString(IntStream.range(0, 100)
+                .mapToObj(i -> Map.of("id", i, "title", "Issue number " + i + " " + "x".repeat(40)))
+                .toList());
+
+        JsonNode limited = objectMapper.readTree(limiter.limit("tool", result, LIMITS));
+
+        JsonNode items = limited.get("result");
+        assertThat(items).hasSize(4);
+        assertThat(items.get(0).get("id").asInt()).isZero();
+        assertThat(items.get(2).get("id").asInt()).isEqualTo(2);
+        assertThat(items.get(3).asText()).isEqualTo("[97 more items omitted]");
+        assertThat(limited.at("/truncation/originalBytes").asLong()).isEqualTo(result.length());
+        assertFullResultKept(limited, result);
+    }
+
+    @Test
+    void longStringsKeepTheirBeginningAndEnd() throws IOException {
+        String body = "BEGIN" + "m".repeat(10_000) + "END";
+        String result = objectMapper.writeValueAsString(Map.of("body", body));
+
+        JsonNode limited = objectMapper.readTree(limiter.limit("tool", result, LIMITS));
+
+        String shortened = limited.at("/result/body").asText();
+        assertThat(shortened).startsWith("BEGIN").endsWith("END").contains("characters omitted");
+        assertThat(shortened.length()).isLessThan(300);
+    }
+
+    @Test
+    void jsonEmbeddedInStringsIsShortenedAsJson() throws IOException {
+        // MCP servers return their JSON as the text of a text content block
+        String embedded = objectMapper.writeValueAsString(IntStream.range(0, 50)
+                .mapToObj(i -> Map.of("name", "repository-" + i, "description", "z".repeat(100)))
+                .toList());
+        String result = objectMapper.writeValueAsString(new Object[]{Map.of("type", "text", "text", embedded)});
+
+        JsonNode limited = objectMapper.readTree(limiter.limit("tool", result, LIMITS));
+
+        JsonNode text = objectMapper.readTree(limited.at("/result/0/text").asText());
+        assertThat(text).hasSize(4);
+        assertThat(text.get(0).get("name").asText()).isEqualTo("repository-0");
+        assertThat(text.get(3).asText()).isEqualTo("[47 more items omitted]");
+    }
+
+    @Test
+    void limitsAreHalvedUntilTheResultFits() throws IOException {
+        // Ten items of 1 KB each cannot fit 4 KB, so the first round's ten items are halved
+        Limits limits = new Limits(DataSize.ofKilobytes(4), 100_000, 10, 2000);
+        String result = objectMapper.writeValueAsString(IntStream.range(0, 40)
+                .mapToObj(i -> Map.of("id", i, "text", "y".repeat(1000)))
+                .toList());
+
+        String limited = limiter.limit("tool", result, limits);
+
+        assertThat(ToolResultLimiter.utf8Length(limited)).isLessThanOrEqualTo(limits.maxSize().toBytes());
+        JsonNode root = objectMapper.readTree(limited);
+        ArrayNode items = (ArrayNode) root.get("result");
+        int kept = items.size() - 1;
+        assertThat(kept).isBetween(1, 4);
+        assertThat(items.get(kept).asText()).isEqualTo("[" + (40 - kept) + " more items omitted]");
+        assertThat(root.at("/truncation/note").asText()).contains("first " + kept + " items");
+    }
+
+    @Test
+    void plainTextKeepsItsBeginningAndEnd() throws IOException {
+        String result = IntStream.range(0, 2000)
+                .mapToObj(i -> "log line " + i)
+                .collect(Collectors.joining("\n"));
+
+        String limited = limiter.limit("tool", result, LIMITS);
+
+        assertThat(ToolResultLimiter.utf8Length(limited)).isLessThanOrEqualTo(LIMITS.maxSize().toBytes());
+        assertThat(limited).startsWith("log line 0\n").contains("characters omitted")
+                .contains("log line 1999\n[Result shortened from " + result.length() + " bytes")
+                .contains("/api/tool-results/");
+    }
+
+    @Test
+    void resultsOverTheTokenLimitAreShortened() {
+        Limits limits = new Limits(DataSize.ofMegabytes(1), 200, 3, 200);
+        String result = "word ".repeat(2000);
+
+        String limited = limiter.limit("tool", result, limits);
+
+        assertThat(limited.length()).isLessThan(result.length());
+        assertThat(limited).contains("[Result shortened from " + result.length() + " bytes");
+    }
+
+    @Test
+    void utf8LengthCountsMultiByteCharacters() {
+        assertThat(ToolResultLimiter.utf8Length("abc")).isEqualTo(3);
+        assertThat(ToolResultLimiter.utf8Length("é")).isEqualTo(2);
+        assertThat(ToolResultLimiter.utf8Length("€")).isEqualTo(3);
+        assertThat(ToolResultLimiter.utf8Length("😀")).isEqualTo(4);
+    }
+
+    private void assertFullResultKept(JsonNode limited, String original) throws IOException {
+        String link = limited.at("/truncation/fullResult").asText();
+        assertThat(link).startsWith("/api/tool-results/");
+        Path kept = spill.find(link.substring("/api/tool-results/".length())).orElseThrow();
+        assertThat(Files.readString(kept)).isEqualTo(original);
+    }
+}
@@ -0,0 +1,72 @@
+package com.riccardocinti.mcp_client_assistant.service.tools;
+
+import com.riccardocinti.mcp_client_assistant.config.ToolResultLimitProperties;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ToolResultSpillTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void keptResultsAreFoundByTheirId() throws IOException {
+        ToolResultSpill spill = spill(DataSize.ofKilobytes(1));
+
+        String id = spill.spill("{\"a\":1}", 7).orElseThrow();
+
+        assertThat(Files.readString(spill.find(id).orElseThrow())).isEqualTo("{\"a\":1}");
+        assertThat(spill.find("../" + id)).isEmpty();
+    }
+
+    @Test
+    void resultsAreNotKeptOnceTheBudgetIsUsedUp() {
+        ToolResultSpill spill = spill(DataSize.ofKilobytes(1));
+        String result = "x".repeat(600);
+
+        assertThat(spill.spill(result, 600)).isPresent();
+        assertThat(spill.spill(result, 600)).isEmpty();
+        assertThat(spill.spill("small", 5)).isPresent();
+    }
+
+    @Test
+    void sweepingExpiredResultsFreesTheirBudget() throws IOException {
+        ToolResultSpill spill = spill(DataSize.ofKilobytes(1));
+        String result = "x".repeat(600);
+        String id = spill.spill(result, 600).orElseThrow();
+        Path kept = spill.find(id).orElseThrow();
+        Files.setLastModifiedTime(kept, FileTime.from(Instant.now().minus(Duration.ofHours(2))));
+
+        spill.sweep();
+
+        assertThat(spill.find(id)).isEmpty();
+        assertThat(spill.spill(result, 600)).isPresent();
+    }
+
+    @Test
+    void resultsLeftFromAPreviousRunCountAgainstTheBudget() throws IOException {
+        Files.writeString(directory.resolve("00000000-0000-0000-0000-000000000000.txt"), "x".repeat(900));
+
+        Optional<String> id = spill(DataSize.ofKilobytes(1)).spill("y".repeat(200), 200);
+
+        assertThat(id).isEmpty();
+    }
+
+    private ToolResultSpill spill(DataSize budget) {
+        return new ToolResultSpill(new ToolResultLimitProperties(true,
+                new ToolResultLimitProperties.Limits(DataSize.ofKilobytes(32), 4000, 10, 2000), Map.of(),
+                directory.toString(), Duration.ofHours(1), budget, Duration.ofMinutes(5)));
+    }
+}